@@ -0,0 +1,85 @@
+package com.example.shop.controllers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.example.shop.ShopFixtures;
+import com.example.shop.dtos.ApiResponse;
+import com.example.shop.dtos.BookDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * CPU per request for a catalog list: serialized on every call, serialized and gzip-compressed
+ * on every call (what server.compression does), and copied from the CatalogResponseCache bytes.
+ * The JSON and gzip sizes of each list are logged once per trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogPayloadBenchmark {
+
+	private static final Logger log = LoggerFactory.getLogger(CatalogPayloadBenchmark.class);
+
+	@Param({ "100", "1000", "10000" })
+	private int books;
+
+	private ObjectMapper objectMapper;
+	private ApiResponse<List<BookDTO>> response;
+	private byte[] cachedGzip;
+	private final ByteArrayOutputStream responseBuffer = new ByteArrayOutputStream();
+
+	@Setup
+	public void setUp() throws IOException {
+		objectMapper = Jackson2ObjectMapperBuilder.json()
+				.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+				.build();
+		List<BookDTO> list = new ArrayList<>(books);
+		for (long id = 1; id <= books; id++) {
+			list.add(ShopFixtures.bookDTO(id));
+		}
+		response = ApiResponse.success(list, "Books retrieved successfully");
+		byte[] json = objectMapper.writeValueAsBytes(response);
+		cachedGzip = CatalogResponseCache.gzip(json);
+		log.info("{} books: {} bytes as JSON, {} bytes gzip-compressed", books, json.length, cachedGzip.length);
+	}
+
+	@Benchmark
+	public byte[] serialize() throws IOException {
+		return objectMapper.writeValueAsBytes(response);
+	}
+
+	@Benchmark
+	public byte[] serializeAndGzip() throws IOException {
+		return CatalogResponseCache.gzip(objectMapper.writeValueAsBytes(response));
+	}
+
+	// The copy into the servlet response buffer is all a cached response costs
+	@Benchmark
+	public int writeCachedGzip() throws IOException {
+		responseBuffer.reset();
+		responseBuffer.write(cachedGzip);
+		return responseBuffer.size();
+	}
+}
@@ -0,0 +1,94 @@
+package com.example.shop.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.shop.BookshopApplication;
+import com.example.shop.ShopFixtures;
+import com.example.shop.models.Book;
+import com.example.shop.models.Order;
+import com.example.shop.repositories.BookRepository;
+import com.example.shop.services.BestsellerLeaderboard.Period;
+
+/**
+ * A top-10 bestseller lookup, across the whole catalog and for one grade and board, with every
+ * book having sales spread over the last 30 days. Should stay well under a millisecond.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BestsellerLeaderboardBenchmark {
+
+	@Param({ "5000" })
+	private int books;
+
+	private ConfigurableApplicationContext context;
+	private BestsellerLeaderboard leaderboard;
+
+	@Setup(Level.Trial)
+	public void startApplication() {
+		context = new SpringApplicationBuilder(BookshopApplication.class)
+				.profiles("test")
+				.web(WebApplicationType.NONE)
+				.logStartupInfo(false)
+				.run();
+		leaderboard = context.getBean(BestsellerLeaderboard.class);
+
+		List<Book> catalog = new ArrayList<>(books);
+		for (long i = 1; i <= books; i++) {
+			Book book = ShopFixtures.book(i, null);
+			book.setId(null);
+			catalog.add(book);
+		}
+		catalog = context.getBean(BookRepository.class).saveAll(catalog);
+		context.getBean(CatalogIndex.class).rebuild();
+
+		// Sales applied as OrderService publishes them, one order per book and day
+		LocalDateTime now = LocalDateTime.now();
+		long orderId = 0;
+		for (Book book : catalog) {
+			for (int day = 0; day < 30; day++) {
+				leaderboard.onBooksSold(new BooksSoldEvent(--orderId, Order.OrderStatus.PENDING, now.minusDays(day),
+						Map.of(book.getId(), 1 + (int) ((book.getId() * 31 + day) % 7))));
+			}
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void stopApplication() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<Long> topOfLastWeek() {
+		return leaderboard.top(10, Period.LAST_7_DAYS, null, null);
+	}
+
+	@Benchmark
+	public List<Long> topOfLastWeekForGradeAndBoard() {
+		return leaderboard.top(10, Period.LAST_7_DAYS, 5, Book.Board.CBSE);
+	}
+}
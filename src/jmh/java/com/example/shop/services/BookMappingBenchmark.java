@@ -0,0 +1,51 @@
+package com.example.shop.services;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.shop.ShopFixtures;
+import com.example.shop.dtos.BookDTO;
+import com.example.shop.models.Book;
+
+/**
+ * Book entity to DTO and back, as done for every book a catalog response carries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookMappingBenchmark {
+
+	private final BookService bookService = new BookService();
+
+	private Book book;
+	private BookDTO dto;
+
+	@Setup
+	public void setUp() {
+		book = ShopFixtures.book(1L, ShopFixtures.category());
+		dto = bookService.convertToDTO(book);
+	}
+
+	@Benchmark
+	public BookDTO convertToDTO() {
+		return bookService.convertToDTO(book);
+	}
+
+	@Benchmark
+	public Book convertToEntity() {
+		return bookService.convertToEntity(dto);
+	}
+}
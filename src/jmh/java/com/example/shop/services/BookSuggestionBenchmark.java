@@ -0,0 +1,74 @@
+package com.example.shop.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.shop.dtos.SuggestionDTO;
+import com.example.shop.services.BookSuggestionIndex.Snapshot;
+import com.example.shop.services.BookSuggestionIndex.SuggestionSource;
+
+/**
+ * Autocomplete over a generated catalog: a top-10 lookup for a misspelled or half-typed query,
+ * and applying one retitled book to the index as onBookChanged does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BookSuggestionBenchmark {
+
+	private static final String[] SUBJECTS = { "Mathematics", "Science", "English", "Hindi", "Social Studies",
+			"Sanskrit", "Computer Science", "Environmental Studies" };
+	private static final String[] AUTHORS = { "R.D. Sharma", "R.S. Aggarwal", "Lakhmir Singh", "NCERT",
+			"Wren and Martin", "S. Chand", "Oxford Editorial", "Pradeep Publications" };
+
+	@Param({ "mathmatics class 5", "scince", "enviromental stu", "sharm", "computr science cl" })
+	private String query;
+
+	@Param({ "10000" })
+	private int books;
+
+	private Snapshot snapshot;
+	private long changes;
+
+	@Setup
+	public void setUp() {
+		List<SuggestionSource> sources = new ArrayList<>(books);
+		for (long id = 1; id <= books; id++) {
+			sources.add(source(id, id % 50));
+		}
+		snapshot = Snapshot.of(sources);
+	}
+
+	@Benchmark
+	public List<SuggestionDTO> suggest() {
+		return snapshot.suggest(query, 10);
+	}
+
+	@Benchmark
+	public Snapshot changeOneBook() {
+		long id = 1 + changes++ % books;
+		return snapshot.with(id, source(id, 50 + changes % 50));
+	}
+
+	private static SuggestionSource source(long id, long part) {
+		String subject = SUBJECTS[(int) (id % SUBJECTS.length)];
+		return new SuggestionSource(id, subject + " Class " + (1 + id % 12) + " Part " + part,
+				AUTHORS[(int) (id % AUTHORS.length)], subject);
+	}
+}
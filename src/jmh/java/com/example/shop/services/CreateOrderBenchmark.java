@@ -0,0 +1,92 @@
+package com.example.shop.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.shop.BookshopApplication;
+import com.example.shop.ShopFixtures;
+import com.example.shop.dtos.CreateOrderRequest;
+import com.example.shop.dtos.OrderDTO;
+import com.example.shop.models.Book;
+import com.example.shop.models.Customer;
+import com.example.shop.models.Order;
+import com.example.shop.repositories.BookRepository;
+import com.example.shop.repositories.CustomerRepository;
+
+/**
+ * The whole checkout path, stock, order, items, customer counters and sales rollup, against the
+ * embedded H2 database of the test profile.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CreateOrderBenchmark {
+
+	@Param({ "1", "10" })
+	private int items;
+
+	private ConfigurableApplicationContext context;
+	private OrderService orderService;
+	private CreateOrderRequest request;
+
+	@Setup(Level.Trial)
+	public void startApplication() {
+		context = new SpringApplicationBuilder(BookshopApplication.class)
+				.profiles("test")
+				.web(WebApplicationType.NONE)
+				.logStartupInfo(false)
+				.run();
+		orderService = context.getBean(OrderService.class);
+
+		Customer customer = ShopFixtures.customer();
+		customer.setId(null);
+		customer = context.getBean(CustomerRepository.class).save(customer);
+		BookRepository bookRepository = context.getBean(BookRepository.class);
+		List<CreateOrderRequest.CreateOrderItemRequest> orderItems = new ArrayList<>();
+		for (long i = 1; i <= items; i++) {
+			Book book = ShopFixtures.book(i, null);
+			book.setId(null);
+			book.setQuantity(Integer.MAX_VALUE / 2);
+			orderItems.add(CreateOrderRequest.CreateOrderItemRequest.builder()
+					.bookId(bookRepository.save(book).getId())
+					.quantity(1)
+					.build());
+		}
+		request = CreateOrderRequest.builder()
+				.customerId(customer.getId())
+				.orderItems(orderItems)
+				.paymentMethod(Order.PaymentMethod.ONLINE_PAYMENT)
+				.build();
+	}
+
+	@TearDown(Level.Trial)
+	public void stopApplication() {
+		context.close();
+	}
+
+	@Benchmark
+	public OrderDTO createOrder() {
+		return orderService.createOrder(request);
+	}
+}
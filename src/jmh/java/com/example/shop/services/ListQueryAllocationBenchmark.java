@@ -0,0 +1,182 @@
+package com.example.shop.services;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shop.BookshopApplication;
+import com.example.shop.ShopFixtures;
+import com.example.shop.dtos.BookDTO;
+import com.example.shop.dtos.CreateOrderRequest;
+import com.example.shop.dtos.CustomerDTO;
+import com.example.shop.dtos.OrderDTO;
+import com.example.shop.models.Book;
+import com.example.shop.models.Category;
+import com.example.shop.models.Customer;
+import com.example.shop.models.Order;
+import com.example.shop.models.OrderItem;
+import com.example.shop.repositories.BookRepository;
+import com.example.shop.repositories.CategoryRepository;
+import com.example.shop.repositories.CustomerRepository;
+import com.example.shop.repositories.OrderItemRepository;
+import com.example.shop.repositories.OrderRepository;
+
+/**
+ * The list reads, built from entities loaded in a read-write transaction and mapped by hand as
+ * they used to be, against the constructor-expression projections that replaced them. Run with
+ * the GC profiler for heap allocated per request:
+ * mvn -Pjmh verify -Djmh.args="ListQueryAllocation -prof gc" (gc.alloc.rate.norm, bytes/op).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListQueryAllocationBenchmark {
+
+	private static final int ITEMS_PER_ORDER = 3;
+
+	@Param({ "100", "1000" })
+	private int rows;
+
+	private ConfigurableApplicationContext context;
+	private TransactionTemplate transactionTemplate;
+	private BookService bookService;
+	private CustomerService customerService;
+	private OrderService orderService;
+	private BookRepository bookRepository;
+	private CustomerRepository customerRepository;
+	private OrderRepository orderRepository;
+	private OrderItemRepository orderItemRepository;
+
+	private String city;
+	private Long customerId;
+	private List<Long> bookIds;
+
+	@Setup(Level.Trial)
+	public void startApplication() {
+		context = new SpringApplicationBuilder(BookshopApplication.class)
+				.profiles("test")
+				.web(WebApplicationType.NONE)
+				.logStartupInfo(false)
+				.run();
+		transactionTemplate = context.getBean(TransactionTemplate.class);
+		bookService = context.getBean(BookService.class);
+		customerService = context.getBean(CustomerService.class);
+		orderService = context.getBean(OrderService.class);
+		bookRepository = context.getBean(BookRepository.class);
+		customerRepository = context.getBean(CustomerRepository.class);
+		orderRepository = context.getBean(OrderRepository.class);
+		orderItemRepository = context.getBean(OrderItemRepository.class);
+
+		Category category = ShopFixtures.category();
+		category.setId(null);
+		category = context.getBean(CategoryRepository.class).save(category);
+		List<Book> books = new ArrayList<>(rows);
+		for (long i = 1; i <= rows; i++) {
+			Book book = ShopFixtures.book(i, category);
+			book.setId(null);
+			book.setIsbn(null);
+			book.setQuantity(Integer.MAX_VALUE / 2);
+			books.add(book);
+		}
+		bookIds = bookRepository.saveAll(books).stream().map(Book::getId).toList();
+
+		city = "Pune";
+		List<Customer> customers = new ArrayList<>(rows);
+		for (int i = 0; i < rows; i++) {
+			Customer customer = ShopFixtures.customer();
+			customer.setId(null);
+			customer.setEmail("school-" + i + "@greenvalley.example");
+			customer.setCity(city);
+			customers.add(customer);
+		}
+		customerId = customerRepository.saveAll(customers).get(0).getId();
+
+		for (int i = 0; i < rows; i++) {
+			List<CreateOrderRequest.CreateOrderItemRequest> items = new ArrayList<>(ITEMS_PER_ORDER);
+			for (int j = 0; j < ITEMS_PER_ORDER; j++) {
+				items.add(CreateOrderRequest.CreateOrderItemRequest.builder()
+						.bookId(bookIds.get((i * ITEMS_PER_ORDER + j) % rows))
+						.quantity(1)
+						.build());
+			}
+			orderService.createOrder(CreateOrderRequest.builder()
+					.customerId(customerId)
+					.orderItems(items)
+					.paymentMethod(Order.PaymentMethod.ONLINE_PAYMENT)
+					.build());
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void stopApplication() {
+		context.close();
+	}
+
+	@Benchmark
+	public List<BookDTO> booksFromEntities() {
+		return transactionTemplate.execute(status -> bookRepository.findAllById(bookIds).stream()
+				.map(bookService::convertToDTO)
+				.collect(Collectors.toList()));
+	}
+
+	@Benchmark
+	public List<BookDTO> booksFromProjection() {
+		return transactionTemplate.execute(status -> bookRepository.findDTOsByIdIn(bookIds));
+	}
+
+	@Benchmark
+	public List<CustomerDTO> customersFromEntities() {
+		return transactionTemplate.execute(status -> customerRepository.findByCityAndIsActiveTrue(city).stream()
+				.map(customerService::convertToDTO)
+				.collect(Collectors.toList()));
+	}
+
+	@Benchmark
+	public List<CustomerDTO> customersFromProjection() {
+		return customerService.getCustomersByCity(city);
+	}
+
+	@Benchmark
+	public List<OrderDTO> ordersFromEntities() {
+		return transactionTemplate.execute(status -> {
+			List<Order> orders = orderRepository.findByCustomerIdOrderByOrderDateDesc(customerId);
+			Map<Long, List<OrderItem>> itemsByOrderId = new HashMap<>();
+			for (OrderItem item : orderItemRepository.findByOrderIdInWithBook(
+					orders.stream().map(Order::getId).toList())) {
+				itemsByOrderId.computeIfAbsent(item.getOrder().getId(), id -> new ArrayList<>()).add(item);
+			}
+			return orders.stream()
+					.map(order -> orderService.convertToDTO(order, itemsByOrderId.getOrDefault(order.getId(), List.of())))
+					.collect(Collectors.toList());
+		});
+	}
+
+	@Benchmark
+	public List<OrderDTO> ordersFromProjection() {
+		return orderService.getOrdersByCustomer(customerId);
+	}
+}
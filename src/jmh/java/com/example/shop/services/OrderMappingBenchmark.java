@@ -0,0 +1,52 @@
+package com.example.shop.services;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.shop.ShopFixtures;
+import com.example.shop.dtos.OrderDTO;
+import com.example.shop.models.Order;
+import com.example.shop.models.OrderItem;
+
+/**
+ * Order entity to DTO with its items, from a single-book order to a school's bulk order.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderMappingBenchmark {
+
+	@Param({ "1", "10", "100" })
+	private int items;
+
+	private final OrderService orderService = new OrderService();
+
+	private Order order;
+	private List<OrderItem> orderItems;
+
+	@Setup
+	public void setUp() {
+		order = ShopFixtures.order(items);
+		orderItems = ShopFixtures.orderItems(order, items);
+	}
+
+	@Benchmark
+	public OrderDTO convertToDTO() {
+		return orderService.convertToDTO(order, orderItems);
+	}
+}
@@ -0,0 +1,35 @@
+package com.example.shop.services;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Order numbers handed out by one node to concurrent checkouts. Past 100,000 a second the
+ * embedded time runs ahead of the clock, so scores above that say little.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class OrderNumberGeneratorBenchmark {
+
+	private final OrderNumberGenerator generator = new TimeOrderedOrderNumberGenerator(1);
+
+	@Benchmark
+	public String nextOrderNumber() {
+		return generator.nextOrderNumber();
+	}
+}
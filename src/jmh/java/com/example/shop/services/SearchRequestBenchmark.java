@@ -0,0 +1,67 @@
+package com.example.shop.services;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import com.example.shop.dtos.SearchRequest;
+
+/**
+ * Turning a SearchRequest into what the repositories take: an offset page request as built by
+ * the search services, and a keyset sort and position decoded from a cursor.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchRequestBenchmark {
+
+	private SearchRequest request;
+
+	@Setup
+	public void setUp() {
+		request = SearchRequest.builder()
+				.page(3)
+				.size(20)
+				.sortBy("orderDate")
+				.sortDirection("DESC")
+				.build();
+		request.setCursor(SearchCursor.encode("orderDate", Sort.Direction.DESC,
+				Map.of("orderDate", LocalDateTime.of(2024, 6, 15, 12, 0), "id", 4_200L)));
+	}
+
+	@Benchmark
+	public Pageable pageRequest() {
+		Sort.Direction direction = Sort.Direction.fromString(request.getSortDirection());
+		Sort sort = Sort.by(direction, request.getSortBy()).and(Sort.by(direction, "id"));
+		return PageRequest.of(request.getPage(), request.getSize(), sort);
+	}
+
+	@Benchmark
+	public Sort keysetSort() {
+		return SearchCursor.keysetSort(request.getSortBy(), Sort.Direction.fromString(request.getSortDirection()));
+	}
+
+	@Benchmark
+	public KeysetScrollPosition cursorPosition() {
+		return SearchCursor.position(request.getCursor(), request.getSortBy(),
+				Sort.Direction.fromString(request.getSortDirection()));
+	}
+}
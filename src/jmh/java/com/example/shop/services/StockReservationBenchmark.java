@@ -0,0 +1,86 @@
+package com.example.shop.services;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shop.BookshopApplication;
+import com.example.shop.ShopFixtures;
+import com.example.shop.models.Book;
+import com.example.shop.repositories.BookRepository;
+
+/**
+ * Concurrent checkouts of one hot book: the conditional UPDATE against the load-check-save path
+ * it replaced, which reads the row, compares in Java and writes the whole entity back.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class StockReservationBenchmark {
+
+	private ConfigurableApplicationContext context;
+	private BookService bookService;
+	private BookRepository bookRepository;
+	private TransactionTemplate transactionTemplate;
+	private Long bookId;
+
+	@Setup(Level.Trial)
+	public void startApplication() {
+		context = new SpringApplicationBuilder(BookshopApplication.class)
+				.profiles("test")
+				.web(WebApplicationType.NONE)
+				.logStartupInfo(false)
+				.run();
+		bookService = context.getBean(BookService.class);
+		bookRepository = context.getBean(BookRepository.class);
+		transactionTemplate = context.getBean(TransactionTemplate.class);
+
+		Book book = ShopFixtures.book(1L, null);
+		book.setId(null);
+		book.setQuantity(Integer.MAX_VALUE);
+		bookId = bookRepository.save(book).getId();
+	}
+
+	@TearDown(Level.Trial)
+	public void stopApplication() {
+		context.close();
+	}
+
+	@Benchmark
+	public boolean conditionalUpdate() {
+		return bookService.tryReduceStock(bookId, 1);
+	}
+
+	@Benchmark
+	public boolean loadCheckSave() {
+		return transactionTemplate.execute(status -> {
+			Book book = bookRepository.findById(bookId).orElseThrow();
+			if (book.getQuantity() < 1) {
+				return false;
+			}
+			book.setQuantity(book.getQuantity() - 1);
+			bookRepository.save(book);
+			return true;
+		});
+	}
+}
@@ -0,0 +1,11 @@
+package com.example.shop.configs;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    // Cache names, size and TTL are configured in application.properties (spring.cache.*)
+    // This class enables the Caffeine cache manager used by BookCatalogCache
+}
@@ -0,0 +1,16 @@
+package com.example.shop.configs;
+
+import java.time.Clock;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ClockConfig {
+
+    // Bestseller days are UTC days, whatever the host's zone; stored timestamps stay host-local
+    @Bean
+    public Clock clock() {
+        return Clock.systemUTC();
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.shop.configs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.example.shop.models.Customer;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Customer order statistics used to be computed by loading every order of the customer and are
+ * now stored on the customer. When the columns are added to an existing database they are null
+ * for every customer, so on startup those rows are filled in from the orders table. Rows that
+ * already have statistics are never touched, so after the first run this is a no-op.
+ */
+@Component
+public class CustomerOrderStatsBackfill implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerOrderStatsBackfill.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        int updated = jdbcTemplate.update(
+                "UPDATE customers SET " +
+                "order_count = (SELECT COUNT(*) FROM orders o WHERE o.customer_id = customers.id), " +
+                "lifetime_value = (SELECT COALESCE(SUM(o.final_amount), 0) FROM orders o WHERE o.customer_id = customers.id), " +
+                "last_order_date = (SELECT MAX(o.order_date) FROM orders o WHERE o.customer_id = customers.id) " +
+                "WHERE order_count IS NULL OR lifetime_value IS NULL");
+        if (updated > 0) {
+            // Written with plain JDBC, which the second-level cache knows nothing about
+            entityManagerFactory.getCache().evict(Customer.class);
+            log.info("Backfilled order statistics for {} customers", updated);
+        }
+    }
+}
@@ -1,13 +1,117 @@
 package com.example.shop.configs;
 
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.TransactionExecution;
+import org.springframework.transaction.TransactionExecutionListener;
 import org.springframework.transaction.annotation.EnableTransactionManagement;
 
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
 @Configuration
 @EnableJpaRepositories(basePackages = "com.example.shop.repositories")
 @EnableTransactionManagement
 public class DatabaseConfig {
     // Database configuration is handled by application.properties
     // This class enables JPA repositories and transaction management
+
+    /**
+     * With shop.datasource.replica.url set, read-only transactions run on the read replica and
+     * everything else on the primary. Without it Spring Boot's single pool is used as before.
+     *
+     * The application data source hands out lazy connections: the transaction manager marks them
+     * read-only before the first statement, and only then is a physical connection taken, from
+     * the {@link ReplicaDataSource} for read-only transactions and from the primary pool for the
+     * rest. Hibernate holds a connection for the whole session, which is why open-in-view is off.
+     */
+    @Configuration
+    @ConditionalOnProperty("shop.datasource.replica.url")
+    static class ReadReplicaConfig {
+
+        @Bean
+        @ConfigurationProperties("spring.datasource.hikari")
+        public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+            return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        }
+
+        @Bean
+        @ConfigurationProperties("shop.datasource.replica.hikari")
+        public HikariDataSource replicaDataSource(@Value("${shop.datasource.replica.url}") String url,
+                @Value("${shop.datasource.replica.username:${spring.datasource.username:}}") String username,
+                @Value("${shop.datasource.replica.password:${spring.datasource.password:}}") String password) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(url)
+                    .username(username)
+                    .password(password)
+                    .build();
+            replica.setPoolName("shop-replica");
+            replica.setReadOnly(true);
+            return replica;
+        }
+
+        @Bean
+        public ReplicaLagMonitor replicaLagMonitor(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                @Value("${shop.datasource.replica.max-lag:PT3S}") Duration maxLag,
+                MeterRegistry meterRegistry) {
+            return new ReplicaLagMonitor(primaryDataSource, replicaDataSource, maxLag, meterRegistry);
+        }
+
+        @Bean
+        @Primary
+        public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                ReplicaLagMonitor replicaLagMonitor, MeterRegistry meterRegistry) {
+            LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+            dataSource.setReadOnlyDataSource(
+                    new ReplicaDataSource(primaryDataSource, replicaDataSource, replicaLagMonitor, meterRegistry));
+            return dataSource;
+        }
+
+        @Bean
+        public ReadsPrimaryAspect readsPrimaryAspect() {
+            return new ReadsPrimaryAspect();
+        }
+
+        // Read-only transactions may have read from the lagging replica, so the entities they load
+        // are not put into the second-level cache. Hibernate puts query results into the query
+        // cache on a miss even so, where a stale result would outlive the lag, so read-only service
+        // methods calling a query-cached finder are marked @ReadsPrimary to read the primary.
+        @Bean
+        public TransactionExecutionListener replicaReadsSkipCachePuts(EntityManagerFactory entityManagerFactory) {
+            return new TransactionExecutionListener() {
+                @Override
+                public void afterBegin(TransactionExecution transaction, Throwable beginFailure) {
+                    if (beginFailure == null && transaction.isReadOnly()) {
+                        EntityManager entityManager =
+                                EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+                        if (entityManager != null) {
+                            entityManager.setProperty(AvailableSettings.JAKARTA_SHARED_CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+                        }
+                    }
+                }
+            };
+        }
+    }
 }
@@ -0,0 +1,91 @@
+package com.example.shop.configs;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Metrics are exposed at /actuator/prometheus. Spring Boot already records HTTP requests per
+ * endpoint (http.server.requests), repository calls (spring.data.repository.invocations),
+ * Hikari pool usage (hikaricp.*), Hibernate session and second-level cache statistics
+ * (hibernate.*) and the Caffeine caches; services are timed with @Timed("shop.service").
+ *
+ * This adds executions, latency and rows read of every HQL query, tagged with the query, to find
+ * the hot ones. They are the meters of Hibernate's HibernateQueryMetrics binder, which registers
+ * them from a post-load listener: every loaded entity walked all queries seen so far and rebuilt
+ * their meter ids, around 100 KB of garbage per entity. Here each query is registered once, on the
+ * first pass after it ran, so it shows up in the scrape within a refresh interval.
+ */
+@Component
+public class HibernateQueryMeters {
+
+    private static final String ENTITY_MANAGER_FACTORY = "entityManagerFactory";
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Set<String> registered = ConcurrentHashMap.newKeySet();
+
+    @Scheduled(initialDelayString = "${shop.metrics.query-meters.refresh-interval:PT1M}",
+               fixedDelayString = "${shop.metrics.query-meters.refresh-interval:PT1M}")
+    public void registerNewQueries() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getStatistics();
+        for (String query : statistics.getQueries()) {
+            if (registered.add(query)) {
+                register(query, statistics.getQueryStatistics(query));
+            }
+        }
+    }
+
+    private void register(String query, QueryStatistics queryStatistics) {
+        Tags tags = Tags.of(ENTITY_MANAGER_FACTORY, ENTITY_MANAGER_FACTORY, "query", query);
+        FunctionCounter.builder("hibernate.query.cache.requests", queryStatistics, QueryStatistics::getCacheHitCount)
+                .tags(tags).tag("result", "hit")
+                .description("Number of query cache hits")
+                .register(meterRegistry);
+        FunctionCounter.builder("hibernate.query.cache.requests", queryStatistics, QueryStatistics::getCacheMissCount)
+                .tags(tags).tag("result", "miss")
+                .description("Number of query cache misses")
+                .register(meterRegistry);
+        FunctionCounter.builder("hibernate.query.cache.puts", queryStatistics, QueryStatistics::getCachePutCount)
+                .tags(tags)
+                .description("Number of cache puts for a query")
+                .register(meterRegistry);
+        FunctionTimer.builder("hibernate.query.execution.total", queryStatistics,
+                        QueryStatistics::getExecutionCount, QueryStatistics::getExecutionTotalTime, TimeUnit.MILLISECONDS)
+                .tags(tags)
+                .description("Query executions")
+                .register(meterRegistry);
+        TimeGauge.builder("hibernate.query.execution.max", queryStatistics, TimeUnit.MILLISECONDS,
+                        QueryStatistics::getExecutionMaxTime)
+                .tags(tags)
+                .description("Query maximum execution time")
+                .register(meterRegistry);
+        TimeGauge.builder("hibernate.query.execution.min", queryStatistics, TimeUnit.MILLISECONDS,
+                        QueryStatistics::getExecutionMinTime)
+                .tags(tags)
+                .description("Query minimum execution time")
+                .register(meterRegistry);
+        FunctionCounter.builder("hibernate.query.execution.rows", queryStatistics, QueryStatistics::getExecutionRowCount)
+                .tags(tags)
+                .description("Number of rows processed for a query")
+                .register(meterRegistry);
+    }
+}
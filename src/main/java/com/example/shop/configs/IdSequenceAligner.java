@@ -0,0 +1,51 @@
+package com.example.shop.configs;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Ids used to come from IDENTITY columns and are now allocated from one sequence per table.
+ * On databases created before that change the new sequences start at 1 while the tables
+ * already hold rows, so on startup each sequence that is behind its table is moved past
+ * the highest existing id. Sequences that are already ahead are never touched.
+ */
+@Component
+public class IdSequenceAligner implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(IdSequenceAligner.class);
+
+    private static final List<String> TABLES = List.of(
+            "books", "categories", "customers", "orders", "order_items", "users");
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        String product = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                metaData -> metaData.getDatabaseProductName());
+        if (!"PostgreSQL".equalsIgnoreCase(product)) {
+            return;
+        }
+
+        for (String table : TABLES) {
+            String sequence = table + "_seq";
+            Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+            Long lastValue = jdbcTemplate.queryForObject("SELECT last_value FROM " + sequence, Long.class);
+
+            if (maxId != null && lastValue != null && maxId > lastValue) {
+                // With the pooled optimizer the next nextval() hands out the block (maxId, maxId + 50]
+                jdbcTemplate.queryForObject("SELECT setval('" + sequence + "', ?)", Long.class, maxId);
+                log.info("Moved sequence {} from {} to {} to match existing ids", sequence, lastValue, maxId);
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.shop.configs;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Records how many SQL statements each request ran (shop.http.requests.queries) and warns when an
+ * endpoint goes over its budget (shop.http.requests.query.budget.exceeded), which is usually a
+ * lazy association loaded once per row. Streaming responses finish on another thread and are not
+ * counted.
+ */
+@Component
+public class QueryBudgetInterceptor implements HandlerInterceptor {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryBudgetInterceptor.class);
+
+    private static final String STATEMENTS_AT_START = QueryBudgetInterceptor.class.getName() + ".statementsAtStart";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Statements one request may run before it is reported
+    @Value("${shop.query-budget.max-statements:20}")
+    private int maxStatements;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(STATEMENTS_AT_START, QueryCounter.current());
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        Object start = request.getAttribute(STATEMENTS_AT_START);
+        if (!(start instanceof Long statementsAtStart)) {
+            return;
+        }
+        long statements = QueryCounter.current() - statementsAtStart;
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+        DistributionSummary.builder("shop.http.requests.queries")
+                .description("SQL statements run per request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(statements);
+
+        if (statements > maxStatements) {
+            Counter.builder("shop.http.requests.query.budget.exceeded")
+                    .description("Requests that ran more SQL statements than the query budget")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("{} {} ran {} SQL statements, over the budget of {}",
+                    request.getMethod(), uri, statements, maxStatements);
+        }
+    }
+}
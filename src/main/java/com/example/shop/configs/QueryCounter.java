@@ -0,0 +1,25 @@
+package com.example.shop.configs;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Counts the SQL statements Hibernate prepares on each thread. The count only ever grows, so a
+ * unit of work is measured by reading it before and after; nested measurements, such as a test
+ * around a request that is itself measured, do not interfere with each other.
+ * A JDBC batch is prepared once and counts as one statement. Plain JdbcTemplate SQL is not seen.
+ */
+public class QueryCounter implements StatementInspector {
+
+    private static final ThreadLocal<long[]> STATEMENTS = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.get()[0]++;
+        return sql;
+    }
+
+    // Statements prepared on this thread so far
+    public static long current() {
+        return STATEMENTS.get()[0];
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.shop.configs;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Keeps the read-only transaction of a service method on the primary when read-only transactions
+ * otherwise run on the read replica; see DatabaseConfig.ReadReplicaConfig for which reads need it.
+ * Only transactions the method starts are routed: one it joins already has its connection.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface ReadsPrimary {
+}
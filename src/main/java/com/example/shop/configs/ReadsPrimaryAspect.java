@@ -0,0 +1,26 @@
+package com.example.shop.configs;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Routes the connections of {@link ReadsPrimary} methods to the primary. Runs outside the
+ * transaction interceptor, so the routing is in place before the transaction begins.
+ */
+@Aspect
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class ReadsPrimaryAspect {
+
+    @Around("@annotation(com.example.shop.configs.ReadsPrimary)")
+    public Object readPrimary(ProceedingJoinPoint joinPoint) throws Throwable {
+        boolean previous = ReplicaDataSource.readPrimary(true);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ReplicaDataSource.readPrimary(previous);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.shop.configs;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Connections for read-only transactions: from the replica pool while the {@link ReplicaLagMonitor}
+ * finds the replica close enough behind the primary, otherwise from the primary pool. A replica
+ * connection that cannot be opened falls back to the primary right away rather than failing the
+ * read, and keeps later reads off the replica until the next successful check. Methods marked
+ * {@link ReadsPrimary} always read the primary.
+ */
+public class ReplicaDataSource extends AbstractDataSource {
+
+    // Set while a @ReadsPrimary method runs on this thread
+    private static final ThreadLocal<Boolean> READ_PRIMARY = ThreadLocal.withInitial(() -> false);
+
+    private final DataSource primary;
+
+    private final DataSource replica;
+
+    private final ReplicaLagMonitor lagMonitor;
+
+    private final Counter fallbacks;
+
+    public ReplicaDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor,
+            MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replica = replica;
+        this.lagMonitor = lagMonitor;
+        this.fallbacks = Counter.builder("shop.datasource.replica.fallbacks")
+                .description("Read-only transactions sent to the primary because the replica was behind or down")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    // Pools that take no per-connection credentials, Hikari among them, refuse this on either side
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    // Pins this thread's read-only connections to the primary, or releases them; returns the previous setting
+    static boolean readPrimary(boolean primary) {
+        boolean previous = READ_PRIMARY.get();
+        if (primary) {
+            READ_PRIMARY.set(true);
+        } else {
+            READ_PRIMARY.remove();
+        }
+        return previous;
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        if (READ_PRIMARY.get()) {
+            return source.connect(primary);
+        }
+        if (lagMonitor.isReplicaUsable()) {
+            try {
+                return source.connect(replica);
+            } catch (SQLFeatureNotSupportedException e) {
+                throw e;
+            } catch (SQLException e) {
+                lagMonitor.markUnreachable(e);
+            }
+        }
+        fallbacks.increment();
+        return source.connect(primary);
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection connect(DataSource dataSource) throws SQLException;
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.shop.configs;
+
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import com.example.shop.models.ReplicaHeartbeat;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Measures how far the read replica is behind the primary. Every check stamps the current time
+ * into the {@link ReplicaHeartbeat} row on the primary and reads the stamp back from the replica.
+ * The difference is the replication lag plus up to one check interval: a replica that is behind
+ * at all has at best the previous stamp. Stamps come from the instances' clocks, so any
+ * instance's heartbeat serves all of them.
+ *
+ * The replica is used while its lag is within max-lag. Until the first successful check, and
+ * while the replica cannot be reached, read-only transactions stay on the primary.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    private final JdbcTemplate primary;
+
+    private final JdbcTemplate replica;
+
+    private final Duration maxLag;
+
+    // Null until measured, and again while the replica cannot be reached
+    private volatile Duration lag;
+
+    private volatile boolean usable;
+
+    public ReplicaLagMonitor(DataSource primary, DataSource replica, Duration maxLag, MeterRegistry meterRegistry) {
+        this.primary = new JdbcTemplate(primary);
+        this.replica = new JdbcTemplate(replica);
+        this.maxLag = maxLag;
+        Gauge.builder("shop.datasource.replica.lag", this,
+                        monitor -> monitor.lag == null ? Double.NaN : monitor.lag.toMillis() / 1000.0)
+                .baseUnit("seconds")
+                .description("How far the read replica is behind the primary, overstated by up to one heartbeat interval")
+                .register(meterRegistry);
+    }
+
+    public boolean isReplicaUsable() {
+        return usable;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        // The table is part of the schema; only its row is created here
+        try {
+            primary.update("INSERT INTO replica_heartbeat (id, beat_at) SELECT 1, 0 "
+                    + "WHERE NOT EXISTS (SELECT 1 FROM replica_heartbeat WHERE id = 1)");
+        } catch (DuplicateKeyException e) {
+            // Another instance starting at the same time created it
+        }
+        check();
+    }
+
+    @Scheduled(initialDelayString = "${shop.datasource.replica.heartbeat-interval:PT1S}",
+               fixedDelayString = "${shop.datasource.replica.heartbeat-interval:PT1S}")
+    public void check() {
+        long now = System.currentTimeMillis();
+        try {
+            primary.update("UPDATE replica_heartbeat SET beat_at = ? WHERE id = 1", now);
+        } catch (DataAccessException e) {
+            // Nothing to compare against; writes are failing anyway
+            log.warn("Could not write the replica heartbeat: {}", e.getMessage());
+            return;
+        }
+        try {
+            Long beatAt = replica.queryForObject("SELECT beat_at FROM replica_heartbeat WHERE id = 1", Long.class);
+            update(Duration.ofMillis(Math.max(0, now - beatAt)));
+        } catch (DataAccessException e) {
+            markUnreachable(e);
+        }
+    }
+
+    // Called when a connection to the replica fails between checks
+    public void markUnreachable(Exception e) {
+        lag = null;
+        if (usable) {
+            usable = false;
+            log.warn("Read replica unreachable, reading from the primary: {}", e.getMessage());
+        }
+    }
+
+    private void update(Duration measured) {
+        lag = measured;
+        boolean withinMaxLag = measured.compareTo(maxLag) <= 0;
+        if (withinMaxLag != usable) {
+            usable = withinMaxLag;
+            if (withinMaxLag) {
+                log.info("Read replica is {} ms behind, reading from the replica", measured.toMillis());
+            } else {
+                log.warn("Read replica is {} ms behind (max {} ms), reading from the primary",
+                        measured.toMillis(), maxLag.toMillis());
+            }
+        }
+    }
+}
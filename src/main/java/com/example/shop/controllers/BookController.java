@@ -1,9 +1,14 @@
 package com.example.shop.controllers;
 
+import java.time.Duration;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
@@ -16,12 +21,19 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.example.shop.dtos.ApiResponse;
 import com.example.shop.dtos.BookDTO;
+import com.example.shop.dtos.CursorSlice;
 import com.example.shop.dtos.SearchRequest;
+import com.example.shop.dtos.SuggestionDTO;
 import com.example.shop.models.Book;
+import com.example.shop.services.BestsellerLeaderboard;
 import com.example.shop.services.BookService;
+import com.example.shop.services.CatalogVersion;
+import com.example.shop.services.ExportFormat;
 
 import jakarta.validation.Valid;
 
@@ -33,17 +45,42 @@ public class BookController {
     @Autowired
     private BookService bookService;
     
+    @Autowired
+    private CatalogResponseCache catalogResponseCache;
+    
+    // How long clients may reuse a catalog list before revalidating it against its ETag
+    @Value("${shop.http.cache.books-max-age:PT1M}")
+    private Duration booksMaxAge;
+    
+    // Sent from bytes cached for the current catalog version, or a 304 while the client's copy is current
     @GetMapping
-    public ResponseEntity<ApiResponse<List<BookDTO>>> getAllBooks() {
+    public ResponseEntity<?> getAllBooks(WebRequest request) {
         try {
-            List<BookDTO> books = bookService.getAllBooks();
-            return ResponseEntity.ok(ApiResponse.success(books, "Books retrieved successfully"));
+            return catalogResponseCache.respond("books", CatalogVersion.Scope.BOOKS, request, catalogCacheControl(),
+                    () -> ApiResponse.success(bookService.getAllBooks(), "Books retrieved successfully"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Failed to retrieve books: " + e.getMessage()));
         }
     }
     
+    // Streams every active book as NDJSON or CSV, row by row, however many there are
+    @GetMapping("/export")
+    public ResponseEntity<?> exportBooks(@RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.fromParameter(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+        StreamingResponseBody body = out -> bookService.exportBooks(out, exportFormat);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(exportFormat.fileName("books")).build().toString())
+                .body(body);
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<BookDTO>> getBookById(@PathVariable Long id) {
         try {
@@ -71,10 +108,10 @@ public class BookController {
     }
     
     @GetMapping("/grade/{grade}")
-    public ResponseEntity<ApiResponse<List<BookDTO>>> getBooksByGrade(@PathVariable Integer grade) {
+    public ResponseEntity<?> getBooksByGrade(@PathVariable Integer grade, WebRequest request) {
         try {
-            List<BookDTO> books = bookService.getBooksByGrade(grade);
-            return ResponseEntity.ok(ApiResponse.success(books, "Books retrieved successfully"));
+            return catalogResponseCache.respond("books/grade/" + grade, CatalogVersion.Scope.BOOKS, request, catalogCacheControl(),
+                    () -> ApiResponse.success(bookService.getBooksByGrade(grade), "Books retrieved successfully"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Failed to retrieve books: " + e.getMessage()));
@@ -114,8 +151,24 @@ public class BookController {
         }
     }
     
+    @GetMapping("/filter")
+    public ResponseEntity<ApiResponse<List<BookDTO>>> filterBooks(
+            @RequestParam(required = false) Integer grade,
+            @RequestParam(required = false) Book.Board board,
+            @RequestParam(required = false) String subject,
+            @RequestParam(required = false) Long categoryId) {
+        try {
+            List<BookDTO> books = bookService.filterBooks(grade, board, subject, categoryId);
+            return ResponseEntity.ok(ApiResponse.success(books, "Books retrieved successfully"));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to retrieve books: " + e.getMessage()));
+        }
+    }
+    
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse<Page<BookDTO>>> searchBooks(
+    public ResponseEntity<ApiResponse<?>> searchBooks(
+            @RequestParam(required = false) String q,
             @RequestParam(required = false) String title,
             @RequestParam(required = false) String author,
             @RequestParam(required = false) Integer grade,
@@ -124,9 +177,11 @@ public class BookController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "ASC") String sortDirection) {
+            @RequestParam(defaultValue = "ASC") String sortDirection,
+            @RequestParam(required = false) String cursor) {
         try {
             SearchRequest searchRequest = SearchRequest.builder()
+                    .keyword(q)
                     .title(title)
                     .author(author)
                     .grade(grade)
@@ -136,16 +191,36 @@ public class BookController {
                     .size(size)
                     .sortBy(sortBy)
                     .sortDirection(sortDirection)
+                    .cursor(cursor)
                     .build();
             
+            if (cursor != null) {
+                CursorSlice<BookDTO> books = bookService.searchBooksAfter(searchRequest);
+                return ResponseEntity.ok(ApiResponse.success(books, "Search completed successfully"));
+            }
             Page<BookDTO> books = bookService.searchBooks(searchRequest);
             return ResponseEntity.ok(ApiResponse.success(books, "Search completed successfully"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Search failed: " + e.getMessage()));
         }
     }
     
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<SuggestionDTO>>> suggest(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        try {
+            List<SuggestionDTO> suggestions = bookService.suggest(prefix, limit);
+            return ResponseEntity.ok(ApiResponse.success(suggestions, "Suggestions retrieved successfully"));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to retrieve suggestions: " + e.getMessage()));
+        }
+    }
+    
     @GetMapping("/low-stock")
     public ResponseEntity<ApiResponse<List<BookDTO>>> getLowStockBooks(
             @RequestParam(defaultValue = "10") Integer threshold) {
@@ -160,9 +235,12 @@ public class BookController {
     
     @GetMapping("/bestsellers")
     public ResponseEntity<ApiResponse<List<BookDTO>>> getBestSellingBooks(
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(defaultValue = "ALL_TIME") BestsellerLeaderboard.Period period,
+            @RequestParam(required = false) Integer grade,
+            @RequestParam(required = false) Book.Board board) {
         try {
-            List<BookDTO> books = bookService.getBestSellingBooks(limit);
+            List<BookDTO> books = bookService.getBestSellingBooks(limit, period, grade, board);
             return ResponseEntity.ok(ApiResponse.success(books, "Best selling books retrieved successfully"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -218,4 +296,8 @@ public class BookController {
                     .body(ApiResponse.error("Failed to update stock: " + e.getMessage()));
         }
     }
+    
+    private CacheControl catalogCacheControl() {
+        return CacheControl.maxAge(booksMaxAge).cachePublic();
+    }
 }
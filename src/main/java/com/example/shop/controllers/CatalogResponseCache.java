@@ -0,0 +1,173 @@
+package com.example.shop.controllers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.context.request.WebRequest;
+
+import com.example.shop.dtos.ApiResponse;
+import com.example.shop.services.CatalogVersion;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+/**
+ * Catalog list responses kept as the bytes sent to clients, plain and gzip-compressed, per
+ * endpoint and parameters. An entry is reused while the catalog version it was built for is
+ * current, so a repeat request is answered by copying bytes to the response: the catalog is not
+ * read, serialized or compressed again until it changes.
+ *
+ * Responses carry the catalog version as a strong ETag, with a -gzip suffix on the compressed
+ * representation, and a client whose copy is still current gets a 304. Pre-compressed responses
+ * are sent with Content-Encoding set, which Tomcat's own compression leaves alone.
+ */
+@Component
+public class CatalogResponseCache {
+
+    private static final String GZIP = "gzip";
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Cache<String, Payload> payloads;
+
+    // Payloads being built, by key and catalog version, so concurrent misses share one build
+    private final ConcurrentMap<String, CompletableFuture<Payload>> building = new ConcurrentHashMap<>();
+
+    // Bounded by the bytes held; entries are replaced in place when the catalog changes
+    @Autowired
+    public CatalogResponseCache(@Value("${shop.http.payload-cache.max-size:64MB}") DataSize maxSize,
+            MeterRegistry meterRegistry) {
+        payloads = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .weigher((String key, Payload payload) -> payload.json().length + payload.gzip().length)
+                .recordStats()
+                .build();
+        // The tag keys of the Spring cache meters: Prometheus drops meters of one name with other keys
+        CaffeineCacheMetrics.monitor(meterRegistry, payloads, "catalogPayloads",
+                "cache.manager", "catalogResponseCache", "name", "catalogPayloads");
+    }
+
+    /**
+     * Responds to request with the cached payload for key, or a 304, tagged with the catalog version
+     * of scope. body is only called when there is no payload for the current catalog version yet;
+     * concurrent requests for the same key wait for that one call instead of each building the
+     * payload, and the build holds no lock of the cache, so other keys are served meanwhile.
+     */
+    public ResponseEntity<byte[]> respond(String key, CatalogVersion.Scope scope, WebRequest request,
+            CacheControl cacheControl, Supplier<ApiResponse<?>> body) {
+        // Read before the catalog: a write racing the build then only makes the payload look older
+        String version = catalogVersion.etag(scope);
+        boolean gzip = acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String etag = gzip ? version.substring(0, version.length() - 1) + "-" + GZIP + "\"" : version;
+        if (request.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(etag).cacheControl(cacheControl).varyBy(HttpHeaders.ACCEPT_ENCODING).build();
+        }
+
+        Payload payload = payloads.getIfPresent(key);
+        if (payload == null || !payload.version().equals(version)) {
+            payload = build(key, version, body);
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .contentType(MediaType.APPLICATION_JSON);
+        if (gzip) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, GZIP).body(payload.gzip());
+        }
+        return response.body(payload.json());
+    }
+
+    // Builds the payload and caches it, or waits for the request already building it
+    private Payload build(String key, String version, Supplier<ApiResponse<?>> body) {
+        CompletableFuture<Payload> mine = new CompletableFuture<>();
+        CompletableFuture<Payload> pending = building.putIfAbsent(key + " " + version, mine);
+        if (pending != null) {
+            try {
+                return pending.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(body.get());
+            Payload payload = new Payload(version, json, gzip(json));
+            payloads.put(key, payload);
+            mine.complete(payload);
+            return payload;
+        } catch (IOException e) {
+            mine.completeExceptionally(new UncheckedIOException(e));
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            building.remove(key + " " + version, mine);
+        }
+    }
+
+    static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    // Whether gzip, or any coding via *, is listed without q=0; an explicit gzip entry wins
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            boolean accepted = true;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=")) {
+                    try {
+                        accepted = Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        accepted = true;
+                    }
+                }
+            }
+            if (name.equalsIgnoreCase(GZIP)) {
+                return accepted;
+            }
+            if (name.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    record Payload(String version, byte[] json, byte[] gzip) {
+    }
+}
@@ -1,8 +1,11 @@
 package com.example.shop.controllers;
 
+import java.time.Duration;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
@@ -15,10 +18,12 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 import com.example.shop.dtos.ApiResponse;
 import com.example.shop.dtos.CategoryDTO;
 import com.example.shop.models.Category;
+import com.example.shop.services.CatalogVersion;
 import com.example.shop.services.CategoryService;
 
 import jakarta.validation.Valid;
@@ -31,11 +36,19 @@ public class CategoryController {
     @Autowired
     private CategoryService categoryService;
     
+    @Autowired
+    private CatalogResponseCache catalogResponseCache;
+    
+    // How long clients may reuse the category list before revalidating it against its ETag
+    @Value("${shop.http.cache.categories-max-age:PT5M}")
+    private Duration categoriesMaxAge;
+    
+    // Sent from bytes cached for the current catalog version, or a 304 while the client's copy is current
     @GetMapping
-    public ResponseEntity<ApiResponse<List<CategoryDTO>>> getAllCategories() {
+    public ResponseEntity<?> getAllCategories(WebRequest request) {
         try {
-            List<CategoryDTO> categories = categoryService.getAllCategories();
-            return ResponseEntity.ok(ApiResponse.success(categories, "Categories retrieved successfully"));
+            return catalogResponseCache.respond("categories", CatalogVersion.Scope.CATEGORIES, request, CacheControl.maxAge(categoriesMaxAge).cachePublic(),
+                    () -> ApiResponse.success(categoryService.getAllCategories(), "Categories retrieved successfully"));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Failed to retrieve categories: " + e.getMessage()));
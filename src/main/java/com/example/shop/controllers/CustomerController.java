@@ -4,6 +4,8 @@ import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
@@ -16,11 +18,14 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.example.shop.dtos.ApiResponse;
+import com.example.shop.dtos.CursorSlice;
 import com.example.shop.dtos.CustomerDTO;
 import com.example.shop.dtos.SearchRequest;
 import com.example.shop.models.Customer;
+import com.example.shop.services.ExportFormat;
 import com.example.shop.services.CustomerService;
 
 import jakarta.validation.Valid;
@@ -44,6 +49,23 @@ public class CustomerController {
         }
     }
     
+    // Streams every active customer as NDJSON or CSV, row by row, however many there are
+    @GetMapping("/export")
+    public ResponseEntity<?> exportCustomers(@RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.fromParameter(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+        StreamingResponseBody body = out -> customerService.exportCustomers(out, exportFormat);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(exportFormat.fileName("customers")).build().toString())
+                .body(body);
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<CustomerDTO>> getCustomerById(@PathVariable Long id) {
         try {
@@ -106,7 +128,7 @@ public class CustomerController {
     }
     
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse<Page<CustomerDTO>>> searchCustomers(
+    public ResponseEntity<ApiResponse<?>> searchCustomers(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String email,
             @RequestParam(required = false) String phone,
@@ -114,7 +136,8 @@ public class CustomerController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "id") String sortBy,
-            @RequestParam(defaultValue = "ASC") String sortDirection) {
+            @RequestParam(defaultValue = "ASC") String sortDirection,
+            @RequestParam(required = false) String cursor) {
         try {
             SearchRequest searchRequest = SearchRequest.builder()
                     .name(name)
@@ -125,10 +148,17 @@ public class CustomerController {
                     .size(size)
                     .sortBy(sortBy)
                     .sortDirection(sortDirection)
+                    .cursor(cursor)
                     .build();
             
+            if (cursor != null) {
+                CursorSlice<CustomerDTO> customers = customerService.searchCustomersAfter(searchRequest);
+                return ResponseEntity.ok(ApiResponse.success(customers, "Search completed successfully"));
+            }
             Page<CustomerDTO> customers = customerService.searchCustomers(searchRequest);
             return ResponseEntity.ok(ApiResponse.success(customers, "Search completed successfully"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Search failed: " + e.getMessage()));
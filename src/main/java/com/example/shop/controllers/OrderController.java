@@ -6,6 +6,8 @@ import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
@@ -15,15 +17,21 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.example.shop.dtos.ApiResponse;
 import com.example.shop.dtos.CreateOrderRequest;
+import com.example.shop.dtos.CursorSlice;
+import com.example.shop.dtos.MonthlySalesDTO;
 import com.example.shop.dtos.OrderDTO;
 import com.example.shop.dtos.SearchRequest;
 import com.example.shop.models.Order;
+import com.example.shop.services.ExportFormat;
+import com.example.shop.services.IdempotencyService;
 import com.example.shop.services.OrderService;
 
 import jakarta.validation.Valid;
@@ -33,9 +41,14 @@ import jakarta.validation.Valid;
 @Validated
 public class OrderController {
     
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    
     @Autowired
     private OrderService orderService;
     
+    @Autowired
+    private IdempotencyService idempotencyService;
+    
     @GetMapping
     public ResponseEntity<ApiResponse<List<OrderDTO>>> getAllOrders() {
         try {
@@ -47,6 +60,23 @@ public class OrderController {
         }
     }
     
+    // Streams every order as NDJSON or CSV, row by row, however many there are
+    @GetMapping("/export")
+    public ResponseEntity<?> exportOrders(@RequestParam(defaultValue = "ndjson") String format) {
+        ExportFormat exportFormat;
+        try {
+            exportFormat = ExportFormat.fromParameter(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+        StreamingResponseBody body = out -> orderService.exportOrders(out, exportFormat);
+        return ResponseEntity.ok()
+                .contentType(exportFormat.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(exportFormat.fileName("orders")).build().toString())
+                .body(body);
+    }
+    
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<OrderDTO>> getOrderById(@PathVariable Long id) {
         try {
@@ -107,7 +137,7 @@ public class OrderController {
     }
     
     @GetMapping("/search")
-    public ResponseEntity<ApiResponse<Page<OrderDTO>>> searchOrders(
+    public ResponseEntity<ApiResponse<?>> searchOrders(
             @RequestParam(required = false) String orderNumber,
             @RequestParam(required = false) Long customerId,
             @RequestParam(required = false) Order.OrderStatus orderStatus,
@@ -116,7 +146,8 @@ public class OrderController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "orderDate") String sortBy,
-            @RequestParam(defaultValue = "DESC") String sortDirection) {
+            @RequestParam(defaultValue = "DESC") String sortDirection,
+            @RequestParam(required = false) String cursor) {
         try {
             SearchRequest searchRequest = SearchRequest.builder()
                     .orderNumber(orderNumber)
@@ -128,10 +159,17 @@ public class OrderController {
                     .size(size)
                     .sortBy(sortBy)
                     .sortDirection(sortDirection)
+                    .cursor(cursor)
                     .build();
             
+            if (cursor != null) {
+                CursorSlice<OrderDTO> orders = orderService.searchOrdersAfter(searchRequest);
+                return ResponseEntity.ok(ApiResponse.success(orders, "Search completed successfully"));
+            }
             Page<OrderDTO> orders = orderService.searchOrders(searchRequest);
             return ResponseEntity.ok(ApiResponse.success(orders, "Search completed successfully"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(ApiResponse.error("Search failed: " + e.getMessage()));
@@ -139,11 +177,23 @@ public class OrderController {
     }
     
     @PostMapping
-    public ResponseEntity<ApiResponse<OrderDTO>> createOrder(@Valid @RequestBody CreateOrderRequest request) {
+    public ResponseEntity<ApiResponse<OrderDTO>> createOrder(
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody CreateOrderRequest request) {
         try {
-            OrderDTO createdOrder = orderService.createOrder(request);
+            // Retries with the same key get the original order back instead of placing it again
+            OrderDTO createdOrder = idempotencyKey == null
+                    ? orderService.createOrder(request)
+                    : idempotencyService.execute(idempotencyKey, request, OrderDTO.class,
+                            () -> orderService.createOrder(request));
             return ResponseEntity.status(HttpStatus.CREATED)
                     .body(ApiResponse.success(createdOrder, "Order created successfully"));
+        } catch (IdempotencyService.KeyInUseException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(e.getMessage()));
+        } catch (IdempotencyService.KeyReusedException e) {
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body(ApiResponse.error(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                     .body(ApiResponse.error("Failed to create order: " + e.getMessage()));
@@ -198,6 +248,17 @@ public class OrderController {
         }
     }
     
+    @GetMapping("/analytics/monthly-sales")
+    public ResponseEntity<ApiResponse<List<MonthlySalesDTO>>> getMonthlySalesReport() {
+        try {
+            List<MonthlySalesDTO> report = orderService.getMonthlySalesReport();
+            return ResponseEntity.ok(ApiResponse.success(report, "Monthly sales report retrieved successfully"));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(ApiResponse.error("Failed to retrieve monthly sales report: " + e.getMessage()));
+        }
+    }
+    
     @GetMapping("/analytics/sales-by-date-range")
     public ResponseEntity<ApiResponse<BigDecimal>> getSalesByDateRange(
             @RequestParam String startDate,
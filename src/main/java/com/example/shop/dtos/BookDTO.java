@@ -14,7 +14,7 @@ import lombok.NoArgsConstructor;
 import com.example.shop.models.Book;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class BookDTO {
@@ -0,0 +1,21 @@
+package com.example.shop.dtos;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// One window of a keyset-paginated search; pass nextCursor back as cursor to get the next one
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorSlice<T> {
+    
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+}
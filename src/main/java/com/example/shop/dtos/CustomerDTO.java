@@ -1,5 +1,7 @@
 package com.example.shop.dtos;
 
+import java.time.LocalDateTime;
+
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Pattern;
@@ -63,4 +65,5 @@ public class CustomerDTO {
     
     private Integer totalOrders = 0;
     private Double totalOrderValue = 0.0;
+    private LocalDateTime lastOrderDate;
 }
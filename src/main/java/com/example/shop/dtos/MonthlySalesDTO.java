@@ -0,0 +1,20 @@
+package com.example.shop.dtos;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class MonthlySalesDTO {
+    
+    private int year;
+    private int month;
+    private BigDecimal totalSales;
+    private long orderCount;
+}
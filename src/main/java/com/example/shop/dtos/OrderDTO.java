@@ -70,4 +70,15 @@ public class OrderDTO {
     
     private List<OrderItemDTO> orderItems;
     private Integer totalItems = 0;
+    
+    // Order without its items, built from query results by OrderRepository's summary queries
+    public OrderDTO(Long id, String orderNumber, Long customerId, String customerName, String customerEmail,
+            String customerPhone, Order.OrderStatus status, BigDecimal totalAmount, BigDecimal discountAmount,
+            BigDecimal finalAmount, LocalDateTime orderDate, LocalDateTime deliveryDate, String deliveryAddress,
+            String deliveryCity, String deliveryState, String deliveryPincode, String contactPhone, String notes,
+            Order.PaymentMethod paymentMethod, Order.PaymentStatus paymentStatus) {
+        this(id, orderNumber, customerId, customerName, customerEmail, customerPhone, status, totalAmount,
+                discountAmount, finalAmount, orderDate, deliveryDate, deliveryAddress, deliveryCity, deliveryState,
+                deliveryPincode, contactPhone, notes, paymentMethod, paymentStatus, null, 0);
+    }
 }
@@ -23,6 +23,10 @@ public class SearchRequest {
     private String sortBy = "id";
     private String sortDirection = "ASC";
     
+    // Keyset pagination: when set (an empty string starts at the beginning) page is ignored
+    // and the search returns a CursorSlice instead of a Page
+    private String cursor;
+    
     // Book search fields
     private String title;
     private String author;
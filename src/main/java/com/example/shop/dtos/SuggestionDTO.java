@@ -0,0 +1,23 @@
+package com.example.shop.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SuggestionDTO {
+    
+    private String text;
+    private SuggestionType type;
+    
+    // Number of active books carrying this title, author or subject
+    private Integer bookCount;
+    
+    public enum SuggestionType {
+        TITLE, AUTHOR, SUBJECT
+    }
+}
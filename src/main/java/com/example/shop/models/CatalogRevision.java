@@ -0,0 +1,29 @@
+package com.example.shop.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.experimental.SuperBuilder;
+
+// Revision of the storefront catalog, counted up by every catalog edit and shared by all instances
+@SuperBuilder
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "catalog_revisions")
+public class CatalogRevision extends BaseClass {
+
+    @Column(nullable = false, unique = true, length = 50)
+    private String name;
+
+    @Builder.Default
+    @Column(nullable = false)
+    private Long revision = 0L;
+}
@@ -1,7 +1,14 @@
 package com.example.shop.models;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -28,6 +35,10 @@ import lombok.experimental.SuperBuilder;
 @AllArgsConstructor
 @Entity
 @Table(name = "customers")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "customers")
+// Updates write only the columns they change, so a cached copy cannot write back stale order statistics
+@DynamicUpdate
 public class Customer extends BaseClass {
     
     @NotBlank(message = "Name is required")
@@ -84,6 +95,19 @@ public class Customer extends BaseClass {
     @Column(name = "is_active")
     private Boolean isActive = true;
     
+    // Order statistics, maintained by OrderService when an order is placed so reading a customer
+    // never has to load its orders. Null until CustomerOrderStatsBackfill has run for the row.
+    @Builder.Default
+    @Column(name = "order_count")
+    private Integer orderCount = 0;
+    
+    @Builder.Default
+    @Column(name = "lifetime_value", precision = 12, scale = 2)
+    private BigDecimal lifetimeValue = BigDecimal.ZERO;
+    
+    @Column(name = "last_order_date")
+    private LocalDateTime lastOrderDate;
+    
     @OneToMany(mappedBy = "customer", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<Order> orders;
     
@@ -10,6 +10,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
 import jakarta.persistence.Enumerated;
 import jakarta.persistence.FetchType;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
@@ -30,7 +31,8 @@ import lombok.experimental.SuperBuilder;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "orders")
+// Order lists default to newest first; the id column makes it usable for keyset (cursor) paging
+@Table(name = "orders", indexes = @Index(name = "idx_orders_order_date_id", columnList = "order_date, id"))
 public class Order extends BaseClass {
    
     @NotNull(message = "Order number is required")
@@ -63,7 +65,7 @@ public class Order extends BaseClass {
     @Column(name = "final_amount", nullable = false, precision = 10, scale = 2)
     private BigDecimal finalAmount;
     
-    @Column(name = "order_date")
+    @Column(name = "order_date", nullable = false)
     private LocalDateTime orderDate;
     
     @Column(name = "delivery_date")
@@ -0,0 +1,28 @@
+package com.example.shop.models;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+// The single row ReplicaLagMonitor stamps on the primary and reads back from the replica. It is
+// written with plain JDBC on each data source, so it has a fixed id and no audit columns
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "replica_heartbeat")
+public class ReplicaHeartbeat {
+
+    @Id
+    private Integer id;
+
+    // Epoch millis of the last stamp
+    @Column(name = "beat_at", nullable = false)
+    private Long beatAt;
+}
@@ -1,19 +1,32 @@
 package com.example.shop.repositories;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.Pageable;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.example.shop.dtos.BookDTO;
 import com.example.shop.models.Book;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book> {
+    
+    // Reads rows straight into BookDTO, without loading entities into the persistence context
+    String BOOK_DTO_SELECT = "SELECT new com.example.shop.dtos.BookDTO(b.id, b.title, b.author, b.description, " +
+           "b.image, b.price, b.mrp, b.discount, b.quantity, b.grade, b.subject, b.board, b.isbn, b.publisher, " +
+           "b.edition, b.language, b.isActive, c.id, c.name) FROM Book b LEFT JOIN b.category c ";
     
     // Find active books
     List<Book> findByIsActiveTrue();
@@ -21,20 +34,14 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     // Find by grade
     List<Book> findByGradeAndIsActiveTrue(Integer grade);
     
-    // Find by subject
-    List<Book> findBySubjectContainingIgnoreCaseAndIsActiveTrue(String subject);
-    
     // Find by board
     List<Book> findByBoardAndIsActiveTrue(Book.Board board);
     
     // Find by category
     List<Book> findByCategoryIdAndIsActiveTrue(Long categoryId);
     
-    // Find by title (search)
-    List<Book> findByTitleContainingIgnoreCaseAndIsActiveTrue(String title);
-    
-    // Find by author (search)
-    List<Book> findByAuthorContainingIgnoreCaseAndIsActiveTrue(String author);
+    // Check if a category still has active books
+    boolean existsByCategoryIdAndIsActiveTrue(Long categoryId);
     
     // Find by ISBN
     Optional<Book> findByIsbnAndIsActiveTrue(String isbn);
@@ -42,29 +49,57 @@ public interface BookRepository extends JpaRepository<Book, Long> {
     // Find books with low stock
     List<Book> findByQuantityLessThanAndIsActiveTrue(Integer threshold);
     
-    // Search books with multiple criteria
-    @Query("SELECT b FROM Book b WHERE " +
-           "(:title IS NULL OR LOWER(b.title) LIKE LOWER(CONCAT('%', :title, '%'))) AND " +
-           "(:author IS NULL OR LOWER(b.author) LIKE LOWER(CONCAT('%', :author, '%'))) AND " +
-           "(:grade IS NULL OR b.grade = :grade) AND " +
-           "(:subject IS NULL OR LOWER(b.subject) LIKE LOWER(CONCAT('%', :subject, '%'))) AND " +
-           "(:board IS NULL OR b.board = :board) AND " +
-           "b.isActive = true")
-    Page<Book> searchBooks(@Param("title") String title,
-                          @Param("author") String author, 
-                          @Param("grade") Integer grade,
-                          @Param("subject") String subject,
-                          @Param("board") Book.Board board,
-                          Pageable pageable);
+    // Find books by id as DTOs, active or not
+    @Query(BOOK_DTO_SELECT + "WHERE b.id IN :ids")
+    List<BookDTO> findDTOsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Find a book by id as a DTO, active or not
+    @Query(BOOK_DTO_SELECT + "WHERE b.id = :id")
+    Optional<BookDTO> findDTOById(@Param("id") Long id);
+    
+    // Find an active book by ISBN as a DTO
+    @Query(BOOK_DTO_SELECT + "WHERE b.isbn = :isbn AND b.isActive = true")
+    Optional<BookDTO> findActiveDTOByIsbn(@Param("isbn") String isbn);
+    
+    // Find active books with low stock as DTOs
+    @Query(BOOK_DTO_SELECT + "WHERE b.quantity < :threshold AND b.isActive = true")
+    List<BookDTO> findLowStockDTOs(@Param("threshold") Integer threshold);
     
     // Count books by grade
     @Query("SELECT b.grade, COUNT(b) FROM Book b WHERE b.isActive = true GROUP BY b.grade")
     List<Object[]> countBooksByGrade();
     
-    // Find bestsellers (most ordered books)
-    @Query("SELECT b FROM Book b JOIN OrderItem oi ON b.id = oi.book.id " +
-           "WHERE b.isActive = true " +
-           "GROUP BY b.id " +
-           "ORDER BY SUM(oi.quantity) DESC")
-    List<Book> findBestSellingBooks(Pageable pageable);
+    // When any book last changed, stock changes from orders included
+    @Query("SELECT MAX(b.updatedAt) FROM Book b")
+    Optional<LocalDateTime> findLastUpdatedAt();
+    
+    // Atomically reduce stock; matches no row when the book does not have enough stock. Native, with
+    // a query space of its own: a JPQL update would drop every cached book on each order line. The
+    // caller evicts the one book, and no cached query filters on quantity
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "book_stock"))
+    @Query(value = "UPDATE books SET quantity = quantity - :quantity, updated_at = CURRENT_TIMESTAMP " +
+           "WHERE id = :id AND quantity >= :quantity",
+           nativeQuery = true)
+    int decrementStock(@Param("id") Long id, @Param("quantity") Integer quantity);
+    
+    // Stock as the database has it now, not as a loaded or cached entity last saw it
+    @Query("SELECT b.quantity FROM Book b WHERE b.id = :id")
+    Optional<Integer> findQuantityById(@Param("id") Long id);
+    
+    // Atomically add stock back (e.g. for cancelled orders); same query space as decrementStock
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "book_stock"))
+    @Query(value = "UPDATE books SET quantity = quantity + :quantity, updated_at = CURRENT_TIMESTAMP " +
+           "WHERE id = :id",
+           nativeQuery = true)
+    int incrementStock(@Param("id") Long id, @Param("quantity") Integer quantity);
+    
+    // Active books with their category, read in fetch-size chunks for the export
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT b FROM Book b LEFT JOIN FETCH b.category WHERE b.isActive = true ORDER BY b.id")
+    Stream<Book> streamActiveForExport();
 }
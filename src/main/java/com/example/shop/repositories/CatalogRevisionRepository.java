@@ -0,0 +1,40 @@
+package com.example.shop.repositories;
+
+import java.util.Optional;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.shop.models.CatalogRevision;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface CatalogRevisionRepository extends JpaRepository<CatalogRevision, Long> {
+
+    // Find one revision counter
+    Optional<CatalogRevision> findByName(String name);
+
+    // Find one revision counter and lock it until the caller's transaction ends, so concurrent
+    // edits count it up one after another
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM CatalogRevision r WHERE r.name = :name")
+    Optional<CatalogRevision> findByNameForUpdate(@Param("name") String name);
+
+    // Create a counter at revision 0 unless it exists; a concurrent insert waits and then does nothing.
+    // Declares the table it writes; otherwise Hibernate clears the whole second-level cache
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "catalog_revisions"))
+    @Query(value = "INSERT INTO catalog_revisions (id, name, revision, created_at, updated_at) " +
+                   "VALUES (nextval('catalog_revisions_seq'), :name, 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP) " +
+                   "ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int createIfAbsent(@Param("name") String name);
+}
@@ -4,25 +4,32 @@ package com.example.shop.repositories;
 import java.util.List;
 import java.util.Optional;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import com.example.shop.models.Category;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, Long> {
     
-    // Find active categories
+    // Find active categories; the ids are kept in the query cache until a category is written
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Category> findByIsActiveTrue();
     
-    // Find by category type
+    // Find by category type (query cache)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Category> findByCategoryTypeAndIsActiveTrue(Category.CategoryType categoryType);
     
-    // Find by name
+    // Find by name (query cache)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Category> findByNameAndIsActiveTrue(String name);
     
-    // Check if name exists (for unique validation)
+    // Check if name exists (for unique validation); not cached, it must see other instances' writes
     boolean existsByNameAndIsActiveTrue(String name);
     
     // Find categories with books
@@ -1,27 +1,54 @@
 package com.example.shop.repositories;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.example.shop.dtos.CustomerDTO;
 import com.example.shop.models.Customer;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
-public interface CustomerRepository extends JpaRepository<Customer, Long> {
+public interface CustomerRepository extends JpaRepository<Customer, Long>, JpaSpecificationExecutor<Customer> {
+    
+    // Reads rows straight into CustomerDTO, without loading entities into the persistence context;
+    // statistics not yet backfilled read as zero
+    String CUSTOMER_DTO_SELECT = "SELECT new com.example.shop.dtos.CustomerDTO(c.id, c.name, c.email, c.phone, " +
+           "c.address, c.city, c.state, c.pincode, c.country, c.customerType, c.institutionName, " +
+           "c.contactPerson, c.gstNumber, c.isActive, COALESCE(c.orderCount, 0), " +
+           "CAST(COALESCE(c.lifetimeValue, 0) AS Double), c.lastOrderDate) FROM Customer c ";
+    
+    // Search criteria, shared by searchCustomerDTOs and its count query
+    String CUSTOMER_SEARCH_WHERE = "WHERE " +
+           "(:name IS NULL OR LOWER(c.name) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
+           "(:email IS NULL OR LOWER(c.email) LIKE LOWER(CONCAT('%', :email, '%'))) AND " +
+           "(:phone IS NULL OR c.phone LIKE CONCAT('%', :phone, '%')) AND " +
+           "(:customerType IS NULL OR c.customerType = :customerType) AND " +
+           "c.isActive = true";
     
     // Find active customers
     List<Customer> findByIsActiveTrue();
     
-    // Find by email
+    // Find by email; the id is kept in the query cache until a customer is written
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Customer> findByEmailAndIsActiveTrue(String email);
     
-    // Find by phone
+    // Find by phone (query cache)
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Customer> findByPhoneAndIsActiveTrue(String phone);
     
     // Find by customer type
@@ -30,18 +57,35 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     // Find by city
     List<Customer> findByCityAndIsActiveTrue(String city);
     
-    // Search customers
-    @Query("SELECT c FROM Customer c WHERE " +
-           "(:name IS NULL OR LOWER(c.name) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
-           "(:email IS NULL OR LOWER(c.email) LIKE LOWER(CONCAT('%', :email, '%'))) AND " +
-           "(:phone IS NULL OR c.phone LIKE CONCAT('%', :phone, '%')) AND " +
-           "(:customerType IS NULL OR c.customerType = :customerType) AND " +
-           "c.isActive = true")
-    Page<Customer> searchCustomers(@Param("name") String name,
-                                  @Param("email") String email,
-                                  @Param("phone") String phone,
-                                  @Param("customerType") Customer.CustomerType customerType,
-                                  Pageable pageable);
+    // Search customers as DTOs
+    @Query(value = CUSTOMER_DTO_SELECT + CUSTOMER_SEARCH_WHERE,
+           countQuery = "SELECT COUNT(c) FROM Customer c " + CUSTOMER_SEARCH_WHERE)
+    Page<CustomerDTO> searchCustomerDTOs(@Param("name") String name,
+                                         @Param("email") String email,
+                                         @Param("phone") String phone,
+                                         @Param("customerType") Customer.CustomerType customerType,
+                                         Pageable pageable);
+    
+    // Find active customers as DTOs
+    @Query(CUSTOMER_DTO_SELECT + "WHERE c.isActive = true")
+    List<CustomerDTO> findActiveDTOs();
+    
+    // Find active customers by type as DTOs
+    @Query(CUSTOMER_DTO_SELECT + "WHERE c.customerType = :customerType AND c.isActive = true")
+    List<CustomerDTO> findActiveDTOsByCustomerType(@Param("customerType") Customer.CustomerType customerType);
+    
+    // Find active customers by city as DTOs
+    @Query(CUSTOMER_DTO_SELECT + "WHERE c.city = :city AND c.isActive = true")
+    List<CustomerDTO> findActiveDTOsByCity(@Param("city") String city);
+    
+    // Find active customers with orders as DTOs
+    @Query(CUSTOMER_DTO_SELECT + "WHERE c.isActive = true AND EXISTS (SELECT 1 FROM Order o WHERE o.customer = c)")
+    List<CustomerDTO> findActiveDTOsWithOrders();
+    
+    // Find top customers by order value as DTOs
+    @Query(CUSTOMER_DTO_SELECT + "JOIN c.orders o WHERE c.isActive = true " +
+           "GROUP BY c.id ORDER BY SUM(o.finalAmount) DESC")
+    List<CustomerDTO> findTopDTOsByOrderValue(Pageable pageable);
     
     // Check if email exists
     boolean existsByEmailAndIsActiveTrue(String email);
@@ -61,4 +105,28 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     @Query("SELECT c FROM Customer c JOIN c.orders o WHERE c.isActive = true " +
            "GROUP BY c.id ORDER BY SUM(o.finalAmount) DESC")
     List<Customer> findTopCustomersByOrderValue(Pageable pageable);
+    
+    // Add a placed order to the customer's statistics in one atomic statement; rows not yet
+    // backfilled keep null counters and are picked up by the backfill instead. Native, with a query
+    // space of its own: a JPQL update would drop every cached customer and cached customer query
+    // on each order. The caller evicts the one customer, and no cached query filters on these columns
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "customer_order_stats"))
+    @Query(value = "UPDATE customers SET order_count = order_count + 1, " +
+           "lifetime_value = lifetime_value + :amount, " +
+           "last_order_date = CASE WHEN last_order_date IS NULL OR last_order_date < :orderDate " +
+           "THEN :orderDate ELSE last_order_date END " +
+           "WHERE id = :id",
+           nativeQuery = true)
+    int recordOrder(@Param("id") Long id,
+                    @Param("amount") BigDecimal amount,
+                    @Param("orderDate") LocalDateTime orderDate);
+    
+    // Active customers, read in fetch-size chunks for the export
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT c FROM Customer c WHERE c.isActive = true ORDER BY c.id")
+    Stream<Customer> streamActiveForExport();
 }
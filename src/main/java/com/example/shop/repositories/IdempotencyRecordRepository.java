@@ -0,0 +1,51 @@
+package com.example.shop.repositories;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.shop.models.IdempotencyRecord;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+
+    // Find the record of one key
+    Optional<IdempotencyRecord> findByIdempotencyKey(String idempotencyKey);
+
+    // Store the result of a claim; 0 if the claim was taken over in the meantime
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = 'COMPLETED', r.response = :response, " +
+           "r.expiresAt = :expiresAt, r.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE r.id = :id AND r.status = 'IN_PROGRESS'")
+    int complete(@Param("id") Long id,
+                 @Param("response") String response,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Heartbeat of a running claim, so it is not mistaken for one whose instance died
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.updatedAt = :now WHERE r.id = :id AND r.status = 'IN_PROGRESS'")
+    int refreshClaim(@Param("id") Long id, @Param("now") LocalDateTime now);
+
+    // Give up a claim whose request failed, so the client can retry with the same key
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.status = 'IN_PROGRESS'")
+    int releaseClaim(@Param("id") Long id);
+
+    // Drop one key if it expired, or if its claim is older than staleBefore (the instance holding it died)
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.idempotencyKey = :key AND (r.expiresAt < :now " +
+           "OR (r.status = 'IN_PROGRESS' AND r.updatedAt < :staleBefore))")
+    int deleteIfExpiredOrStale(@Param("key") String key,
+                               @Param("now") LocalDateTime now,
+                               @Param("staleBefore") LocalDateTime staleBefore);
+
+    // Purge every expired key
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -1,5 +1,7 @@
 package com.example.shop.repositories;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -7,6 +9,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.example.shop.dtos.OrderItemDTO;
 import com.example.shop.models.OrderItem;
 
 @Repository
@@ -15,6 +18,17 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     // Find order items by order
     List<OrderItem> findByOrderId(Long orderId);
     
+    // Find order items for a batch of orders, fetching their books in the same query
+    @Query("SELECT oi FROM OrderItem oi JOIN FETCH oi.book WHERE oi.order.id IN :orderIds ORDER BY oi.id")
+    List<OrderItem> findByOrderIdInWithBook(@Param("orderIds") Collection<Long> orderIds);
+    
+    // Order items of a batch of orders as DTOs, with the current details of their books
+    @Query("SELECT new com.example.shop.dtos.OrderItemDTO(oi.id, oi.order.id, b.id, oi.quantity, oi.unitPrice, " +
+           "oi.discountAmount, oi.totalPrice, oi.bookTitle, oi.bookAuthor, oi.bookIsbn, oi.bookGrade, " +
+           "oi.bookSubject, b.title, b.image, b.price, b.quantity) " +
+           "FROM OrderItem oi JOIN oi.book b WHERE oi.order.id IN :orderIds ORDER BY oi.id")
+    List<OrderItemDTO> findDTOsByOrderIdIn(@Param("orderIds") Collection<Long> orderIds);
+    
     // Find order items by book
     List<OrderItem> findByBookId(Long bookId);
     
@@ -33,6 +47,18 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
            "ORDER BY totalSold DESC")
     List<Object[]> findBestSellingBooksWithQuantity();
     
+    // Quantity sold per book, leaving out cancelled orders
+    @Query("SELECT oi.book.id, SUM(oi.quantity) FROM OrderItem oi " +
+           "WHERE oi.order.status <> 'CANCELLED' " +
+           "GROUP BY oi.book.id")
+    List<Object[]> sumQuantitySoldByBook();
+    
+    // Quantity sold per book and order date for orders placed since the given time, leaving out cancelled orders
+    @Query("SELECT oi.book.id, oi.order.orderDate, SUM(oi.quantity) FROM OrderItem oi " +
+           "WHERE oi.order.status <> 'CANCELLED' AND oi.order.orderDate >= :since " +
+           "GROUP BY oi.book.id, oi.order.orderDate")
+    List<Object[]> sumQuantitySoldByBookAndOrderDate(@Param("since") LocalDateTime since);
+    
     // Find order items by grade
     @Query("SELECT oi FROM OrderItem oi WHERE oi.bookGrade = :grade")
     List<OrderItem> findByBookGrade(@Param("grade") Integer grade);
@@ -51,6 +77,6 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
     
     // Find order items in date range
     @Query("SELECT oi FROM OrderItem oi WHERE oi.order.orderDate BETWEEN :startDate AND :endDate")
-    List<OrderItem> findOrderItemsByDateRange(@Param("startDate") java.time.LocalDateTime startDate, 
-                                             @Param("endDate") java.time.LocalDateTime endDate);
+    List<OrderItem> findOrderItemsByDateRange(@Param("startDate") LocalDateTime startDate, 
+                                             @Param("endDate") LocalDateTime endDate);
 }
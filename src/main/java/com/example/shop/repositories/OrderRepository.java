@@ -2,49 +2,93 @@ package com.example.shop.repositories;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.example.shop.dtos.OrderDTO;
 import com.example.shop.models.Order;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, JpaSpecificationExecutor<Order> {
+    
+    // Reads rows straight into OrderDTO summaries with their customer, without loading entities
+    // into the persistence context; the items are added by the caller
+    String ORDER_SUMMARY_SELECT = "SELECT new com.example.shop.dtos.OrderDTO(o.id, o.orderNumber, c.id, c.name, " +
+           "c.email, c.phone, o.status, o.totalAmount, o.discountAmount, o.finalAmount, o.orderDate, " +
+           "o.deliveryDate, o.deliveryAddress, o.deliveryCity, o.deliveryState, o.deliveryPincode, " +
+           "o.contactPhone, o.notes, o.paymentMethod, o.paymentStatus) FROM Order o JOIN o.customer c ";
+    
+    // Search criteria, shared by searchOrderSummaries and its count query
+    String ORDER_SEARCH_WHERE = "WHERE " +
+           "(:orderNumber IS NULL OR o.orderNumber LIKE CONCAT('%', :orderNumber, '%')) AND " +
+           "(:customerId IS NULL OR o.customer.id = :customerId) AND " +
+           "(:status IS NULL OR o.status = :status) AND " +
+           "(:startDate IS NULL OR o.orderDate >= :startDate) AND " +
+           "(:endDate IS NULL OR o.orderDate <= :endDate)";
+    
+    // Find all orders together with their customers
+    @Override
+    @EntityGraph(attributePaths = "customer")
+    List<Order> findAll();
     
     // Find by order number
     Optional<Order> findByOrderNumber(String orderNumber);
     
     // Find orders by customer
+    @EntityGraph(attributePaths = "customer")
     List<Order> findByCustomerIdOrderByOrderDateDesc(Long customerId);
     
     // Find orders by status
+    @EntityGraph(attributePaths = "customer")
     List<Order> findByStatusOrderByOrderDateDesc(Order.OrderStatus status);
     
     // Find orders by date range
     List<Order> findByOrderDateBetweenOrderByOrderDateDesc(LocalDateTime startDate, LocalDateTime endDate);
     
     // Find recent orders
+    @EntityGraph(attributePaths = "customer")
     List<Order> findTop10ByOrderByOrderDateDesc();
     
-    // Search orders
-    @Query("SELECT o FROM Order o WHERE " +
-           "(:orderNumber IS NULL OR o.orderNumber LIKE CONCAT('%', :orderNumber, '%')) AND " +
-           "(:customerId IS NULL OR o.customer.id = :customerId) AND " +
-           "(:status IS NULL OR o.status = :status) AND " +
-           "(:startDate IS NULL OR o.orderDate >= :startDate) AND " +
-           "(:endDate IS NULL OR o.orderDate <= :endDate)")
-    Page<Order> searchOrders(@Param("orderNumber") String orderNumber,
-                            @Param("customerId") Long customerId,
-                            @Param("status") Order.OrderStatus status,
-                            @Param("startDate") LocalDateTime startDate,
-                            @Param("endDate") LocalDateTime endDate,
-                            Pageable pageable);
+    // Search order summaries
+    @Query(value = ORDER_SUMMARY_SELECT + ORDER_SEARCH_WHERE,
+           countQuery = "SELECT COUNT(o) FROM Order o " + ORDER_SEARCH_WHERE)
+    Page<OrderDTO> searchOrderSummaries(@Param("orderNumber") String orderNumber,
+                                        @Param("customerId") Long customerId,
+                                        @Param("status") Order.OrderStatus status,
+                                        @Param("startDate") LocalDateTime startDate,
+                                        @Param("endDate") LocalDateTime endDate,
+                                        Pageable pageable);
+    
+    // Find all order summaries
+    @Query(ORDER_SUMMARY_SELECT)
+    List<OrderDTO> findAllSummaries();
+    
+    // Find order summaries by customer, newest first
+    @Query(ORDER_SUMMARY_SELECT + "WHERE c.id = :customerId ORDER BY o.orderDate DESC")
+    List<OrderDTO> findSummariesByCustomerId(@Param("customerId") Long customerId);
+    
+    // Find order summaries by status, newest first
+    @Query(ORDER_SUMMARY_SELECT + "WHERE o.status = :status ORDER BY o.orderDate DESC")
+    List<OrderDTO> findSummariesByStatus(@Param("status") Order.OrderStatus status);
+    
+    // Find the most recent order summaries, as many as the page asks for
+    @Query(ORDER_SUMMARY_SELECT + "ORDER BY o.orderDate DESC")
+    List<OrderDTO> findRecentSummaries(Pageable pageable);
     
     // Count orders by status
     @Query("SELECT o.status, COUNT(o) FROM Order o GROUP BY o.status")
@@ -68,6 +112,24 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
            "ORDER BY YEAR(o.orderDate) DESC, MONTH(o.orderDate) DESC")
     List<Object[]> getMonthlySalesReport();
     
+    // Order count and revenue per day and status, for rebuilding the sales rollup
+    @Query("SELECT CAST(o.orderDate AS LocalDate), o.status, COUNT(o), SUM(o.finalAmount) " +
+           "FROM Order o WHERE o.orderDate IS NOT NULL " +
+           "GROUP BY CAST(o.orderDate AS LocalDate), o.status")
+    List<Object[]> sumOrdersByDayAndStatus();
+    
+    // Current status of each of the given orders that exists
+    @Query("SELECT o.id, o.status FROM Order o WHERE o.id IN :ids")
+    List<Object[]> findStatusesByIdIn(@Param("ids") Collection<Long> ids);
+    
     // Check if order number exists
     boolean existsByOrderNumber(String orderNumber);
+    
+    // Every order with its customer, read in fetch-size chunks for the export
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT o FROM Order o JOIN FETCH o.customer ORDER BY o.id")
+    Stream<Order> streamAllForExport();
 }
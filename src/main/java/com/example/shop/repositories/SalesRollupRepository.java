@@ -0,0 +1,75 @@
+package com.example.shop.repositories;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.example.shop.models.Order;
+import com.example.shop.models.SalesRollup;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+
+@Repository
+public interface SalesRollupRepository extends JpaRepository<SalesRollup, Long> {
+
+    // Atomically add to one bucket; matches no row when the bucket does not exist yet
+    @Modifying
+    @Query("UPDATE SalesRollup r SET r.orderCount = r.orderCount + :orders, r.revenue = r.revenue + :revenue, " +
+           "r.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE r.granularity = :granularity AND r.bucketStart = :bucketStart AND r.status = :status")
+    int addToBucket(@Param("granularity") SalesRollup.Granularity granularity,
+                    @Param("bucketStart") LocalDate bucketStart,
+                    @Param("status") Order.OrderStatus status,
+                    @Param("orders") long orders,
+                    @Param("revenue") BigDecimal revenue);
+
+    // Create an empty bucket unless it exists. A concurrent insert of the same bucket waits for the
+    // other transaction and then does nothing, so this stays inside the caller's transaction.
+    // Declares the table it writes; otherwise Hibernate clears the whole second-level cache
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "sales_rollups"))
+    @Query(value = "INSERT INTO sales_rollups (id, granularity, bucket_start, status, order_count, revenue, " +
+                   "created_at, updated_at) VALUES (nextval('sales_rollups_seq'), :granularity, :bucketStart, " +
+                   ":status, 0, 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP) ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int createBucketIfAbsent(@Param("granularity") String granularity,
+                             @Param("bucketStart") LocalDate bucketStart,
+                             @Param("status") String status);
+
+    // Revenue of all buckets of one granularity with the given statuses
+    @Query("SELECT COALESCE(SUM(r.revenue), 0) FROM SalesRollup r " +
+           "WHERE r.granularity = :granularity AND r.status IN :statuses")
+    BigDecimal sumRevenue(@Param("granularity") SalesRollup.Granularity granularity,
+                          @Param("statuses") Collection<Order.OrderStatus> statuses);
+
+    // Revenue of the buckets starting in [from, to)
+    @Query("SELECT COALESCE(SUM(r.revenue), 0) FROM SalesRollup r " +
+           "WHERE r.granularity = :granularity AND r.status IN :statuses " +
+           "AND r.bucketStart >= :from AND r.bucketStart < :to")
+    BigDecimal sumRevenueBetween(@Param("granularity") SalesRollup.Granularity granularity,
+                                 @Param("statuses") Collection<Order.OrderStatus> statuses,
+                                 @Param("from") LocalDate from,
+                                 @Param("to") LocalDate to);
+
+    // Monthly sales report, newest month first
+    @Query("SELECT r.bucketStart, SUM(r.revenue), SUM(r.orderCount) FROM SalesRollup r " +
+           "WHERE r.granularity = 'MONTH' AND r.status IN :statuses " +
+           "GROUP BY r.bucketStart HAVING SUM(r.orderCount) > 0 ORDER BY r.bucketStart DESC")
+    List<Object[]> getMonthlySalesReport(@Param("statuses") Collection<Order.OrderStatus> statuses);
+
+    // Lock every bucket so no order can change them while they are being reconciled
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM SalesRollup r")
+    List<SalesRollup> findAllForUpdate();
+}
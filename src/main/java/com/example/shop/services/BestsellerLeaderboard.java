@@ -0,0 +1,273 @@
+package com.example.shop.services;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shop.models.Book;
+import com.example.shop.models.Order;
+import com.example.shop.repositories.OrderItemRepository;
+import com.example.shop.repositories.OrderRepository;
+
+/**
+ * Live bestseller ranking, replacing a GROUP BY over all order items on every request.
+ *
+ * The catalog is small enough to count every book exactly, so there is no sketch: each book
+ * keeps its all-time quantity plus a ring of daily quantities for the last 30 days, and a
+ * ranking walks the counters with a bounded heap. Grade and board slices are checked against
+ * the {@link CatalogIndex}, which also drops inactive books.
+ *
+ * Counters change when OrderService places or cancels an order, once that transaction commits,
+ * and are rebuilt from order_items at startup and periodically to pick up other instances.
+ * A change that committed just before a rebuild read the database can reach onBooksSold after
+ * the rebuild, so the rebuild notes which in-flight orders its snapshot already saw and those
+ * changes are not counted twice.
+ *
+ * Days are the days of the injected clock's zone, UTC. Order dates are stored in the host's
+ * local time like every other timestamp, so each one is converted before it picks a day; the
+ * rebuild therefore reads per order date rather than letting the database group by day.
+ */
+@Component
+public class BestsellerLeaderboard {
+
+    private static final Logger log = LoggerFactory.getLogger(BestsellerLeaderboard.class);
+
+    // Longest sliding window; also the number of daily counters per book
+    private static final int DAYS_KEPT = 30;
+
+    public enum Period {
+        ALL_TIME(0), LAST_7_DAYS(7), LAST_30_DAYS(30);
+
+        private final int days;
+
+        Period(int days) {
+            this.days = days;
+        }
+    }
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private CatalogIndex catalogIndex;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private Clock clock;
+
+    // Serializes rebuilds with live updates; a lock so the JDBC reads in rebuild never pin a virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile Map<Long, BookSales> sales;
+
+    // Orders whose change has been published but not yet applied, from just before their commit
+    private final Set<Long> pendingOrders = ConcurrentHashMap.newKeySet();
+
+    // Status the last rebuild saw each then-pending order in; guarded by lock
+    private Map<Long, Order.OrderStatus> rebuiltOrders = Map.of();
+
+    // Ids of the best selling active books in the period, most sold first; null grade or board means any
+    public List<Long> top(int limit, Period period, Integer grade, Book.Board board) {
+        long today = LocalDate.now(clock).toEpochDay();
+        PriorityQueue<Ranked> best = new PriorityQueue<>(Comparator.comparingLong(Ranked::sold)
+                .thenComparing(Ranked::bookId, Comparator.reverseOrder()));
+
+        for (Map.Entry<Long, BookSales> entry : sales().entrySet()) {
+            long sold = entry.getValue().sold(period, today);
+            if (sold <= 0 || !catalogIndex.matches(entry.getKey(), grade, board)) {
+                continue;
+            }
+            Ranked candidate = new Ranked(entry.getKey(), sold);
+            if (best.size() < limit) {
+                best.add(candidate);
+            } else if (best.comparator().compare(candidate, best.peek()) > 0) {
+                best.poll();
+                best.add(candidate);
+            }
+        }
+
+        List<Long> ids = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            ids.add(best.poll().bookId());
+        }
+        Collections.reverse(ids);
+        return ids;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${shop.bestsellers.rebuild-interval:PT10M}",
+               fixedDelayString = "${shop.bestsellers.rebuild-interval:PT10M}")
+    public void rebuild() {
+        lock.lock();
+        try {
+            long startedAt = System.nanoTime();
+            LocalDateTime since = LocalDate.now(clock).minusDays(DAYS_KEPT - 1).atStartOfDay(clock.getZone())
+                    .withZoneSameInstant(ZoneId.systemDefault()).toLocalDateTime();
+            Map<Long, BookSales> rebuilt = new ConcurrentHashMap<>();
+            Map<Long, Order.OrderStatus> seen = new HashMap<>();
+
+            // One snapshot for all reads, so the pending orders are checked against the same data the counts come from
+            TransactionTemplate snapshot = new TransactionTemplate(transactionManager);
+            snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+            snapshot.executeWithoutResult(status -> {
+                for (Object[] row : orderItemRepository.sumQuantitySoldByBook()) {
+                    rebuilt.computeIfAbsent((Long) row[0], id -> new BookSales()).addAllTime(((Number) row[1]).longValue());
+                }
+                // Taken once the snapshot exists: an order registered later commits after it, so the snapshot
+                // cannot contain it, and one registered earlier is still here because applying it needs the lock
+                Set<Long> pending = new HashSet<>(pendingOrders);
+                for (Object[] row : orderItemRepository.sumQuantitySoldByBookAndOrderDate(since)) {
+                    rebuilt.computeIfAbsent((Long) row[0], id -> new BookSales())
+                            .addDay(day((LocalDateTime) row[1]), ((Number) row[2]).longValue());
+                }
+                if (!pending.isEmpty()) {
+                    for (Object[] row : orderRepository.findStatusesByIdIn(pending)) {
+                        seen.put((Long) row[0], (Order.OrderStatus) row[1]);
+                    }
+                }
+            });
+            sales = rebuilt;
+            rebuiltOrders = seen;
+            log.debug("Bestseller leaderboard rebuilt with {} books in {} ms",
+                    rebuilt.size(), (System.nanoTime() - startedAt) / 1_000_000);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void onBooksSoldCommitting(BooksSoldEvent event) {
+        pendingOrders.add(event.getOrderId());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_ROLLBACK)
+    public void onBooksSoldRolledBack(BooksSoldEvent event) {
+        pendingOrders.remove(event.getOrderId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBooksSold(BooksSoldEvent event) {
+        lock.lock();
+        try {
+            Map<Long, BookSales> current = sales();
+            pendingOrders.remove(event.getOrderId());
+            if (rebuiltFrom(event)) {
+                return;
+            }
+            long day = day(event.getOrderDate());
+            event.getQuantities().forEach((bookId, quantity) -> {
+                BookSales bookSales = current.computeIfAbsent(bookId, id -> new BookSales());
+                bookSales.addAllTime(quantity);
+                bookSales.addDay(day, quantity);
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The day, in the clock's zone, of an order date stored in host-local time
+    private long day(LocalDateTime orderDate) {
+        return orderDate.atZone(ZoneId.systemDefault()).withZoneSameInstant(clock.getZone()).toLocalDate().toEpochDay();
+    }
+
+    // Whether the last rebuild's snapshot already had the order in the state this change left it in
+    private boolean rebuiltFrom(BooksSoldEvent event) {
+        Order.OrderStatus seen = rebuiltOrders.get(event.getOrderId());
+        if (seen == null) {
+            return false;
+        }
+        rebuiltOrders.remove(event.getOrderId());
+        return (seen == Order.OrderStatus.CANCELLED) == (event.getOrderStatus() == Order.OrderStatus.CANCELLED);
+    }
+
+    private Map<Long, BookSales> sales() {
+        Map<Long, BookSales> current = sales;
+        if (current == null) {
+            lock.lock();
+            try {
+                if (sales == null) {
+                    rebuild();
+                }
+                current = sales;
+            } finally {
+                lock.unlock();
+            }
+        }
+        return current;
+    }
+
+    private record Ranked(Long bookId, long sold) {
+    }
+
+    // Quantities of one book; daily counters form a ring indexed by epoch day
+    static final class BookSales {
+
+        private long allTime;
+        private final long[] daily = new long[DAYS_KEPT];
+        private final long[] slotDay = new long[DAYS_KEPT];
+
+        synchronized void addAllTime(long quantity) {
+            allTime += quantity;
+        }
+
+        synchronized void addDay(long epochDay, long quantity) {
+            int slot = (int) Math.floorMod(epochDay, (long) DAYS_KEPT);
+            if (slotDay[slot] != epochDay) {
+                if (slotDay[slot] > epochDay) {
+                    // Older than every day still kept
+                    return;
+                }
+                slotDay[slot] = epochDay;
+                daily[slot] = 0;
+            }
+            daily[slot] += quantity;
+        }
+
+        synchronized long sold(Period period, long today) {
+            if (period == Period.ALL_TIME) {
+                return allTime;
+            }
+            long sold = 0;
+            for (int slot = 0; slot < DAYS_KEPT; slot++) {
+                if (slotDay[slot] > today - period.days && slotDay[slot] <= today) {
+                    sold += daily[slot];
+                }
+            }
+            return sold;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.shop.services;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.shop.dtos.BookDTO;
+
+/**
+ * In-memory copy of the books served by the catalog read paths, keyed by book id.
+ *
+ * Which books a list contains comes from {@link CatalogIndex}; the books themselves are resolved
+ * through this cache, so a stock or price change only has to evict the one book it touched.
+ *
+ * Evictions run immediately and again once the surrounding transaction has completed. Every
+ * eviction takes the next value of a generation counter, and loads that started before an
+ * eviction of their book are not put into the cache, so a reader that raced a writer can never
+ * store the pre-commit row. Evictions are tracked per stripe of book ids, not globally: a stock
+ * change on every order line would otherwise discard nearly every concurrent cache fill.
+ */
+@Component
+public class BookCatalogCache {
+
+    public static final String BOOKS_CACHE = "catalogBooks";
+
+    // Power of two; consecutive ids land in different stripes
+    private static final int STRIPES = 4096;
+
+    private final AtomicLong generation = new AtomicLong();
+
+    // Generation of the latest eviction per stripe of book ids, and of the latest clear
+    private final AtomicLongArray evictedAt = new AtomicLongArray(STRIPES);
+    private final AtomicLong clearedAt = new AtomicLong();
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    // Capture before loading from the database and pass to the put methods
+    public long generation() {
+        return generation.get();
+    }
+
+    // Returns a copy so callers can never change the cached instance
+    public Optional<BookDTO> getBook(Long id) {
+        BookDTO cached = booksCache().get(id, BookDTO.class);
+        return Optional.ofNullable(cached).map(book -> book.toBuilder().build());
+    }
+
+    public void putBook(BookDTO book, long loadedAtGeneration) {
+        if (clearedAt.get() <= loadedAtGeneration
+                && evictedAt.get(stripe(book.getId())) <= loadedAtGeneration) {
+            booksCache().put(book.getId(), book.toBuilder().build());
+        }
+    }
+
+    public void evictBook(Long id) {
+        evict(() -> {
+            evictedAt.accumulateAndGet(stripe(id), generation.incrementAndGet(), Math::max);
+            booksCache().evict(id);
+        });
+    }
+
+    // Used when something every cached book carries changes, e.g. a category name
+    public void evictAllBooks() {
+        evict(() -> {
+            clearedAt.accumulateAndGet(generation.incrementAndGet(), Math::max);
+            booksCache().clear();
+        });
+    }
+
+    private void evict(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    eviction.run();
+                }
+            });
+        }
+    }
+
+    private static int stripe(Long id) {
+        return Long.hashCode(id) & (STRIPES - 1);
+    }
+
+    private Cache booksCache() {
+        return cacheManager.getCache(BOOKS_CACHE);
+    }
+}
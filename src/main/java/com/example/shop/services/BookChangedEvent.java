@@ -0,0 +1,40 @@
+package com.example.shop.services;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import com.example.shop.models.Book;
+
+/**
+ * Published by BookService whenever a book is created, edited or deactivated, carrying the
+ * attributes the catalog and search indexes are keyed on as they are after the change.
+ */
+@Getter
+@AllArgsConstructor
+public class BookChangedEvent {
+    
+    private final Long bookId;
+    private final boolean active;
+    private final Integer grade;
+    private final Book.Board board;
+    private final String subject;
+    private final Long categoryId;
+    private final String title;
+    private final String author;
+    private final String publisher;
+    private final String description;
+    
+    public static BookChangedEvent of(Book book) {
+        return new BookChangedEvent(
+                book.getId(),
+                Boolean.TRUE.equals(book.getIsActive()),
+                book.getGrade(),
+                book.getBoard(),
+                book.getSubject(),
+                book.getCategory() != null ? book.getCategory().getId() : null,
+                book.getTitle(),
+                book.getAuthor(),
+                book.getPublisher(),
+                book.getDescription());
+    }
+}
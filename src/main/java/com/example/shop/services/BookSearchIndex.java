@@ -0,0 +1,369 @@
+package com.example.shop.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shop.models.Book;
+import com.example.shop.repositories.BookRepository;
+
+/**
+ * In-process inverted index over the text of active books, replacing LIKE '%term%' scans.
+ *
+ * Title, author, subject, publisher and description are tokenized into lower-case words and
+ * each field keeps a sorted term dictionary, so every query word is matched as a prefix with a
+ * single range lookup. Matches are ranked with BM25 over field-weighted term frequencies: a hit
+ * in the title counts more than one in the description, and an exact word more than a prefix.
+ *
+ * Like {@link CatalogIndex}, readers use an immutable snapshot and writes swap in a new one
+ * after commit. A change copies the document and length maps, the term dictionary of every field
+ * the book has text in, and the posting lists of its old and new words, so it costs time in
+ * proportion to the catalog and its vocabulary; only the other words' posting lists are shared
+ * with the previous snapshot. Only the changed book is tokenized again.
+ */
+@Component
+public class BookSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSearchIndex.class);
+
+    // Letters, combining marks (Devanagari vowel signs) and digits make up a word
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{M}\\p{N}]+");
+
+    // BM25 saturation and length normalisation
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    // A word that only matches as the start of a longer term scores lower than an exact match
+    private static final double PREFIX_MATCH_WEIGHT = 0.7;
+
+    enum Field {
+        TITLE(3.0), AUTHOR(2.0), SUBJECT(2.0), PUBLISHER(1.0), DESCRIPTION(0.5);
+
+        private final double weight;
+
+        Field(double weight) {
+            this.weight = weight;
+        }
+    }
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Held across the JDBC read of a rebuild, so a lock rather than synchronized (see CatalogIndex)
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Ranks active books against free text over all fields plus optional per-field text.
+     * Every word must match; blank arguments are ignored. Returns ids, best match first.
+     */
+    public List<Long> search(String query, String title, String author, String subject) {
+        Map<Field, String> fieldQueries = new EnumMap<>(Field.class);
+        putIfPresent(fieldQueries, Field.TITLE, title);
+        putIfPresent(fieldQueries, Field.AUTHOR, author);
+        putIfPresent(fieldQueries, Field.SUBJECT, subject);
+        return snapshot().search(query, fieldQueries);
+    }
+
+    public static boolean hasText(String... values) {
+        for (String value : values) {
+            if (!tokenize(value).isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${shop.catalog.index.rebuild-interval:PT5M}",
+               fixedDelayString = "${shop.catalog.index.rebuild-interval:PT5M}")
+    public void rebuild() {
+        lock.lock();
+        try {
+            long startedAt = System.nanoTime();
+            List<SearchDocument> documents = transactionTemplate.execute(status -> bookRepository.findByIsActiveTrue()
+                    .stream()
+                    .map(SearchDocument::of)
+                    .toList());
+            snapshot = Snapshot.of(documents);
+            log.debug("Search index rebuilt with {} books in {} ms",
+                    documents.size(), (System.nanoTime() - startedAt) / 1_000_000);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        lock.lock();
+        try {
+            snapshot = snapshot().with(event.getBookId(), event.isActive() ? SearchDocument.of(event) : null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            lock.lock();
+            try {
+                if (snapshot == null) {
+                    rebuild();
+                }
+                current = snapshot;
+            } finally {
+                lock.unlock();
+            }
+        }
+        return current;
+    }
+
+    private static void putIfPresent(Map<Field, String> fieldQueries, Field field, String text) {
+        if (text != null && !text.isBlank()) {
+            fieldQueries.put(field, text);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    record SearchDocument(Long id, Map<Field, String> text) {
+
+        static SearchDocument of(Book book) {
+            return new SearchDocument(book.getId(), fields(book.getTitle(), book.getAuthor(), book.getSubject(),
+                    book.getPublisher(), book.getDescription()));
+        }
+
+        static SearchDocument of(BookChangedEvent event) {
+            return new SearchDocument(event.getBookId(), fields(event.getTitle(), event.getAuthor(), event.getSubject(),
+                    event.getPublisher(), event.getDescription()));
+        }
+
+        private static Map<Field, String> fields(String title, String author, String subject,
+                String publisher, String description) {
+            Map<Field, String> text = new EnumMap<>(Field.class);
+            putIfPresent(text, Field.TITLE, title);
+            putIfPresent(text, Field.AUTHOR, author);
+            putIfPresent(text, Field.SUBJECT, subject);
+            putIfPresent(text, Field.PUBLISHER, publisher);
+            putIfPresent(text, Field.DESCRIPTION, description);
+            return text;
+        }
+    }
+
+    static final class Snapshot {
+
+        private final Map<Long, SearchDocument> documents;
+        // Per field: term -> (book id -> occurrences of the term in that field)
+        private final Map<Field, TreeMap<String, Map<Long, Integer>>> postings;
+        private final Map<Long, Integer> lengths;
+        private final long totalLength;
+        private final double averageLength;
+
+        private Snapshot(Map<Long, SearchDocument> documents, Map<Field, TreeMap<String, Map<Long, Integer>>> postings,
+                Map<Long, Integer> lengths, long totalLength) {
+            this.documents = documents;
+            this.postings = postings;
+            this.lengths = lengths;
+            this.totalLength = totalLength;
+            this.averageLength = documents.isEmpty() ? 1 : Math.max(1, (double) totalLength / documents.size());
+        }
+
+        static Snapshot of(Collection<SearchDocument> documents) {
+            Map<Long, SearchDocument> byId = new HashMap<>();
+            Map<Field, TreeMap<String, Map<Long, Integer>>> postings = new EnumMap<>(Field.class);
+            Map<Long, Integer> lengths = new HashMap<>();
+            long totalLength = 0;
+
+            for (Field field : Field.values()) {
+                postings.put(field, new TreeMap<>());
+            }
+            for (SearchDocument document : documents) {
+                byId.put(document.id(), document);
+                int length = 0;
+                for (Map.Entry<Field, String> entry : document.text().entrySet()) {
+                    TreeMap<String, Map<Long, Integer>> terms = postings.get(entry.getKey());
+                    for (String token : tokenize(entry.getValue())) {
+                        terms.computeIfAbsent(token, t -> new HashMap<>()).merge(document.id(), 1, Integer::sum);
+                        length++;
+                    }
+                }
+                lengths.put(document.id(), length);
+                totalLength += length;
+            }
+
+            return new Snapshot(byId, postings, lengths, totalLength);
+        }
+
+        /**
+         * Returns a snapshot with the book's document replaced, or removed when {@code document} is null.
+         * Only the posting lists of the old and new words are rewritten, but the maps that hold them
+         * are copied whole; this snapshot is left untouched.
+         */
+        Snapshot with(Long id, SearchDocument document) {
+            SearchDocument previous = documents.get(id);
+            if (previous == null && document == null || previous != null && previous.equals(document)) {
+                return this;
+            }
+
+            Map<Long, SearchDocument> newDocuments = new HashMap<>(documents);
+            Map<Field, TreeMap<String, Map<Long, Integer>>> newPostings = new EnumMap<>(postings);
+            Map<Long, Integer> newLengths = new HashMap<>(lengths);
+            Set<Field> copied = EnumSet.noneOf(Field.class);
+            long newTotalLength = totalLength;
+
+            if (previous != null) {
+                newDocuments.remove(id);
+                newTotalLength -= newLengths.remove(id);
+                for (Map.Entry<Field, String> entry : previous.text().entrySet()) {
+                    TreeMap<String, Map<Long, Integer>> terms = copyTerms(newPostings, copied, entry.getKey());
+                    for (String token : new HashSet<>(tokenize(entry.getValue()))) {
+                        Map<Long, Integer> occurrences = new HashMap<>(terms.get(token));
+                        occurrences.remove(id);
+                        if (occurrences.isEmpty()) {
+                            terms.remove(token);
+                        } else {
+                            terms.put(token, occurrences);
+                        }
+                    }
+                }
+            }
+            if (document != null) {
+                newDocuments.put(id, document);
+                int length = 0;
+                for (Map.Entry<Field, String> entry : document.text().entrySet()) {
+                    TreeMap<String, Map<Long, Integer>> terms = copyTerms(newPostings, copied, entry.getKey());
+                    Map<String, Integer> counts = new HashMap<>();
+                    for (String token : tokenize(entry.getValue())) {
+                        counts.merge(token, 1, Integer::sum);
+                        length++;
+                    }
+                    counts.forEach((token, count) -> {
+                        Map<Long, Integer> occurrences = new HashMap<>(terms.getOrDefault(token, Map.of()));
+                        occurrences.put(id, count);
+                        terms.put(token, occurrences);
+                    });
+                }
+                newLengths.put(id, length);
+                newTotalLength += length;
+            }
+            return new Snapshot(newDocuments, newPostings, newLengths, newTotalLength);
+        }
+
+        // The field's whole term dictionary, copied the first time this change touches it
+        private static TreeMap<String, Map<Long, Integer>> copyTerms(Map<Field, TreeMap<String, Map<Long, Integer>>> postings,
+                Set<Field> copied, Field field) {
+            if (copied.add(field)) {
+                postings.put(field, new TreeMap<>(postings.get(field)));
+            }
+            return postings.get(field);
+        }
+
+        List<Long> search(String query, Map<Field, String> fieldQueries) {
+            Map<Long, Double> scores = null;
+
+            for (String token : tokenize(query)) {
+                scores = intersect(scores, scoreToken(token, EnumSet.allOf(Field.class)));
+            }
+            for (Map.Entry<Field, String> fieldQuery : fieldQueries.entrySet()) {
+                for (String token : tokenize(fieldQuery.getValue())) {
+                    scores = intersect(scores, scoreToken(token, EnumSet.of(fieldQuery.getKey())));
+                }
+            }
+            if (scores == null) {
+                return List.of();
+            }
+
+            Map<Long, Double> ranked = scores;
+            return ranked.keySet()
+                    .stream()
+                    .sorted(Comparator.<Long>comparingDouble(ranked::get).reversed()
+                            .thenComparing(Comparator.naturalOrder()))
+                    .toList();
+        }
+
+        // Best BM25 score per book over the terms the token matches exactly or as a prefix
+        private Map<Long, Double> scoreToken(String token, Set<Field> fields) {
+            Set<String> terms = new HashSet<>();
+            for (Field field : fields) {
+                terms.addAll(postings.get(field).subMap(token, true, token + Character.MAX_VALUE, true).keySet());
+            }
+
+            Map<Long, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                Map<Long, Double> weightedFrequencies = new HashMap<>();
+                for (Field field : fields) {
+                    Map<Long, Integer> occurrences = postings.get(field).get(term);
+                    if (occurrences != null) {
+                        occurrences.forEach((id, count) -> weightedFrequencies.merge(id, count * field.weight, Double::sum));
+                    }
+                }
+
+                int documentFrequency = weightedFrequencies.size();
+                double idf = Math.log(1 + (documents.size() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+                double matchWeight = term.equals(token) ? 1.0 : PREFIX_MATCH_WEIGHT;
+
+                weightedFrequencies.forEach((id, frequency) -> {
+                    double norm = K1 * (1 - B + B * lengths.get(id) / averageLength);
+                    double score = matchWeight * idf * frequency * (K1 + 1) / (frequency + norm);
+                    scores.merge(id, score, Math::max);
+                });
+            }
+            return scores;
+        }
+
+        private static Map<Long, Double> intersect(Map<Long, Double> scores, Map<Long, Double> tokenScores) {
+            if (scores == null) {
+                return tokenScores;
+            }
+            Map<Long, Double> combined = new HashMap<>();
+            scores.forEach((id, score) -> {
+                Double tokenScore = tokenScores.get(id);
+                if (tokenScore != null) {
+                    combined.put(id, score + tokenScore);
+                }
+            });
+            return combined;
+        }
+    }
+}
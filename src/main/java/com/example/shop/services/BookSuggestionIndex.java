@@ -0,0 +1,406 @@
+package com.example.shop.services;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shop.dtos.SuggestionDTO;
+import com.example.shop.dtos.SuggestionDTO.SuggestionType;
+import com.example.shop.models.Book;
+import com.example.shop.repositories.BookRepository;
+
+/**
+ * Typo-tolerant autocomplete over the titles, authors and subjects of active books.
+ *
+ * Every distinct title, author and subject becomes a suggestion, and the words of all
+ * suggestions are stored in a trie. A query word is matched by walking the trie with one row of
+ * the Levenshtein table per node and pruning branches that are already too far away, so
+ * "mathmatics" still finds "mathematics". Earlier words must match a whole word; the last word
+ * is what the parent is still typing and matches any word it is (close to) a prefix of.
+ *
+ * Same lifecycle as {@link BookSearchIndex}: immutable snapshots, patched when BookService
+ * changes a book and rebuilt from the database on the catalog index interval. A change only
+ * copies the trie paths of the words whose suggestions it touches.
+ */
+@Component
+public class BookSuggestionIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(BookSuggestionIndex.class);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    // Same reason as CatalogIndex: rebuild reads the database while holding it
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+
+    public List<SuggestionDTO> suggest(String prefix, int limit) {
+        return snapshot().suggest(prefix, limit);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${shop.catalog.index.rebuild-interval:PT5M}",
+               fixedDelayString = "${shop.catalog.index.rebuild-interval:PT5M}")
+    public void rebuild() {
+        lock.lock();
+        try {
+            long startedAt = System.nanoTime();
+            List<SuggestionSource> sources = transactionTemplate.execute(status -> bookRepository.findByIsActiveTrue()
+                    .stream()
+                    .map(SuggestionSource::of)
+                    .toList());
+            snapshot = Snapshot.of(sources);
+            log.debug("Suggestion index rebuilt with {} books in {} ms",
+                    sources.size(), (System.nanoTime() - startedAt) / 1_000_000);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        lock.lock();
+        try {
+            snapshot = snapshot().with(event.getBookId(), event.isActive() ? SuggestionSource.of(event) : null);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            lock.lock();
+            try {
+                if (snapshot == null) {
+                    rebuild();
+                }
+                current = snapshot;
+            } finally {
+                lock.unlock();
+            }
+        }
+        return current;
+    }
+
+    // Short words must be typed exactly, longer ones may contain one or two mistakes
+    static int maxEdits(int length) {
+        if (length <= 3) {
+            return 0;
+        }
+        return length <= 6 ? 1 : 2;
+    }
+
+    record SuggestionSource(Long id, String title, String author, String subject) {
+
+        static SuggestionSource of(Book book) {
+            return new SuggestionSource(book.getId(), book.getTitle(), book.getAuthor(), book.getSubject());
+        }
+
+        static SuggestionSource of(BookChangedEvent event) {
+            return new SuggestionSource(event.getBookId(), event.getTitle(), event.getAuthor(), event.getSubject());
+        }
+
+        private Map<SuggestionType, String> texts() {
+            Map<SuggestionType, String> texts = new EnumMap<>(SuggestionType.class);
+            putIfPresent(texts, SuggestionType.TITLE, title);
+            putIfPresent(texts, SuggestionType.AUTHOR, author);
+            putIfPresent(texts, SuggestionType.SUBJECT, subject);
+            return texts;
+        }
+
+        private static void putIfPresent(Map<SuggestionType, String> texts, SuggestionType type, String text) {
+            if (text != null && !text.isBlank()) {
+                texts.put(type, text.trim());
+            }
+        }
+    }
+
+    // Same text in different case is one suggestion, shown as first seen
+    private record Suggestion(String key, String text, SuggestionType type, int bookCount) {
+
+        static String key(SuggestionType type, String text) {
+            return type + ":" + text.toLowerCase(Locale.ROOT);
+        }
+    }
+
+    // Nodes are filled in while a snapshot is built and copied, never changed, once it is published
+    private static final class TrieNode {
+
+        private static final Suggestion[] NONE = new Suggestion[0];
+
+        private final Map<Character, TrieNode> children;
+        // Suggestions containing the word that ends at this node
+        private Suggestion[] suggestions;
+
+        private TrieNode() {
+            this(new HashMap<>(), NONE);
+        }
+
+        private TrieNode(Map<Character, TrieNode> children, Suggestion[] suggestions) {
+            this.children = children;
+            this.suggestions = suggestions;
+        }
+
+        private void insert(String word, Suggestion suggestion) {
+            TrieNode node = this;
+            for (int i = 0; i < word.length(); i++) {
+                node = node.children.computeIfAbsent(word.charAt(i), c -> new TrieNode());
+            }
+            if (node.suggestions.length == 0 || node.suggestions[node.suggestions.length - 1] != suggestion) {
+                node.suggestions = append(node.suggestions, suggestion);
+            }
+        }
+
+        // A copy of the path to word with the suggestion under key replaced, or removed when suggestion is null
+        private TrieNode with(String word, int depth, String key, Suggestion suggestion) {
+            if (depth == word.length()) {
+                Suggestion[] kept = Arrays.stream(suggestions)
+                        .filter(existing -> !existing.key().equals(key))
+                        .toArray(Suggestion[]::new);
+                return new TrieNode(children, suggestion == null ? kept : append(kept, suggestion));
+            }
+            char letter = word.charAt(depth);
+            TrieNode child = children.getOrDefault(letter, new TrieNode()).with(word, depth + 1, key, suggestion);
+            Map<Character, TrieNode> copiedChildren = new HashMap<>(children);
+            if (child.children.isEmpty() && child.suggestions.length == 0) {
+                copiedChildren.remove(letter);
+            } else {
+                copiedChildren.put(letter, child);
+            }
+            return new TrieNode(copiedChildren, suggestions);
+        }
+
+        private static Suggestion[] append(Suggestion[] suggestions, Suggestion suggestion) {
+            Suggestion[] grown = Arrays.copyOf(suggestions, suggestions.length + 1);
+            grown[grown.length - 1] = suggestion;
+            return grown;
+        }
+    }
+
+    static final class Snapshot {
+
+        private final Map<Long, SuggestionSource> sources;
+        private final Map<String, Suggestion> suggestions;
+        private final TrieNode root;
+
+        private Snapshot(Map<Long, SuggestionSource> sources, Map<String, Suggestion> suggestions, TrieNode root) {
+            this.sources = sources;
+            this.suggestions = suggestions;
+            this.root = root;
+        }
+
+        static Snapshot of(Collection<SuggestionSource> sources) {
+            Map<Long, SuggestionSource> byId = new HashMap<>();
+            Map<String, String> displayTexts = new LinkedHashMap<>();
+            Map<String, SuggestionType> types = new HashMap<>();
+            Map<String, Integer> bookCounts = new HashMap<>();
+
+            for (SuggestionSource source : sources) {
+                byId.put(source.id(), source);
+                source.texts().forEach((type, text) -> {
+                    String key = Suggestion.key(type, text);
+                    displayTexts.putIfAbsent(key, text);
+                    types.put(key, type);
+                    bookCounts.merge(key, 1, Integer::sum);
+                });
+            }
+
+            Map<String, Suggestion> suggestions = new HashMap<>();
+            TrieNode root = new TrieNode();
+            displayTexts.forEach((key, text) -> {
+                Suggestion suggestion = new Suggestion(key, text, types.get(key), bookCounts.get(key));
+                suggestions.put(key, suggestion);
+                for (String word : new LinkedHashSet<>(BookSearchIndex.tokenize(text))) {
+                    root.insert(word, suggestion);
+                }
+            });
+            return new Snapshot(byId, suggestions, root);
+        }
+
+        /**
+         * Returns a snapshot with the book's titles, author and subject replaced, or removed when
+         * {@code source} is null. Only the suggestions whose book count changes are rewritten.
+         */
+        Snapshot with(Long id, SuggestionSource source) {
+            SuggestionSource previous = sources.get(id);
+            if (Objects.equals(previous, source)) {
+                return this;
+            }
+
+            Map<Long, SuggestionSource> newSources = new HashMap<>(sources);
+            Map<String, Integer> countChanges = new LinkedHashMap<>();
+            Map<String, Map.Entry<SuggestionType, String>> addedTexts = new HashMap<>();
+            if (previous != null) {
+                newSources.remove(id);
+                previous.texts().forEach((type, text) -> countChanges.merge(Suggestion.key(type, text), -1, Integer::sum));
+            }
+            if (source != null) {
+                newSources.put(id, source);
+                source.texts().forEach((type, text) -> {
+                    String key = Suggestion.key(type, text);
+                    countChanges.merge(key, 1, Integer::sum);
+                    addedTexts.put(key, Map.entry(type, text));
+                });
+            }
+
+            Map<String, Suggestion> newSuggestions = new HashMap<>(suggestions);
+            TrieNode newRoot = root;
+            for (Map.Entry<String, Integer> change : countChanges.entrySet()) {
+                if (change.getValue() == 0) {
+                    continue;
+                }
+                String key = change.getKey();
+                Suggestion current = newSuggestions.get(key);
+                Suggestion updated;
+                if (current == null) {
+                    Map.Entry<SuggestionType, String> added = addedTexts.get(key);
+                    updated = new Suggestion(key, added.getValue(), added.getKey(), change.getValue());
+                } else if (current.bookCount() + change.getValue() > 0) {
+                    updated = new Suggestion(key, current.text(), current.type(), current.bookCount() + change.getValue());
+                } else {
+                    updated = null;
+                }
+
+                if (updated == null) {
+                    newSuggestions.remove(key);
+                } else {
+                    newSuggestions.put(key, updated);
+                }
+                String text = updated != null ? updated.text() : current.text();
+                for (String word : new LinkedHashSet<>(BookSearchIndex.tokenize(text))) {
+                    newRoot = newRoot.with(word, 0, key, updated);
+                }
+            }
+            return new Snapshot(newSources, newSuggestions, newRoot);
+        }
+
+        List<SuggestionDTO> suggest(String prefix, int limit) {
+            List<String> words = BookSearchIndex.tokenize(prefix);
+            if (words.isEmpty() || limit <= 0) {
+                return List.of();
+            }
+
+            // Suggestion -> total edits needed across the query words
+            Map<Suggestion, Integer> distances = null;
+            for (int i = 0; i < words.size(); i++) {
+                String word = words.get(i);
+                Map<Suggestion, Integer> matches = match(word, maxEdits(word.length()), i == words.size() - 1);
+                distances = distances == null ? matches : intersect(distances, matches);
+                if (distances.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            Map<Suggestion, Integer> totals = distances;
+            return totals.keySet()
+                    .stream()
+                    .sorted(Comparator.<Suggestion>comparingInt(totals::get)
+                            .thenComparing(suggestion -> -suggestion.bookCount())
+                            .thenComparing(suggestion -> suggestion.text().length())
+                            .thenComparing(Suggestion::text)
+                            .thenComparing(Suggestion::type))
+                    .limit(limit)
+                    .map(suggestion -> SuggestionDTO.builder()
+                            .text(suggestion.text())
+                            .type(suggestion.type())
+                            .bookCount(suggestion.bookCount())
+                            .build())
+                    .toList();
+        }
+
+        private Map<Suggestion, Integer> match(String word, int maxEdits, boolean prefix) {
+            Map<Suggestion, Integer> matches = new HashMap<>();
+            int[] firstRow = new int[word.length() + 1];
+            for (int j = 0; j < firstRow.length; j++) {
+                firstRow[j] = j;
+            }
+            for (Map.Entry<Character, TrieNode> child : root.children.entrySet()) {
+                search(child.getValue(), child.getKey(), word, firstRow, Integer.MAX_VALUE, maxEdits, prefix, matches);
+            }
+            return matches;
+        }
+
+        // previousRow holds the edit distances between the node's parent prefix and every prefix of word;
+        // for prefix matching, best is the smallest distance between word and any prefix on this path
+        private void search(TrieNode node, char letter, String word, int[] previousRow, int best, int maxEdits,
+                boolean prefix, Map<Suggestion, Integer> matches) {
+            int[] row = new int[previousRow.length];
+            row[0] = previousRow[0] + 1;
+            int rowMin = row[0];
+            for (int j = 1; j < row.length; j++) {
+                int substitution = previousRow[j - 1] + (word.charAt(j - 1) == letter ? 0 : 1);
+                row[j] = Math.min(substitution, Math.min(row[j - 1] + 1, previousRow[j] + 1));
+                rowMin = Math.min(rowMin, row[j]);
+            }
+
+            int distance = prefix ? Math.min(best, row[row.length - 1]) : row[row.length - 1];
+            if (distance <= maxEdits) {
+                record(node.suggestions, distance, matches);
+            }
+
+            if (rowMin <= maxEdits) {
+                for (Map.Entry<Character, TrieNode> child : node.children.entrySet()) {
+                    search(child.getValue(), child.getKey(), word, row, distance, maxEdits, prefix, matches);
+                }
+            } else if (prefix && distance <= maxEdits) {
+                // No longer word can get closer, but every word below still starts with a close prefix
+                for (TrieNode child : node.children.values()) {
+                    collect(child, distance, matches);
+                }
+            }
+        }
+
+        private static void collect(TrieNode node, int distance, Map<Suggestion, Integer> matches) {
+            record(node.suggestions, distance, matches);
+            for (TrieNode child : node.children.values()) {
+                collect(child, distance, matches);
+            }
+        }
+
+        private static void record(Suggestion[] suggestions, int distance, Map<Suggestion, Integer> matches) {
+            for (Suggestion suggestion : suggestions) {
+                matches.merge(suggestion, distance, Math::min);
+            }
+        }
+
+        private static Map<Suggestion, Integer> intersect(Map<Suggestion, Integer> distances,
+                Map<Suggestion, Integer> matches) {
+            Map<Suggestion, Integer> combined = new HashMap<>();
+            distances.forEach((suggestion, distance) -> {
+                Integer wordDistance = matches.get(suggestion);
+                if (wordDistance != null) {
+                    combined.put(suggestion, distance + wordDistance);
+                }
+            });
+            return combined;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.shop.services;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import com.example.shop.models.Order;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Published by OrderService when an order is placed (positive quantities) or cancelled
+ * (negative quantities), with the quantity of each book, the date the order was placed and
+ * the status the change left the order in.
+ */
+@Getter
+@AllArgsConstructor
+public class BooksSoldEvent {
+    
+    private final Long orderId;
+    private final Order.OrderStatus orderStatus;
+    private final LocalDateTime orderDate;
+    // Book id -> quantity sold, negative when the order was cancelled
+    private final Map<Long, Integer> quantities;
+}
@@ -0,0 +1,312 @@
+package com.example.shop.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shop.models.Book;
+import com.example.shop.repositories.BookRepository;
+
+/**
+ * In-process secondary indexes over the active catalog.
+ *
+ * Every active book gets a slot, and each grade, board, subject and category keeps a BitSet of
+ * the slots it contains, so a storefront filter like "grade 7 + CBSE + Mathematics" is answered
+ * by AND-ing a few bitsets instead of running a query. The index is an immutable snapshot behind
+ * a volatile reference: readers never lock, and changes from {@link BookChangedEvent} are applied
+ * copy-on-write once the writing transaction commits. A periodic full rebuild from the database
+ * picks up changes made by other instances, and refreshes the {@link CatalogVersion} from the
+ * database just before it reads the books.
+ */
+@Component
+public class CatalogIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogIndex.class);
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CatalogVersion catalogVersion;
+
+    // Guards rebuilds and updates. Not a monitor: rebuild holds it across JDBC calls, which would
+    // pin the carrier thread when requests run on virtual threads
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+
+    // Ids of active books matching every given attribute, in slot (id) order; null means any
+    public List<Long> findIds(Integer grade, Book.Board board, String subject, Long categoryId) {
+        return snapshot().findIds(grade, board, subject, categoryId);
+    }
+
+    public int count(Integer grade, Book.Board board, String subject, Long categoryId) {
+        return snapshot().matching(grade, board, subject, categoryId).cardinality();
+    }
+    
+    // Whether one book is active and has the given grade and board; null means any
+    public boolean matches(Long bookId, Integer grade, Book.Board board) {
+        return snapshot().matches(bookId, grade, board);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${shop.catalog.index.rebuild-interval:PT5M}",
+               fixedDelayString = "${shop.catalog.index.rebuild-interval:PT5M}")
+    public void rebuild() {
+        lock.lock();
+        try {
+            long startedAt = System.nanoTime();
+            // Before the books, so the version is never newer than what was read
+            Boolean versionChanged = transactionTemplate.execute(status -> catalogVersion.refresh());
+            List<IndexedBook> books = transactionTemplate.execute(status -> bookRepository.findByIsActiveTrue()
+                    .stream()
+                    .map(IndexedBook::of)
+                    .toList());
+            snapshot = Snapshot.of(books);
+            log.debug("Catalog index rebuilt with {} books in {} ms, catalog version {}", books.size(),
+                    (System.nanoTime() - startedAt) / 1_000_000, versionChanged ? "changed" : "unchanged");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookChanged(BookChangedEvent event) {
+        lock.lock();
+        try {
+            snapshot = snapshot().with(event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            lock.lock();
+            try {
+                if (snapshot == null) {
+                    rebuild();
+                }
+                current = snapshot;
+            } finally {
+                lock.unlock();
+            }
+        }
+        return current;
+    }
+
+    private static String subjectKey(String subject) {
+        return subject == null ? null : subject.trim().toLowerCase(Locale.ROOT);
+    }
+
+    record IndexedBook(Long id, Integer grade, Book.Board board, String subject, Long categoryId) {
+
+        static IndexedBook of(Book book) {
+            Long categoryId = book.getCategory() != null ? book.getCategory().getId() : null;
+            return new IndexedBook(book.getId(), book.getGrade(), book.getBoard(), subjectKey(book.getSubject()), categoryId);
+        }
+
+        static IndexedBook of(BookChangedEvent event) {
+            return new IndexedBook(event.getBookId(), event.getGrade(), event.getBoard(),
+                    subjectKey(event.getSubject()), event.getCategoryId());
+        }
+    }
+
+    static final class Snapshot {
+
+        // Rebuild in memory once more than half of the slots belong to removed books
+        private static final double MAX_FREE_RATIO = 0.5;
+
+        private final IndexedBook[] books;
+        private final Map<Long, Integer> slots;
+        private final BitSet active;
+        private final Map<Integer, BitSet> byGrade;
+        private final Map<Book.Board, BitSet> byBoard;
+        private final Map<String, BitSet> bySubject;
+        private final Map<Long, BitSet> byCategory;
+
+        private Snapshot(IndexedBook[] books, Map<Long, Integer> slots, BitSet active,
+                Map<Integer, BitSet> byGrade, Map<Book.Board, BitSet> byBoard,
+                Map<String, BitSet> bySubject, Map<Long, BitSet> byCategory) {
+            this.books = books;
+            this.slots = slots;
+            this.active = active;
+            this.byGrade = byGrade;
+            this.byBoard = byBoard;
+            this.bySubject = bySubject;
+            this.byCategory = byCategory;
+        }
+
+        static Snapshot of(Collection<IndexedBook> activeBooks) {
+            IndexedBook[] books = activeBooks.stream()
+                    .sorted(Comparator.comparing(IndexedBook::id))
+                    .toArray(IndexedBook[]::new);
+            Map<Long, Integer> slots = new HashMap<>();
+            BitSet active = new BitSet(books.length);
+            Map<Integer, BitSet> byGrade = new HashMap<>();
+            Map<Book.Board, BitSet> byBoard = new HashMap<>();
+            Map<String, BitSet> bySubject = new HashMap<>();
+            Map<Long, BitSet> byCategory = new HashMap<>();
+
+            for (int slot = 0; slot < books.length; slot++) {
+                IndexedBook book = books[slot];
+                slots.put(book.id(), slot);
+                active.set(slot);
+                addPosting(byGrade, book.grade(), slot);
+                addPosting(byBoard, book.board(), slot);
+                addPosting(bySubject, book.subject(), slot);
+                addPosting(byCategory, book.categoryId(), slot);
+            }
+            return new Snapshot(books, slots, active, byGrade, byBoard, bySubject, byCategory);
+        }
+
+        List<Long> findIds(Integer grade, Book.Board board, String subject, Long categoryId) {
+            BitSet matching = matching(grade, board, subject, categoryId);
+            List<Long> ids = new ArrayList<>(matching.cardinality());
+            for (int slot = matching.nextSetBit(0); slot >= 0; slot = matching.nextSetBit(slot + 1)) {
+                ids.add(books[slot].id());
+            }
+            return ids;
+        }
+
+        boolean matches(Long bookId, Integer grade, Book.Board board) {
+            Integer slot = slots.get(bookId);
+            if (slot == null || !active.get(slot)) {
+                return false;
+            }
+            return (grade == null || Objects.equals(books[slot].grade(), grade))
+                    && (board == null || books[slot].board() == board);
+        }
+        
+        BitSet matching(Integer grade, Book.Board board, String subject, Long categoryId) {
+            BitSet matching = (BitSet) active.clone();
+            if (grade != null) {
+                and(matching, byGrade.get(grade));
+            }
+            if (board != null) {
+                and(matching, byBoard.get(board));
+            }
+            if (subject != null) {
+                and(matching, bySubject.get(subjectKey(subject)));
+            }
+            if (categoryId != null) {
+                and(matching, byCategory.get(categoryId));
+            }
+            return matching;
+        }
+
+        // Copies only the arrays, maps and posting lists the change touches; the rest is shared
+        Snapshot with(BookChangedEvent event) {
+            Integer slot = slots.get(event.getBookId());
+            IndexedBook previous = slot != null && active.get(slot) ? books[slot] : null;
+            IndexedBook current = event.isActive() ? IndexedBook.of(event) : null;
+            if (Objects.equals(previous, current)) {
+                return this;
+            }
+
+            IndexedBook[] newBooks = books;
+            Map<Long, Integer> newSlots = slots;
+            if (slot == null) {
+                slot = books.length;
+                newBooks = Arrays.copyOf(books, books.length + 1);
+                newSlots = new HashMap<>(slots);
+                newSlots.put(event.getBookId(), slot);
+            } else {
+                newBooks = books.clone();
+            }
+            if (current != null) {
+                newBooks[slot] = current;
+            }
+
+            BitSet newActive = (BitSet) active.clone();
+            newActive.set(slot, current != null);
+            Map<Integer, BitSet> newByGrade = byGrade;
+            Map<Book.Board, BitSet> newByBoard = byBoard;
+            Map<String, BitSet> newBySubject = bySubject;
+            Map<Long, BitSet> newByCategory = byCategory;
+            if (previous != null) {
+                newByGrade = withPosting(newByGrade, previous.grade(), slot, false);
+                newByBoard = withPosting(newByBoard, previous.board(), slot, false);
+                newBySubject = withPosting(newBySubject, previous.subject(), slot, false);
+                newByCategory = withPosting(newByCategory, previous.categoryId(), slot, false);
+            }
+            if (current != null) {
+                newByGrade = withPosting(newByGrade, current.grade(), slot, true);
+                newByBoard = withPosting(newByBoard, current.board(), slot, true);
+                newBySubject = withPosting(newBySubject, current.subject(), slot, true);
+                newByCategory = withPosting(newByCategory, current.categoryId(), slot, true);
+            }
+
+            Snapshot next = new Snapshot(newBooks, newSlots, newActive, newByGrade, newByBoard, newBySubject, newByCategory);
+            return next.needsCompaction() ? next.compact() : next;
+        }
+
+        private boolean needsCompaction() {
+            return books.length > 64 && active.cardinality() < books.length * (1 - MAX_FREE_RATIO);
+        }
+
+        private Snapshot compact() {
+            List<IndexedBook> activeBooks = new ArrayList<>(active.cardinality());
+            for (int slot = active.nextSetBit(0); slot >= 0; slot = active.nextSetBit(slot + 1)) {
+                activeBooks.add(books[slot]);
+            }
+            return of(activeBooks);
+        }
+
+        private static void and(BitSet matching, BitSet postings) {
+            if (postings == null) {
+                matching.clear();
+            } else {
+                matching.and(postings);
+            }
+        }
+
+        private static <K> void addPosting(Map<K, BitSet> postings, K key, int slot) {
+            if (key != null) {
+                postings.computeIfAbsent(key, k -> new BitSet()).set(slot);
+            }
+        }
+
+        private static <K> Map<K, BitSet> withPosting(Map<K, BitSet> postings, K key, int slot, boolean value) {
+            if (key == null) {
+                return postings;
+            }
+            Map<K, BitSet> copy = new HashMap<>(postings);
+            BitSet existing = postings.get(key);
+            BitSet updated = existing != null ? (BitSet) existing.clone() : new BitSet();
+            updated.set(slot, value);
+            if (updated.isEmpty()) {
+                copy.remove(key);
+            } else {
+                copy.put(key, updated);
+            }
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.shop.services;
+
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shop.models.CatalogRevision;
+import com.example.shop.repositories.BookRepository;
+import com.example.shop.repositories.CatalogRevisionRepository;
+
+/**
+ * Version of the catalog the storefront lists are built from, sent by the catalog endpoints as a
+ * strong ETag so a client that already has the current version gets a 304 without the catalog
+ * being read or serialized.
+ *
+ * The version comes from the database, so every instance tags the same catalog alike and a
+ * restart does not change it. Its main part is the catalog revision, which every BookService and
+ * CategoryService edit counts up in its own transaction and which this instance moves to once
+ * that transaction commits; edits made on other instances are picked up by the catalog index
+ * rebuild. Stock changes from orders do not count it up, so checkouts never contend on its row.
+ * Book lists, which show stock, instead also carry when a book last changed as of the last rebuild
+ * and a count of this instance's committed stock changes, so they stay current with every order;
+ * the category list does not change with stock at all.
+ */
+@Component
+public class CatalogVersion {
+
+    static final String CATALOG = "catalog";
+
+    @Autowired
+    private CatalogRevisionRepository catalogRevisionRepository;
+
+    @Autowired
+    private BookRepository bookRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final AtomicReference<Revision> revision = new AtomicReference<>(Revision.NONE);
+
+    // Epoch millis of the latest book change, stock included, as of the last refresh
+    private volatile long booksChangedAt;
+
+    // Stock changes committed on this instance; after a restart booksChangedAt covers those before it
+    private final AtomicLong stockChanges = new AtomicLong();
+
+    public enum Scope {
+        // Lists of books, with their stock
+        BOOKS,
+        // The category list
+        CATEGORIES
+    }
+
+    // Capture before reading the catalog: a write racing the read then only makes the tag older
+    public String etag(Scope scope) {
+        String tag = "catalog-" + revision.get();
+        if (scope == Scope.BOOKS) {
+            tag += "-" + Long.toString(booksChangedAt, 36) + "." + stockChanges.get();
+        }
+        return "\"" + tag + "\"";
+    }
+
+    // Counts the catalog revision up in the caller's transaction, or in one of its own
+    public void bump() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            advanceTo(transactionTemplate.execute(status -> increment()));
+            return;
+        }
+        Revision next = increment();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                advanceTo(next);
+            }
+        });
+    }
+
+    // Moves the book lists' tag once the caller's transaction commits, without touching the database
+    public void stockChanged() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            stockChanges.incrementAndGet();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                stockChanges.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Reads the version as the database has it, which includes edits made on other instances and
+     * stock changes. Called by the catalog index in the transaction of each rebuild, before it
+     * reads the books. Returns whether either tag changed.
+     */
+    public boolean refresh() {
+        String before = etag(Scope.BOOKS);
+        advanceTo(catalogRevisionRepository.findByName(CATALOG).map(Revision::of).orElse(Revision.NONE));
+        booksChangedAt = bookRepository.findLastUpdatedAt()
+                .map(changedAt -> changedAt.toInstant(ZoneOffset.UTC).toEpochMilli())
+                .orElse(0L);
+        return !before.equals(etag(Scope.BOOKS));
+    }
+
+    private Revision increment() {
+        CatalogRevision row = catalogRevisionRepository.findByNameForUpdate(CATALOG).orElseGet(() -> {
+            catalogRevisionRepository.createIfAbsent(CATALOG);
+            return catalogRevisionRepository.findByNameForUpdate(CATALOG).orElseThrow();
+        });
+        row.setRevision(row.getRevision() + 1);
+        return Revision.of(row);
+    }
+
+    // Transactions can commit in one order and report it in another, so only ever move forward
+    private void advanceTo(Revision next) {
+        revision.accumulateAndGet(next, (current, candidate) -> candidate.isAfter(current) ? candidate : current);
+    }
+
+    // A revision of the counter row created at createdAt; a recreated row starts over
+    record Revision(long createdAt, long revision) {
+
+        static final Revision NONE = new Revision(0, 0);
+
+        static Revision of(CatalogRevision row) {
+            return new Revision(row.getCreatedAt().toInstant(ZoneOffset.UTC).toEpochMilli(), row.getRevision());
+        }
+
+        boolean isAfter(Revision other) {
+            return createdAt != other.createdAt ? createdAt > other.createdAt : revision > other.revision;
+        }
+
+        @Override
+        public String toString() {
+            return Long.toString(createdAt, 36) + "." + revision;
+        }
+    }
+}
@@ -9,17 +9,36 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.shop.configs.ReadsPrimary;
 import com.example.shop.dtos.CategoryDTO;
 import com.example.shop.models.Category;
+import com.example.shop.repositories.BookRepository;
 import com.example.shop.repositories.CategoryRepository;
 
+import io.micrometer.core.annotation.Timed;
+
 @Service
 @Transactional
+@Timed("shop.service")
 public class CategoryService {
     
     @Autowired
     private CategoryRepository categoryRepository;
     
+    @Autowired
+    private BookRepository bookRepository;
+    
+    @Autowired
+    private BookCatalogCache bookCatalogCache;
+    
+    @Autowired
+    private CatalogIndex catalogIndex;
+    
+    @Autowired
+    private CatalogVersion catalogVersion;
+    
+    @Transactional(readOnly = true)
+    @ReadsPrimary
     public List<CategoryDTO> getAllCategories() {
         return categoryRepository.findByIsActiveTrue()
                 .stream()
@@ -27,17 +46,22 @@ public class CategoryService {
                 .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public Optional<CategoryDTO> getCategoryById(Long id) {
         return categoryRepository.findById(id)
                 .filter(category -> category.getIsActive())
                 .map(this::convertToDTO);
     }
     
+    @Transactional(readOnly = true)
+    @ReadsPrimary
     public Optional<CategoryDTO> getCategoryByName(String name) {
         return categoryRepository.findByNameAndIsActiveTrue(name)
                 .map(this::convertToDTO);
     }
     
+    @Transactional(readOnly = true)
+    @ReadsPrimary
     public List<CategoryDTO> getCategoriesByType(Category.CategoryType categoryType) {
         return categoryRepository.findByCategoryTypeAndIsActiveTrue(categoryType)
                 .stream()
@@ -45,6 +69,7 @@ public class CategoryService {
                 .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public List<CategoryDTO> getCategoriesWithBooks() {
         return categoryRepository.findCategoriesWithActiveBooks()
                 .stream()
@@ -62,6 +87,7 @@ public class CategoryService {
         category.setIsActive(true);
         
         Category savedCategory = categoryRepository.save(category);
+        catalogVersion.bump();
         return convertToDTO(savedCategory);
     }
     
@@ -79,6 +105,9 @@ public class CategoryService {
         BeanUtils.copyProperties(categoryDTO, existingCategory, "id", "createdAt", "updatedAt");
         
         Category updatedCategory = categoryRepository.save(existingCategory);
+        // Cached books carry the category name
+        bookCatalogCache.evictAllBooks();
+        catalogVersion.bump();
         return convertToDTO(updatedCategory);
     }
     
@@ -86,18 +115,14 @@ public class CategoryService {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Category not found"));
         
-        // Check if category has books
-        if (category.getBooks() != null && !category.getBooks().isEmpty()) {
-            long activeBooks = category.getBooks().stream()
-                    .filter(book -> book.getIsActive())
-                    .count();
-            if (activeBooks > 0) {
-                throw new RuntimeException("Cannot delete category with active books. Please reassign books first.");
-            }
+        // Check if category has books; asks the database, the catalog index may lag other instances
+        if (bookRepository.existsByCategoryIdAndIsActiveTrue(id)) {
+            throw new RuntimeException("Cannot delete category with active books. Please reassign books first.");
         }
         
         category.setIsActive(false);
         categoryRepository.save(category);
+        catalogVersion.bump();
     }
     
     public boolean isNameAvailable(String name) {
@@ -111,16 +136,10 @@ public class CategoryService {
                 .description(category.getDescription())
                 .categoryType(category.getCategoryType())
                 .isActive(category.getIsActive())
+                // Active books per category are kept up to date by the catalog index
+                .bookCount(category.getId() != null ? catalogIndex.count(null, null, null, category.getId()) : 0)
                 .build();
         
-        // Count active books in this category
-        if (category.getBooks() != null) {
-            int bookCount = (int) category.getBooks().stream()
-                    .filter(book -> book.getIsActive())
-                    .count();
-            dto.setBookCount(bookCount);
-        }
-        
         return dto;
     }
     
@@ -1,94 +1,166 @@
 package com.example.shop.services;
 
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.shop.configs.ReadsPrimary;
+import com.example.shop.dtos.CursorSlice;
 import com.example.shop.dtos.CustomerDTO;
 import com.example.shop.dtos.SearchRequest;
 import com.example.shop.models.Customer;
 import com.example.shop.repositories.CustomerRepository;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.annotation.Timed;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.Predicate;
+
 @Service
 @Transactional
+@Timed("shop.service")
 public class CustomerService {
     
+    // CSV columns of the customer export; NDJSON rows carry the whole customer
+    private static final Map<String, Function<CustomerDTO, Object>> EXPORT_COLUMNS = exportColumns();
+    
+    // Non-null columns, the only ones a cursor can seek by
+    private static final Set<String> CURSOR_SORTS = Set.of("id", "name", "email", "phone", "customerType",
+            "createdAt", "updatedAt");
+    
     @Autowired
     private CustomerRepository customerRepository;
     
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    // List reads build DTOs straight from the result sets; no entities are loaded
+    @Transactional(readOnly = true)
     public List<CustomerDTO> getAllCustomers() {
-        return customerRepository.findByIsActiveTrue()
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return customerRepository.findActiveDTOs();
     }
     
+    @Transactional(readOnly = true)
     public Optional<CustomerDTO> getCustomerById(Long id) {
         return customerRepository.findById(id)
                 .filter(customer -> customer.getIsActive())
                 .map(this::convertToDTO);
     }
     
+    @Transactional(readOnly = true)
+    @ReadsPrimary
     public Optional<CustomerDTO> getCustomerByEmail(String email) {
         return customerRepository.findByEmailAndIsActiveTrue(email)
                 .map(this::convertToDTO);
     }
     
+    @Transactional(readOnly = true)
+    @ReadsPrimary
     public Optional<CustomerDTO> getCustomerByPhone(String phone) {
         return customerRepository.findByPhoneAndIsActiveTrue(phone)
                 .map(this::convertToDTO);
     }
     
+    @Transactional(readOnly = true)
     public List<CustomerDTO> getCustomersByType(Customer.CustomerType customerType) {
-        return customerRepository.findByCustomerTypeAndIsActiveTrue(customerType)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return customerRepository.findActiveDTOsByCustomerType(customerType);
     }
     
+    @Transactional(readOnly = true)
     public List<CustomerDTO> getCustomersByCity(String city) {
-        return customerRepository.findByCityAndIsActiveTrue(city)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return customerRepository.findActiveDTOsByCity(city);
     }
     
+    @Transactional(readOnly = true)
     public Page<CustomerDTO> searchCustomers(SearchRequest searchRequest) {
         Sort sort = Sort.by(Sort.Direction.fromString(searchRequest.getSortDirection()), 
                            searchRequest.getSortBy());
         Pageable pageable = PageRequest.of(searchRequest.getPage(), searchRequest.getSize(), sort);
         
-        return customerRepository.searchCustomers(
+        return customerRepository.searchCustomerDTOs(
                 searchRequest.getName(),
                 searchRequest.getEmail(),
                 searchRequest.getPhone(),
                 searchRequest.getCustomerType(),
                 pageable
-        ).map(this::convertToDTO);
+        );
+    }
+    
+    // Keyset pagination: seeks past the last row of the previous window instead of OFFSET + COUNT
+    @Transactional(readOnly = true)
+    public CursorSlice<CustomerDTO> searchCustomersAfter(SearchRequest searchRequest) {
+        Sort.Direction direction = Sort.Direction.fromString(searchRequest.getSortDirection());
+        String sortBy = searchRequest.getSortBy();
+        SearchCursor.requireSortable(sortBy, CURSOR_SORTS);
+        KeysetScrollPosition position = SearchCursor.position(searchRequest.getCursor(), sortBy, direction);
+        
+        Window<Customer> window = customerRepository.findBy(customerSearch(searchRequest), query -> query
+                .sortBy(SearchCursor.keysetSort(sortBy, direction))
+                .limit(searchRequest.getSize())
+                .scroll(position));
+        
+        return CursorSlice.<CustomerDTO>builder()
+                .content(window.getContent().stream().map(this::convertToDTO).collect(Collectors.toList()))
+                .size(window.size())
+                .hasNext(window.hasNext())
+                .nextCursor(SearchCursor.nextCursor(window, sortBy, direction))
+                .build();
     }
     
+    // Same criteria as CustomerRepository.searchCustomerDTOs
+    private Specification<Customer> customerSearch(SearchRequest searchRequest) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.isTrue(root.get("isActive")));
+            if (searchRequest.getName() != null) {
+                predicates.add(cb.like(cb.lower(root.get("name")), "%" + searchRequest.getName().toLowerCase() + "%"));
+            }
+            if (searchRequest.getEmail() != null) {
+                predicates.add(cb.like(cb.lower(root.get("email")), "%" + searchRequest.getEmail().toLowerCase() + "%"));
+            }
+            if (searchRequest.getPhone() != null) {
+                predicates.add(cb.like(root.get("phone"), "%" + searchRequest.getPhone() + "%"));
+            }
+            if (searchRequest.getCustomerType() != null) {
+                predicates.add(cb.equal(root.get("customerType"), searchRequest.getCustomerType()));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+    
+    @Transactional(readOnly = true)
     public List<CustomerDTO> getCustomersWithOrders() {
-        return customerRepository.findCustomersWithOrders()
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return customerRepository.findActiveDTOsWithOrders();
     }
     
+    @Transactional(readOnly = true)
     public List<CustomerDTO> getTopCustomers(int limit) {
         Pageable pageable = PageRequest.of(0, limit);
-        return customerRepository.findTopCustomersByOrderValue(pageable)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return customerRepository.findTopDTOsByOrderValue(pageable);
     }
     
     public CustomerDTO createCustomer(CustomerDTO customerDTO) {
@@ -127,7 +199,7 @@ public class CustomerService {
             }
         }
         
-        BeanUtils.copyProperties(customerDTO, existingCustomer, "id", "createdAt", "updatedAt");
+        BeanUtils.copyProperties(customerDTO, existingCustomer, "id", "createdAt", "updatedAt", "lastOrderDate");
         
         Customer updatedCustomer = customerRepository.save(existingCustomer);
         return convertToDTO(updatedCustomer);
@@ -140,6 +212,7 @@ public class CustomerService {
         customerRepository.save(customer);
     }
     
+    // Checked on the primary: a replica may not have the latest sign-up yet
     public boolean isEmailAvailable(String email) {
         return !customerRepository.existsByEmailAndIsActiveTrue(email);
     }
@@ -148,7 +221,39 @@ public class CustomerService {
         return !customerRepository.existsByPhoneAndIsActiveTrue(phone);
     }
     
-    private CustomerDTO convertToDTO(Customer customer) {
+    // Streams every active customer to out, converting and detaching them in batches
+    @Transactional(readOnly = true)
+    public void exportCustomers(OutputStream out, ExportFormat format) {
+        ExportWriter<CustomerDTO> writer = new ExportWriter<>(out, format, objectMapper, EXPORT_COLUMNS);
+        try (Stream<Customer> customers = customerRepository.streamActiveForExport()) {
+            writer.writeAll(customers, batch -> batch.stream().map(this::convertToDTO).collect(Collectors.toList()),
+                    entityManager);
+        }
+    }
+    
+    private static Map<String, Function<CustomerDTO, Object>> exportColumns() {
+        Map<String, Function<CustomerDTO, Object>> columns = new LinkedHashMap<>();
+        columns.put("id", CustomerDTO::getId);
+        columns.put("name", CustomerDTO::getName);
+        columns.put("email", CustomerDTO::getEmail);
+        columns.put("phone", CustomerDTO::getPhone);
+        columns.put("customerType", CustomerDTO::getCustomerType);
+        columns.put("institutionName", CustomerDTO::getInstitutionName);
+        columns.put("contactPerson", CustomerDTO::getContactPerson);
+        columns.put("gstNumber", CustomerDTO::getGstNumber);
+        columns.put("city", CustomerDTO::getCity);
+        columns.put("state", CustomerDTO::getState);
+        columns.put("pincode", CustomerDTO::getPincode);
+        columns.put("country", CustomerDTO::getCountry);
+        columns.put("totalOrders", CustomerDTO::getTotalOrders);
+        columns.put("totalOrderValue", CustomerDTO::getTotalOrderValue);
+        columns.put("lastOrderDate", CustomerDTO::getLastOrderDate);
+        return columns;
+    }
+    
+    // Package-private for the JMH list query benchmark and for ProjectionQueriesTest, which checks
+    // the projected list queries against it
+    CustomerDTO convertToDTO(Customer customer) {
         CustomerDTO dto = CustomerDTO.builder()
                 .id(customer.getId())
                 .name(customer.getName())
@@ -164,16 +269,11 @@ public class CustomerService {
                 .contactPerson(customer.getContactPerson())
                 .gstNumber(customer.getGstNumber())
                 .isActive(customer.getIsActive())
+                .totalOrders(customer.getOrderCount() != null ? customer.getOrderCount() : 0)
+                .totalOrderValue(customer.getLifetimeValue() != null ? customer.getLifetimeValue().doubleValue() : 0.0)
+                .lastOrderDate(customer.getLastOrderDate())
                 .build();
         
-        // Calculate order statistics
-        if (customer.getOrders() != null) {
-            dto.setTotalOrders(customer.getOrders().size());
-            dto.setTotalOrderValue(customer.getOrders().stream()
-                    .mapToDouble(order -> order.getFinalAmount().doubleValue())
-                    .sum());
-        }
-        
         return dto;
     }
     
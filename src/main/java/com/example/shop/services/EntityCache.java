@@ -0,0 +1,36 @@
+package com.example.shop.services;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Evictions from Hibernate's second-level cache for rows changed behind its back: the native
+ * stock and order statistics updates, which declare query spaces of their own so that Hibernate
+ * leaves all other cached entities alone.
+ *
+ * Hibernate's own locking does not cover these writes, so as with {@link BookCatalogCache} the
+ * entity is evicted immediately and again once the transaction has completed; a concurrent read
+ * that cached the old row in between does not outlive the write.
+ */
+@Component
+public class EntityCache {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    public void evict(Class<?> entityClass, Object id) {
+        entityManagerFactory.getCache().evict(entityClass, id);
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    entityManagerFactory.getCache().evict(entityClass, id);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.shop.services;
+
+import org.springframework.http.MediaType;
+
+// Formats of the streaming export endpoints
+public enum ExportFormat {
+    
+    // One JSON object per line
+    NDJSON("application/x-ndjson", "ndjson"),
+    CSV("text/csv", "csv");
+    
+    private final MediaType mediaType;
+    private final String extension;
+    
+    ExportFormat(String mediaType, String extension) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+        this.extension = extension;
+    }
+    
+    // Parses the format request parameter, by name or file extension and ignoring case
+    public static ExportFormat fromParameter(String value) {
+        for (ExportFormat format : values()) {
+            if (format.name().equalsIgnoreCase(value) || format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported export format: " + value);
+    }
+    
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+    
+    public String fileName(String name) {
+        return name + "." + extension;
+    }
+}
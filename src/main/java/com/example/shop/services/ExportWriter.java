@@ -0,0 +1,118 @@
+package com.example.shop.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Writes export rows one at a time, as NDJSON (the whole DTO as JSON) or CSV (the given
+ * columns). Nothing is kept after a row is written, so memory does not grow with the export.
+ */
+public class ExportWriter<T> {
+    
+    // Rows converted, written and detached together; matches the fetch size of the export queries
+    public static final int BATCH_SIZE = 500;
+    
+    private final Writer writer;
+    private final ExportFormat format;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Function<T, Object>> columns;
+    
+    public ExportWriter(OutputStream out, ExportFormat format, ObjectMapper objectMapper,
+            Map<String, Function<T, Object>> columns) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.format = format;
+        this.objectMapper = objectMapper;
+        this.columns = new LinkedHashMap<>(columns);
+        if (format == ExportFormat.CSV) {
+            writeLine(String.join(",", this.columns.keySet()));
+        }
+    }
+    
+    public void write(T row) {
+        if (format == ExportFormat.NDJSON) {
+            try {
+                writeLine(objectMapper.writeValueAsString(row));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return;
+        }
+        StringBuilder line = new StringBuilder();
+        boolean first = true;
+        for (Function<T, Object> column : columns.values()) {
+            if (!first) {
+                line.append(',');
+            }
+            line.append(csvValue(column.apply(row)));
+            first = false;
+        }
+        writeLine(line.toString());
+    }
+    
+    /**
+     * Writes every entity of the stream, converting them a batch at a time. After each batch the
+     * output is flushed to the client and the persistence context is cleared, so neither the
+     * response nor the session holds more than one batch.
+     */
+    public <E> void writeAll(Stream<E> entities, Function<List<E>, List<T>> converter, EntityManager entityManager) {
+        List<E> batch = new ArrayList<>(BATCH_SIZE);
+        entities.forEach(entity -> {
+            batch.add(entity);
+            if (batch.size() == BATCH_SIZE) {
+                writeBatch(batch, converter, entityManager);
+            }
+        });
+        writeBatch(batch, converter, entityManager);
+    }
+    
+    // Pushes buffered rows to the client; the response itself is closed by Spring
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private <E> void writeBatch(List<E> batch, Function<List<E>, List<T>> converter, EntityManager entityManager) {
+        converter.apply(batch).forEach(this::write);
+        flush();
+        batch.clear();
+        entityManager.clear();
+    }
+    
+    private void writeLine(String line) {
+        try {
+            writer.write(line);
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    static String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof Enum<?> constant ? constant.name() : value.toString();
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+}
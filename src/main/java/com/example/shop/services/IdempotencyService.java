@@ -0,0 +1,268 @@
+package com.example.shop.services;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shop.models.IdempotencyRecord;
+import com.example.shop.repositories.IdempotencyRecordRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Runs a request at most once per Idempotency-Key and replays its result to retries.
+ *
+ * Results live in the idempotency_keys table until they expire, with recent ones also held in
+ * memory. A key is claimed in its own transaction before the request runs, so a duplicate on
+ * another instance sees the claim and is told to retry later; duplicates on this instance wait
+ * for the running request and get its result. The result is stored in the same transaction as
+ * the request's own writes, so either both commit or neither does and the key is released.
+ *
+ * A running request refreshes its claim every third of the claim timeout, so only the claim of
+ * an instance that died goes stale. Should a claim still be taken over (e.g. after a long pause),
+ * the request finds its claim gone when storing the result and rolls back its writes.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String IDEMPOTENCY_CACHE = "idempotentRequests";
+
+    public static final int MAX_KEY_LENGTH = 100;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    // How long a result is replayed after the first request
+    @Value("${shop.idempotency.ttl:PT24H}")
+    private Duration ttl;
+
+    // A claim not refreshed for this long belongs to a request whose instance died and may be taken over
+    @Value("${shop.idempotency.claim-timeout:PT1M}")
+    private Duration claimTimeout;
+
+    private final ConcurrentMap<String, CompletableFuture<StoredResult>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the result of action for this key: the stored one if the key was already used for
+     * the same request, otherwise the result of running action now.
+     */
+    public <T> T execute(String key, Object request, Class<T> resultType, Supplier<T> action) {
+        if (key == null || key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String requestHash = hash(request);
+
+        StoredResult cached = idempotencyCache().get(key, StoredResult.class);
+        if (cached != null) {
+            return replay(key, cached, requestHash, resultType);
+        }
+
+        CompletableFuture<StoredResult> mine = new CompletableFuture<>();
+        CompletableFuture<StoredResult> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return replay(key, await(running), requestHash, resultType);
+        }
+
+        try {
+            StoredResult result = executeOnce(key, requestHash, action);
+            idempotencyCache().put(key, result);
+            mine.complete(result);
+            return replay(key, result, requestHash, resultType);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${shop.idempotency.purge-interval:PT1H}",
+               fixedDelayString = "${shop.idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        Integer purged = transactionTemplate.execute(status ->
+                idempotencyRecordRepository.deleteExpired(LocalDateTime.now()));
+        log.debug("Purged {} expired idempotency keys", purged);
+    }
+
+    private <T> StoredResult executeOnce(String key, String requestHash, Supplier<T> action) {
+        Claim claim = claim(key, requestHash);
+        if (claim.existing().isPresent()) {
+            IdempotencyRecord record = claim.existing().get();
+            if (record.getStatus() != IdempotencyRecord.Status.COMPLETED) {
+                throw new KeyInUseException("A request with this Idempotency-Key is still being processed");
+            }
+            return new StoredResult(record.getRequestHash(), record.getResponse());
+        }
+
+        Long claimId = claim.id();
+        Duration heartbeatInterval = claimTimeout.dividedBy(3);
+        ScheduledFuture<?> heartbeat = taskScheduler.scheduleAtFixedRate(() -> refreshClaim(key, claimId),
+                Instant.now().plus(heartbeatInterval), heartbeatInterval);
+        try {
+            return transactionTemplate.execute(status -> {
+                String response = toJson(action.get());
+                if (idempotencyRecordRepository.complete(claimId, response, LocalDateTime.now().plus(ttl)) == 0) {
+                    // Rolls back the request's writes; the request that took the key over makes its own
+                    throw new KeyInUseException("The claim on Idempotency-Key " + key + " was taken over by another request");
+                }
+                return new StoredResult(requestHash, response);
+            });
+        } catch (RuntimeException e) {
+            inNewTransaction().executeWithoutResult(status -> idempotencyRecordRepository.releaseClaim(claimId));
+            throw e;
+        } finally {
+            heartbeat.cancel(false);
+        }
+    }
+
+    private void refreshClaim(String key, Long claimId) {
+        try {
+            Integer refreshed = inNewTransaction().execute(status ->
+                    idempotencyRecordRepository.refreshClaim(claimId, LocalDateTime.now()));
+            if (refreshed == 0) {
+                log.warn("Claim on Idempotency-Key {} was taken over while its request was running", key);
+            }
+        } catch (RuntimeException e) {
+            // Keep the heartbeat going; a failed refresh is retried on the next beat
+            log.warn("Failed to refresh claim on Idempotency-Key {}", key, e);
+        }
+    }
+
+    // Claims the key for this request, or returns the record of whoever used it first
+    private Claim claim(String key, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        try {
+            return inNewTransaction().execute(status -> {
+                idempotencyRecordRepository.deleteIfExpiredOrStale(key, now, now.minus(claimTimeout));
+                Optional<IdempotencyRecord> existing = idempotencyRecordRepository.findByIdempotencyKey(key);
+                if (existing.isPresent()) {
+                    return new Claim(null, existing);
+                }
+                IdempotencyRecord claimed = idempotencyRecordRepository.saveAndFlush(IdempotencyRecord.builder()
+                        .idempotencyKey(key)
+                        .requestHash(requestHash)
+                        .expiresAt(now.plus(ttl))
+                        .build());
+                return new Claim(claimed.getId(), Optional.empty());
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another instance claimed the key between our lookup and insert
+            return new Claim(null, Optional.of(inNewTransaction().execute(status -> idempotencyRecordRepository
+                    .findByIdempotencyKey(key)
+                    .orElseThrow(() -> new KeyInUseException("A request with this Idempotency-Key is still being processed")))));
+        }
+    }
+
+    private <T> T replay(String key, StoredResult result, String requestHash, Class<T> resultType) {
+        if (!result.requestHash().equals(requestHash)) {
+            throw new KeyReusedException("Idempotency-Key " + key + " was already used for a different request");
+        }
+        try {
+            return objectMapper.readValue(result.response(), resultType);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to read stored result of Idempotency-Key " + key, e);
+        }
+    }
+
+    private static StoredResult await(CompletableFuture<StoredResult> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(objectMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new RuntimeException("Failed to hash request", e);
+        }
+    }
+
+    private String toJson(Object result) {
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Failed to store result", e);
+        }
+    }
+
+    private TransactionTemplate inNewTransaction() {
+        TransactionTemplate newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return newTransaction;
+    }
+
+    private Cache idempotencyCache() {
+        return cacheManager.getCache(IDEMPOTENCY_CACHE);
+    }
+
+    private record StoredResult(String requestHash, String response) {
+    }
+
+    // Either the id of our own claim on a key, or the record of whoever used the key first
+    private record Claim(Long id, Optional<IdempotencyRecord> existing) {
+    }
+
+    // The key is held by a request that has not finished yet
+    public static class KeyInUseException extends RuntimeException {
+        public KeyInUseException(String message) {
+            super(message);
+        }
+    }
+
+    // The key was first used with a different request body
+    public static class KeyReusedException extends RuntimeException {
+        public KeyReusedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.shop.services;
+
+/**
+ * Produces unique, human-readable order numbers without touching the database.
+ * Implementations must be thread-safe and must not collide across application instances.
+ */
+public interface OrderNumberGenerator {
+    
+    String PREFIX = "ORD";
+    
+    String nextOrderNumber();
+}
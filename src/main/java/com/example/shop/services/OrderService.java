@@ -1,21 +1,35 @@
 package com.example.shop.services;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.example.shop.dtos.CreateOrderRequest;
+import com.example.shop.dtos.CursorSlice;
+import com.example.shop.dtos.MonthlySalesDTO;
 import com.example.shop.dtos.OrderDTO;
 import com.example.shop.dtos.OrderItemDTO;
 import com.example.shop.dtos.SearchRequest;
@@ -28,10 +42,28 @@ import com.example.shop.repositories.CustomerRepository;
 import com.example.shop.repositories.OrderItemRepository;
 import com.example.shop.repositories.OrderRepository;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.annotation.Timed;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.Predicate;
+
 @Service
 @Transactional
+@Timed("shop.service")
 public class OrderService {
     
+    // Upper bound for the IN-list used when loading order items in batches
+    private static final int ORDER_ITEM_BATCH_SIZE = 1000;
+    
+    // CSV columns of the order export; NDJSON rows carry the whole order with its items
+    private static final Map<String, Function<OrderDTO, Object>> EXPORT_COLUMNS = exportColumns();
+    
+    // Non-null columns, the only ones a cursor can seek by
+    private static final Set<String> CURSOR_SORTS = Set.of("id", "orderNumber", "status", "totalAmount",
+            "finalAmount", "orderDate", "createdAt", "updatedAt");
+    
     @Autowired
     private OrderRepository orderRepository;
     
@@ -47,47 +79,62 @@ public class OrderService {
     @Autowired
     private BookService bookService;
     
+    @Autowired
+    private OrderNumberGenerator orderNumberGenerator;
+    
+    @Autowired
+    private SalesRollupService salesRollupService;
+    
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private EntityManager entityManager;
+    
+    @Autowired
+    private EntityCache entityCache;
+    
+    // List reads build DTOs straight from the result sets; no entities are loaded
+    @Transactional(readOnly = true)
     public List<OrderDTO> getAllOrders() {
-        return orderRepository.findAll()
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return withItems(orderRepository.findAllSummaries());
     }
     
+    @Transactional(readOnly = true)
     public Optional<OrderDTO> getOrderById(Long id) {
         return orderRepository.findById(id)
                 .map(this::convertToDTO);
     }
     
+    @Transactional(readOnly = true)
     public Optional<OrderDTO> getOrderByOrderNumber(String orderNumber) {
         return orderRepository.findByOrderNumber(orderNumber)
                 .map(this::convertToDTO);
     }
     
+    @Transactional(readOnly = true)
     public List<OrderDTO> getOrdersByCustomer(Long customerId) {
-        return orderRepository.findByCustomerIdOrderByOrderDateDesc(customerId)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return withItems(orderRepository.findSummariesByCustomerId(customerId));
     }
     
+    @Transactional(readOnly = true)
     public List<OrderDTO> getOrdersByStatus(Order.OrderStatus status) {
-        return orderRepository.findByStatusOrderByOrderDateDesc(status)
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return withItems(orderRepository.findSummariesByStatus(status));
     }
     
+    @Transactional(readOnly = true)
     public List<OrderDTO> getRecentOrders() {
-        return orderRepository.findTop10ByOrderByOrderDateDesc()
-                .stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return withItems(orderRepository.findRecentSummaries(PageRequest.of(0, 10)));
     }
     
+    @Transactional(readOnly = true)
     public Page<OrderDTO> searchOrders(SearchRequest searchRequest) {
-        Sort sort = Sort.by(Sort.Direction.fromString(searchRequest.getSortDirection()), 
-                           searchRequest.getSortBy());
+        Sort.Direction direction = Sort.Direction.fromString(searchRequest.getSortDirection());
+        // Break ties on id so rows sharing a sort value never repeat or go missing between pages
+        Sort sort = Sort.by(direction, searchRequest.getSortBy()).and(Sort.by(direction, "id"));
         Pageable pageable = PageRequest.of(searchRequest.getPage(), searchRequest.getSize(), sort);
         
         LocalDateTime startDate = null;
@@ -100,14 +147,65 @@ public class OrderService {
             endDate = LocalDateTime.parse(searchRequest.getEndDate() + "T23:59:59");
         }
         
-        return orderRepository.searchOrders(
+        Page<OrderDTO> orders = orderRepository.searchOrderSummaries(
                 searchRequest.getOrderNumber(),
                 searchRequest.getCustomerId(),
                 searchRequest.getOrderStatus(),
                 startDate,
                 endDate,
                 pageable
-        ).map(this::convertToDTO);
+        );
+        
+        withItems(orders.getContent());
+        return orders;
+    }
+    
+    // Keyset pagination: seeks past the last row of the previous window, so deep windows cost
+    // the same as the first one and no COUNT query is needed
+    @Transactional(readOnly = true)
+    public CursorSlice<OrderDTO> searchOrdersAfter(SearchRequest searchRequest) {
+        Sort.Direction direction = Sort.Direction.fromString(searchRequest.getSortDirection());
+        String sortBy = searchRequest.getSortBy();
+        SearchCursor.requireSortable(sortBy, CURSOR_SORTS);
+        KeysetScrollPosition position = SearchCursor.position(searchRequest.getCursor(), sortBy, direction);
+        
+        Window<Order> window = orderRepository.findBy(orderSearch(searchRequest), query -> query
+                .sortBy(SearchCursor.keysetSort(sortBy, direction))
+                .limit(searchRequest.getSize())
+                .project("customer")
+                .scroll(position));
+        
+        return CursorSlice.<OrderDTO>builder()
+                .content(convertToDTOs(window.getContent()))
+                .size(window.size())
+                .hasNext(window.hasNext())
+                .nextCursor(SearchCursor.nextCursor(window, sortBy, direction))
+                .build();
+    }
+    
+    // Same criteria as OrderRepository.searchOrderSummaries
+    private Specification<Order> orderSearch(SearchRequest searchRequest) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            if (searchRequest.getOrderNumber() != null) {
+                predicates.add(cb.like(root.get("orderNumber"), "%" + searchRequest.getOrderNumber() + "%"));
+            }
+            if (searchRequest.getCustomerId() != null) {
+                predicates.add(cb.equal(root.get("customer").get("id"), searchRequest.getCustomerId()));
+            }
+            if (searchRequest.getOrderStatus() != null) {
+                predicates.add(cb.equal(root.get("status"), searchRequest.getOrderStatus()));
+            }
+            if (searchRequest.getStartDate() != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("orderDate"),
+                        LocalDateTime.parse(searchRequest.getStartDate() + "T00:00:00")));
+            }
+            if (searchRequest.getEndDate() != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("orderDate"),
+                        LocalDateTime.parse(searchRequest.getEndDate() + "T23:59:59")));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
     }
     
     public OrderDTO createOrder(CreateOrderRequest request) {
@@ -117,7 +215,7 @@ public class OrderService {
         
         // Create order
         Order order = Order.builder()
-                .orderNumber(generateOrderNumber())
+                .orderNumber(orderNumberGenerator.nextOrderNumber())
                 .customer(customer)
                 .status(Order.OrderStatus.PENDING)
                 .orderDate(LocalDateTime.now())
@@ -132,19 +230,27 @@ public class OrderService {
                 .discountAmount(BigDecimal.ZERO)
                 .build();
         
-        Order savedOrder = orderRepository.save(order);
+        // Load every book in the order with a single query
+        Set<Long> bookIds = request.getOrderItems().stream()
+                .map(CreateOrderRequest.CreateOrderItemRequest::getBookId)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<Long, Book> books = bookRepository.findAllById(bookIds).stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
         
         // Create order items
+        List<OrderItem> orderItems = new ArrayList<>();
         BigDecimal totalAmount = BigDecimal.ZERO;
         
         for (CreateOrderRequest.CreateOrderItemRequest itemRequest : request.getOrderItems()) {
-            Book book = bookRepository.findById(itemRequest.getBookId())
-                    .orElseThrow(() -> new RuntimeException("Book not found: " + itemRequest.getBookId()));
+            Book book = books.get(itemRequest.getBookId());
+            if (book == null) {
+                throw new RuntimeException("Book not found: " + itemRequest.getBookId());
+            }
             
-            // Check stock availability
-            if (book.getQuantity() < itemRequest.getQuantity()) {
+            // Reserve stock atomically; fails if concurrent checkouts already took it
+            if (!bookService.tryReduceStock(book.getId(), itemRequest.getQuantity())) {
                 throw new RuntimeException("Insufficient stock for book: " + book.getTitle() + 
-                                         ". Available: " + book.getQuantity() + 
+                                         ". Available: " + bookRepository.findQuantityById(book.getId()).orElse(0) + 
                                          ", Requested: " + itemRequest.getQuantity());
             }
             
@@ -152,7 +258,7 @@ public class OrderService {
             BigDecimal itemTotal = unitPrice.multiply(BigDecimal.valueOf(itemRequest.getQuantity()));
             
             OrderItem orderItem = OrderItem.builder()
-                    .order(savedOrder)
+                    .order(order)
                     .book(book)
                     .quantity(itemRequest.getQuantity())
                     .unitPrice(unitPrice)
@@ -165,25 +271,30 @@ public class OrderService {
                     .bookSubject(book.getSubject())
                     .build();
             
-            orderItemRepository.save(orderItem);
+            orderItems.add(orderItem);
             totalAmount = totalAmount.add(itemTotal);
-            
-            // Reduce stock
-            bookService.reduceStock(book.getId(), itemRequest.getQuantity());
         }
         
-        // Update order totals
-        savedOrder.setTotalAmount(totalAmount);
-        savedOrder.setFinalAmount(totalAmount.subtract(savedOrder.getDiscountAmount()));
+        // Totals are known before the order is written, so it is inserted once and never updated
+        order.setTotalAmount(totalAmount);
+        order.setFinalAmount(totalAmount.subtract(order.getDiscountAmount()));
         
-        Order finalOrder = orderRepository.save(savedOrder);
-        return convertToDTO(finalOrder);
+        // Inserts are queued and sent as JDBC batches when the transaction flushes
+        Order savedOrder = orderRepository.save(order);
+        orderItemRepository.saveAll(orderItems);
+        customerRepository.recordOrder(customer.getId(), savedOrder.getFinalAmount(), savedOrder.getOrderDate());
+        entityCache.evict(Customer.class, customer.getId());
+        salesRollupService.recordOrderPlaced(savedOrder);
+        eventPublisher.publishEvent(booksSold(savedOrder, orderItems, 1));
+        
+        return convertToDTO(savedOrder, orderItems);
     }
     
     public OrderDTO updateOrderStatus(Long orderId, Order.OrderStatus status) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Order not found"));
         
+        Order.OrderStatus previousStatus = order.getStatus();
         order.setStatus(status);
         
         if (status == Order.OrderStatus.DELIVERED) {
@@ -191,6 +302,14 @@ public class OrderService {
         }
         
         Order updatedOrder = orderRepository.save(order);
+        salesRollupService.recordStatusChange(updatedOrder, previousStatus);
+        
+        // Cancelled orders do not count towards bestsellers
+        boolean wasCancelled = previousStatus == Order.OrderStatus.CANCELLED;
+        if (wasCancelled != (status == Order.OrderStatus.CANCELLED)) {
+            eventPublisher.publishEvent(booksSold(updatedOrder, orderItemRepository.findByOrderId(orderId),
+                    wasCancelled ? 1 : -1));
+        }
         return convertToDTO(updatedOrder);
     }
     
@@ -211,41 +330,134 @@ public class OrderService {
             throw new RuntimeException("Cannot cancel delivered order");
         }
         
+        if (order.getStatus() == Order.OrderStatus.CANCELLED) {
+            throw new RuntimeException("Order is already cancelled");
+        }
+        
         // Restore stock for all items
         List<OrderItem> orderItems = orderItemRepository.findByOrderId(orderId);
         for (OrderItem item : orderItems) {
-            Book book = item.getBook();
-            book.setQuantity(book.getQuantity() + item.getQuantity());
-            bookRepository.save(book);
+            bookService.restoreStock(item.getBook().getId(), item.getQuantity());
         }
         
+        Order.OrderStatus previousStatus = order.getStatus();
         order.setStatus(Order.OrderStatus.CANCELLED);
         orderRepository.save(order);
+        salesRollupService.recordStatusChange(order, previousStatus);
+        eventPublisher.publishEvent(booksSold(order, orderItems, -1));
+    }
+    
+    private static BooksSoldEvent booksSold(Order order, List<OrderItem> orderItems, int sign) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItem item : orderItems) {
+            quantities.merge(item.getBook().getId(), sign * item.getQuantity(), Integer::sum);
+        }
+        return new BooksSoldEvent(order.getId(), order.getStatus(), order.getOrderDate(), quantities);
     }
     
+    // Answered from the sales rollup rather than by aggregating the orders table
+    @Transactional(readOnly = true)
     public BigDecimal calculateTotalSales() {
-        BigDecimal totalSales = orderRepository.calculateTotalSales();
-        return totalSales != null ? totalSales : BigDecimal.ZERO;
+        return salesRollupService.totalSales();
     }
     
+    @Transactional(readOnly = true)
     public BigDecimal calculateSalesByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        if (SalesRollupService.coversWholeDays(startDate, endDate)) {
+            return salesRollupService.salesBetween(startDate.toLocalDate(), endDate.toLocalDate());
+        }
         BigDecimal sales = orderRepository.calculateSalesByDateRange(startDate, endDate);
         return sales != null ? sales : BigDecimal.ZERO;
     }
     
-    private String generateOrderNumber() {
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
-        String orderNumber = "ORD" + timestamp;
+    @Transactional(readOnly = true)
+    public List<MonthlySalesDTO> getMonthlySalesReport() {
+        return salesRollupService.monthlySalesReport();
+    }
+    
+    // Streams every order to out, oldest first, converting and detaching them in batches
+    @Transactional(readOnly = true)
+    public void exportOrders(OutputStream out, ExportFormat format) {
+        ExportWriter<OrderDTO> writer = new ExportWriter<>(out, format, objectMapper, EXPORT_COLUMNS);
+        try (Stream<Order> orders = orderRepository.streamAllForExport()) {
+            writer.writeAll(orders, this::convertToDTOs, entityManager);
+        }
+    }
+    
+    private static Map<String, Function<OrderDTO, Object>> exportColumns() {
+        Map<String, Function<OrderDTO, Object>> columns = new LinkedHashMap<>();
+        columns.put("id", OrderDTO::getId);
+        columns.put("orderNumber", OrderDTO::getOrderNumber);
+        columns.put("orderDate", OrderDTO::getOrderDate);
+        columns.put("customerId", OrderDTO::getCustomerId);
+        columns.put("customerName", OrderDTO::getCustomerName);
+        columns.put("customerEmail", OrderDTO::getCustomerEmail);
+        columns.put("status", OrderDTO::getStatus);
+        columns.put("paymentMethod", OrderDTO::getPaymentMethod);
+        columns.put("paymentStatus", OrderDTO::getPaymentStatus);
+        columns.put("totalItems", OrderDTO::getTotalItems);
+        columns.put("totalAmount", OrderDTO::getTotalAmount);
+        columns.put("discountAmount", OrderDTO::getDiscountAmount);
+        columns.put("finalAmount", OrderDTO::getFinalAmount);
+        columns.put("deliveryCity", OrderDTO::getDeliveryCity);
+        columns.put("deliveryState", OrderDTO::getDeliveryState);
+        columns.put("deliveryPincode", OrderDTO::getDeliveryPincode);
+        columns.put("deliveryDate", OrderDTO::getDeliveryDate);
+        return columns;
+    }
+    
+    private OrderDTO convertToDTO(Order order) {
+        return convertToDTOs(List.of(order)).get(0);
+    }
+    
+    // Converts a batch of orders, loading all of their items and books in a fixed number of queries
+    private List<OrderDTO> convertToDTOs(List<Order> orders) {
+        Map<Long, List<OrderItem>> itemsByOrderId = loadOrderItems(orders);
+        return orders.stream()
+                .map(order -> convertToDTO(order, itemsByOrderId.getOrDefault(order.getId(), List.of())))
+                .collect(Collectors.toList());
+    }
+    
+    // Adds the items to a batch of order summaries, read as DTOs in a fixed number of queries
+    private List<OrderDTO> withItems(List<OrderDTO> orders) {
+        List<Long> orderIds = orders.stream()
+                .map(OrderDTO::getId)
+                .collect(Collectors.toList());
         
-        // Ensure uniqueness
-        while (orderRepository.existsByOrderNumber(orderNumber)) {
-            orderNumber = "ORD" + timestamp + System.currentTimeMillis() % 1000;
+        Map<Long, List<OrderItemDTO>> itemsByOrderId = new HashMap<>();
+        for (int from = 0; from < orderIds.size(); from += ORDER_ITEM_BATCH_SIZE) {
+            List<Long> batch = orderIds.subList(from, Math.min(from + ORDER_ITEM_BATCH_SIZE, orderIds.size()));
+            for (OrderItemDTO item : orderItemRepository.findDTOsByOrderIdIn(batch)) {
+                itemsByOrderId.computeIfAbsent(item.getOrderId(), id -> new ArrayList<>()).add(item);
+            }
         }
         
-        return orderNumber;
+        for (OrderDTO order : orders) {
+            List<OrderItemDTO> items = itemsByOrderId.getOrDefault(order.getId(), new ArrayList<>());
+            order.setOrderItems(items);
+            order.setTotalItems(items.size());
+        }
+        return orders;
     }
     
-    private OrderDTO convertToDTO(Order order) {
+    private Map<Long, List<OrderItem>> loadOrderItems(List<Order> orders) {
+        List<Long> orderIds = orders.stream()
+                .map(Order::getId)
+                .collect(Collectors.toList());
+        
+        Map<Long, List<OrderItem>> itemsByOrderId = new HashMap<>();
+        for (int from = 0; from < orderIds.size(); from += ORDER_ITEM_BATCH_SIZE) {
+            List<Long> batch = orderIds.subList(from, Math.min(from + ORDER_ITEM_BATCH_SIZE, orderIds.size()));
+            for (OrderItem item : orderItemRepository.findByOrderIdInWithBook(batch)) {
+                itemsByOrderId.computeIfAbsent(item.getOrder().getId(), id -> new ArrayList<>()).add(item);
+            }
+        }
+        return itemsByOrderId;
+    }
+    
+    // Package-private for the JMH mapping benchmarks and for ProjectionQueriesTest, which checks
+    // the projected list queries against it
+    OrderDTO convertToDTO(Order order, List<OrderItem> orderItems) {
         OrderDTO dto = OrderDTO.builder()
                 .id(order.getId())
                 .orderNumber(order.getOrderNumber())
@@ -269,8 +481,6 @@ public class OrderService {
                 .paymentStatus(order.getPaymentStatus())
                 .build();
         
-        // Load order items
-        List<OrderItem> orderItems = orderItemRepository.findByOrderId(order.getId());
         List<OrderItemDTO> orderItemDTOs = orderItems.stream()
                 .map(this::convertOrderItemToDTO)
                 .collect(Collectors.toList());
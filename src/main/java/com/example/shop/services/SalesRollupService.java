@@ -0,0 +1,215 @@
+package com.example.shop.services;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.shop.dtos.MonthlySalesDTO;
+import com.example.shop.models.Order;
+import com.example.shop.models.SalesRollup;
+import com.example.shop.models.SalesRollup.Granularity;
+import com.example.shop.repositories.OrderRepository;
+import com.example.shop.repositories.SalesRollupRepository;
+
+/**
+ * Daily and monthly order count and revenue per order status, kept up to date by OrderService
+ * in the same transaction as the order change, so the sales analytics read a handful of
+ * buckets instead of aggregating the orders table.
+ *
+ * Orders written around OrderService (imports, manual fixes) are not seen, so a nightly
+ * reconciliation rebuilds every bucket from the orders table and logs the buckets that drifted.
+ */
+@Service
+@Transactional
+public class SalesRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesRollupService.class);
+
+    // Statuses that count as sales, same as the original OrderRepository queries
+    public static final Set<Order.OrderStatus> SALES_STATUSES =
+            EnumSet.of(Order.OrderStatus.CONFIRMED, Order.OrderStatus.DELIVERED);
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    public void recordOrderPlaced(Order order) {
+        add(order.getOrderDate(), order.getStatus(), 1, order.getFinalAmount());
+    }
+
+    public void recordStatusChange(Order order, Order.OrderStatus previousStatus) {
+        if (previousStatus == order.getStatus()) {
+            return;
+        }
+        add(order.getOrderDate(), previousStatus, -1, order.getFinalAmount().negate());
+        add(order.getOrderDate(), order.getStatus(), 1, order.getFinalAmount());
+    }
+
+    @Transactional(readOnly = true)
+    public BigDecimal totalSales() {
+        return salesRollupRepository.sumRevenue(Granularity.MONTH, SALES_STATUSES);
+    }
+
+    // Sales of orders placed on the days from first to last, inclusive: whole months are read from
+    // the monthly buckets and only the partial months at either end from the daily ones
+    @Transactional(readOnly = true)
+    public BigDecimal salesBetween(LocalDate first, LocalDate last) {
+        LocalDate end = last.plusDays(1);
+        LocalDate firstWholeMonth = first.getDayOfMonth() == 1 ? first : first.withDayOfMonth(1).plusMonths(1);
+        LocalDate endOfWholeMonths = end.withDayOfMonth(1);
+        if (!firstWholeMonth.isBefore(endOfWholeMonths)) {
+            return salesRollupRepository.sumRevenueBetween(Granularity.DAY, SALES_STATUSES, first, end);
+        }
+        return salesRollupRepository.sumRevenueBetween(Granularity.DAY, SALES_STATUSES, first, firstWholeMonth)
+                .add(salesRollupRepository.sumRevenueBetween(Granularity.MONTH, SALES_STATUSES,
+                        firstWholeMonth, endOfWholeMonths))
+                .add(salesRollupRepository.sumRevenueBetween(Granularity.DAY, SALES_STATUSES, endOfWholeMonths, end));
+    }
+
+    // Whether a date-time range covers whole days, so it can be answered from the buckets
+    public static boolean coversWholeDays(LocalDateTime start, LocalDateTime end) {
+        return start.toLocalTime().equals(LocalTime.MIDNIGHT)
+                && !end.toLocalTime().isBefore(LocalTime.of(23, 59, 59));
+    }
+
+    @Transactional(readOnly = true)
+    public List<MonthlySalesDTO> monthlySalesReport() {
+        List<MonthlySalesDTO> report = new ArrayList<>();
+        for (Object[] row : salesRollupRepository.getMonthlySalesReport(SALES_STATUSES)) {
+            LocalDate month = (LocalDate) row[0];
+            report.add(MonthlySalesDTO.builder()
+                    .year(month.getYear())
+                    .month(month.getMonthValue())
+                    .totalSales((BigDecimal) row[1])
+                    .orderCount(((Number) row[2]).longValue())
+                    .build());
+        }
+        return report;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        // Builds the buckets on first start and catches up on anything missed while down
+        reconcile();
+    }
+
+    /**
+     * Rebuilds every bucket from the orders table and returns how many had drifted. All buckets
+     * are locked before the orders are summed, so orders placed meanwhile wait and are added on
+     * top of the rebuilt values. Buckets the sum needs but that do not exist yet are created the
+     * same way orders create them and the buckets locked again, since an order may have created
+     * one after the lock was taken.
+     */
+    @Scheduled(cron = "${shop.sales.rollup.reconcile-cron:0 30 2 * * *}")
+    public int reconcile() {
+        long startedAt = System.nanoTime();
+        Map<BucketKey, SalesRollup> buckets = lockBuckets();
+        // A missing bucket is drift too, except when the rollup is being built for the first time
+        boolean firstBuild = buckets.isEmpty();
+
+        Map<BucketKey, Totals> expected = expectedTotals();
+        Set<BucketKey> missing = new HashSet<>(expected.keySet());
+        missing.removeAll(buckets.keySet());
+        while (!missing.isEmpty()) {
+            for (BucketKey key : missing) {
+                salesRollupRepository.createBucketIfAbsent(key.granularity().name(), key.bucketStart(),
+                        key.status().name());
+            }
+            buckets = lockBuckets();
+            expected = expectedTotals();
+            missing = new HashSet<>(expected.keySet());
+            missing.removeAll(buckets.keySet());
+        }
+
+        int drifted = 0;
+        for (Map.Entry<BucketKey, SalesRollup> entry : buckets.entrySet()) {
+            Totals actual = expected.getOrDefault(entry.getKey(), Totals.NONE);
+            SalesRollup bucket = entry.getValue();
+            if (actual.matches(bucket)) {
+                continue;
+            }
+            if (!firstBuild) {
+                drifted++;
+                log.warn("Sales rollup {} {} {} drifted: {} orders / {} recorded, {} orders / {} in orders table",
+                        entry.getKey().granularity(), entry.getKey().bucketStart(), entry.getKey().status(),
+                        bucket.getOrderCount(), bucket.getRevenue(), actual.orders(), actual.revenue());
+            }
+            bucket.setOrderCount(actual.orders());
+            bucket.setRevenue(actual.revenue());
+            salesRollupRepository.save(bucket);
+        }
+
+        log.info("Sales rollup reconciled: {} buckets, {} drifted, in {} ms",
+                buckets.size(), drifted, (System.nanoTime() - startedAt) / 1_000_000);
+        return drifted;
+    }
+
+    private Map<BucketKey, SalesRollup> lockBuckets() {
+        Map<BucketKey, SalesRollup> buckets = new HashMap<>();
+        for (SalesRollup bucket : salesRollupRepository.findAllForUpdate()) {
+            buckets.put(new BucketKey(bucket.getGranularity(), bucket.getBucketStart(), bucket.getStatus()), bucket);
+        }
+        return buckets;
+    }
+
+    private Map<BucketKey, Totals> expectedTotals() {
+        Map<BucketKey, Totals> expected = new HashMap<>();
+        for (Object[] row : orderRepository.sumOrdersByDayAndStatus()) {
+            LocalDate day = (LocalDate) row[0];
+            Order.OrderStatus status = (Order.OrderStatus) row[1];
+            Totals totals = new Totals(((Number) row[2]).longValue(), (BigDecimal) row[3]);
+            for (Granularity granularity : Granularity.values()) {
+                expected.merge(new BucketKey(granularity, granularity.bucketStart(day), status), totals, Totals::plus);
+            }
+        }
+        return expected;
+    }
+
+    private void add(LocalDateTime orderDate, Order.OrderStatus status, long orders, BigDecimal revenue) {
+        if (orderDate == null) {
+            return;
+        }
+        for (Granularity granularity : Granularity.values()) {
+            LocalDate bucketStart = granularity.bucketStart(orderDate.toLocalDate());
+            if (salesRollupRepository.addToBucket(granularity, bucketStart, status, orders, revenue) == 0) {
+                salesRollupRepository.createBucketIfAbsent(granularity.name(), bucketStart, status.name());
+                salesRollupRepository.addToBucket(granularity, bucketStart, status, orders, revenue);
+            }
+        }
+    }
+
+    private record BucketKey(Granularity granularity, LocalDate bucketStart, Order.OrderStatus status) {
+    }
+
+    private record Totals(long orders, BigDecimal revenue) {
+
+        static final Totals NONE = new Totals(0, BigDecimal.ZERO);
+
+        Totals plus(Totals other) {
+            return new Totals(orders + other.orders, revenue.add(other.revenue));
+        }
+
+        boolean matches(SalesRollup bucket) {
+            return bucket.getOrderCount() == orders && bucket.getRevenue().compareTo(revenue) == 0;
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.shop.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+
+/**
+ * Opaque cursor tokens for keyset pagination.
+ *
+ * A cursor holds the sort it was issued for and the key values of the last row returned, each
+ * tagged with its type so it can be bound back as a query parameter of the right type. The
+ * token is URL-safe base64; it is not signed, so decoding only accepts the keys the current
+ * sort allows and enums from the model package.
+ */
+public final class SearchCursor {
+
+    private static final byte VERSION = 1;
+    private static final String MODEL_PACKAGE = "com.example.shop.models.";
+
+    private SearchCursor() {
+    }
+
+    // A seek key must never be NULL: "key > ?" is unknown for a NULL row, so those rows would be
+    // skipped or repeated. Each search passes the non-null columns of its entity
+    public static void requireSortable(String sortBy, Set<String> sortable) {
+        if (!sortable.contains(sortBy)) {
+            throw new IllegalArgumentException("Cursor paging cannot sort by " + sortBy
+                    + "; sort by one of " + String.join(", ", new TreeSet<>(sortable)));
+        }
+    }
+
+    // The sort key plus id as a tie-breaker, so every row has a unique position
+    public static Set<String> keyProperties(String sortBy) {
+        Set<String> properties = new LinkedHashSet<>();
+        properties.add(sortBy);
+        properties.add("id");
+        return properties;
+    }
+
+    public static Sort keysetSort(String sortBy, Sort.Direction direction) {
+        return Sort.by(keyProperties(sortBy).stream()
+                .map(property -> new Sort.Order(direction, property))
+                .toList());
+    }
+
+    public static KeysetScrollPosition position(String cursor, String sortBy, Sort.Direction direction) {
+        Map<String, Object> keys = decode(cursor, sortBy, direction, keyProperties(sortBy));
+        return keys.isEmpty() ? ScrollPosition.keyset() : ScrollPosition.forward(keys);
+    }
+
+    public static <T> String nextCursor(Window<T> window, String sortBy, Sort.Direction direction) {
+        if (!window.hasNext() || window.isEmpty()) {
+            return null;
+        }
+        KeysetScrollPosition last = (KeysetScrollPosition) window.positionAt(window.size() - 1);
+        return encode(sortBy, direction, last.getKeys());
+    }
+
+    public static String encode(String sortBy, Sort.Direction direction, Map<String, ?> keys) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(VERSION);
+            out.writeUTF(sortBy);
+            out.writeUTF(direction.name());
+            out.writeByte(keys.size());
+            for (Map.Entry<String, ?> key : keys.entrySet()) {
+                out.writeUTF(key.getKey());
+                writeValue(out, key.getValue());
+            }
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not encode cursor", e);
+        }
+    }
+
+    // An empty cursor means "first window" and decodes to no keys
+    public static Map<String, Object> decode(String cursor, String sortBy, Sort.Direction direction,
+            Set<String> allowedKeys) {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        if (cursor == null || cursor.isBlank()) {
+            return keys;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)));
+            if (in.readByte() != VERSION) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            if (!in.readUTF().equals(sortBy) || !in.readUTF().equals(direction.name())) {
+                throw new IllegalArgumentException("Cursor does not match the requested sort order");
+            }
+            int count = in.readByte();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                if (!allowedKeys.contains(key)) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+                keys.put(key, readValue(in));
+            }
+            if (!keys.keySet().equals(allowedKeys)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return keys;
+        } catch (IOException | DateTimeException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte('N');
+        } else if (value instanceof Long number) {
+            out.writeByte('J');
+            out.writeLong(number);
+        } else if (value instanceof Integer number) {
+            out.writeByte('I');
+            out.writeInt(number);
+        } else if (value instanceof Double number) {
+            out.writeByte('D');
+            out.writeDouble(number);
+        } else if (value instanceof BigDecimal number) {
+            out.writeByte('M');
+            out.writeUTF(number.toPlainString());
+        } else if (value instanceof Boolean flag) {
+            out.writeByte('Z');
+            out.writeBoolean(flag);
+        } else if (value instanceof String text) {
+            out.writeByte('S');
+            out.writeUTF(text);
+        } else if (value instanceof LocalDateTime dateTime) {
+            out.writeByte('T');
+            out.writeUTF(dateTime.toString());
+        } else if (value instanceof LocalDate date) {
+            out.writeByte('L');
+            out.writeUTF(date.toString());
+        } else if (value instanceof Enum<?> constant) {
+            out.writeByte('E');
+            out.writeUTF(constant.getDeclaringClass().getName());
+            out.writeUTF(constant.name());
+        } else {
+            throw new IllegalArgumentException("Cannot page by a value of type " + value.getClass().getSimpleName());
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case 'N':
+                return null;
+            case 'J':
+                return in.readLong();
+            case 'I':
+                return in.readInt();
+            case 'D':
+                return in.readDouble();
+            case 'M':
+                return new BigDecimal(in.readUTF());
+            case 'Z':
+                return in.readBoolean();
+            case 'S':
+                return in.readUTF();
+            case 'T':
+                return LocalDateTime.parse(in.readUTF());
+            case 'L':
+                return LocalDate.parse(in.readUTF());
+            case 'E':
+                String type = in.readUTF();
+                String name = in.readUTF();
+                if (!type.startsWith(MODEL_PACKAGE)) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+                try {
+                    Class<?> enumType = Class.forName(type);
+                    if (!enumType.isEnum()) {
+                        throw new IllegalArgumentException("Invalid cursor");
+                    }
+                    return Enum.valueOf((Class<? extends Enum>) enumType, name);
+                } catch (ClassNotFoundException e) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+            default:
+                throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
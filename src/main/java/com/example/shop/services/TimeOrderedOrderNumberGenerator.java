@@ -0,0 +1,74 @@
+package com.example.shop.services;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Order numbers of the form {@code ORD yyyyMMddHHmmss NN SSSSS}: the second the order was
+ * placed in UTC, a two digit node id and a per-second sequence, e.g. {@code ORD202610170204340700001}.
+ * Local time would repeat an hour when daylight saving time ends, and with it the numbers.
+ * 
+ * Numbers from one node are strictly increasing. Each instance must be started with its own
+ * {@code shop.orders.node-id} (0-99) so that instances never hand out the same number.
+ * Up to 100,000 numbers per second are available per node; past that the generator moves on
+ * to the following second instead of blocking, so the embedded time can briefly run ahead.
+ */
+@Component
+public class TimeOrderedOrderNumberGenerator implements OrderNumberGenerator {
+    
+    static final int MAX_NODE_ID = 99;
+    static final int MAX_SEQUENCE = 99_999;
+    
+    private static final DateTimeFormatter SECOND_FORMAT = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    
+    private final Clock clock;
+    private final String nodeId;
+    
+    private long currentSecond = Long.MIN_VALUE;
+    private String currentPrefix;
+    private int sequence;
+    
+    @Autowired
+    public TimeOrderedOrderNumberGenerator(@Value("${shop.orders.node-id:0}") int nodeId) {
+        this(nodeId, Clock.systemUTC());
+    }
+    
+    TimeOrderedOrderNumberGenerator(int nodeId, Clock clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Order node id must be between 0 and " + MAX_NODE_ID + ", got " + nodeId);
+        }
+        this.clock = clock;
+        this.nodeId = String.format("%02d", nodeId);
+    }
+    
+    @Override
+    public synchronized String nextOrderNumber() {
+        long second = Math.floorDiv(clock.millis(), 1000);
+        
+        // Never move backwards, even if the wall clock does
+        if (second > currentSecond) {
+            startSecond(second);
+        } else if (sequence == MAX_SEQUENCE) {
+            startSecond(currentSecond + 1);
+        } else {
+            sequence++;
+        }
+        
+        return currentPrefix + String.format("%05d", sequence);
+    }
+    
+    private void startSecond(long second) {
+        currentSecond = second;
+        currentPrefix = PREFIX
+                + LocalDateTime.ofInstant(Instant.ofEpochSecond(second), ZoneOffset.UTC).format(SECOND_FORMAT)
+                + nodeId;
+        sequence = 0;
+    }
+}
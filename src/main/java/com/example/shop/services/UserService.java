@@ -15,8 +15,11 @@ import com.example.shop.dtos.UserDTO;
 import com.example.shop.models.User;
 import com.example.shop.repositories.UserRepository;
 
+import io.micrometer.core.annotation.Timed;
+
 @Service
 @Transactional
+@Timed("shop.service")
 public class UserService {
     
     @Autowired
@@ -26,6 +29,8 @@ public class UserService {
     // @Autowired
     // private PasswordEncoder passwordEncoder;
     
+    // Read-only: no flush and no dirty-checking snapshots for the loaded users
+    @Transactional(readOnly = true)
     public List<UserDTO> getAllUsers() {
         return userRepository.findByIsActiveTrue()
                 .stream()
@@ -33,17 +38,20 @@ public class UserService {
                 .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public Optional<UserDTO> getUserById(Long id) {
         return userRepository.findById(id)
                 .filter(user -> user.getIsActive())
                 .map(this::convertToDTO);
     }
     
+    @Transactional(readOnly = true)
     public Optional<UserDTO> getUserByEmail(String email) {
         return userRepository.findByEmailAndIsActiveTrue(email)
                 .map(this::convertToDTO);
     }
     
+    @Transactional(readOnly = true)
     public List<UserDTO> getUsersByRole(User.Role role) {
         return userRepository.findByRoleAndIsActiveTrue(role)
                 .stream()
@@ -51,6 +59,7 @@ public class UserService {
                 .collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public List<UserDTO> searchUsers(SearchRequest searchRequest) {
         return userRepository.searchUsers(
                 searchRequest.getName(),
@@ -59,6 +68,7 @@ public class UserService {
         ).stream().map(this::convertToDTO).collect(Collectors.toList());
     }
     
+    @Transactional(readOnly = true)
     public List<UserDTO> getAdminUsers() {
         List<User.Role> adminRoles = List.of(User.Role.ADMIN, User.Role.MANAGER);
         return userRepository.findByRoleInAndIsActiveTrue(adminRoles)
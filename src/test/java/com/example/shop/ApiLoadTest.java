@@ -0,0 +1,424 @@
+package com.example.shop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.shop.configs.CustomerOrderStatsBackfill;
+import com.example.shop.controllers.OrderController;
+import com.example.shop.dtos.CreateOrderRequest;
+import com.example.shop.models.Book;
+import com.example.shop.models.Order;
+import com.example.shop.services.BestsellerLeaderboard;
+import com.example.shop.services.BookSearchIndex;
+import com.example.shop.services.BookSuggestionIndex;
+import com.example.shop.services.CatalogIndex;
+import com.example.shop.services.SalesRollupService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Peak-season load test of the REST API over real HTTP. Seeds 50k books, 100k customers and 1M
+ * orders into an H2 database on disk, then has concurrent clients replay a mix of catalog
+ * browsing, search, order history, checkout, cancellation and sales analytics, and reports
+ * throughput and p50/p99 latency per endpoint to the log and to target/load-test-report.json.
+ *
+ * Runs offline with the load profile only: mvn test -Pload
+ * Sizes and timings can be overridden, e.g. -Dload.orders=100000 -Dload.clients=100 -Dload.duration=PT5M
+ */
+@Tag("load")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+	// On disk, so a million orders do not have to fit in the heap
+	"spring.datasource.url=jdbc:h2:file:./target/load-test/shop;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+			+ "DEFAULT_NULL_ORDERING=HIGH;LOCK_TIMEOUT=10000;CACHE_SIZE=262144",
+	"logging.level.org.springframework.web=WARN"
+})
+@ActiveProfiles("test")
+class ApiLoadTest {
+
+	private static final Logger log = LoggerFactory.getLogger(ApiLoadTest.class);
+
+	private static final String[] SEARCH_WORDS = { "algebra", "grammar", "physics", "chemistry", "biology",
+			"geography", "history", "workbook", "guide", "reader", "papers", "lab", "sharma", "iyer", "ncert",
+			"oxford", "arihant", "class" };
+
+	@Value("${load.books:50000}")
+	private int books;
+
+	@Value("${load.customers:100000}")
+	private int customers;
+
+	@Value("${load.orders:1000000}")
+	private int orders;
+
+	// Concurrent clients, each sending its next request as soon as the previous one returns
+	@Value("${load.clients:50}")
+	private int clients;
+
+	@Value("${load.warmup:PT30S}")
+	private Duration warmup;
+
+	@Value("${load.duration:PT2M}")
+	private Duration duration;
+
+	@Value("${load.seed:42}")
+	private long seed;
+
+	@Value("${load.report:target/load-test-report.json}")
+	private Path report;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private CustomerOrderStatsBackfill customerOrderStatsBackfill;
+
+	@Autowired
+	private SalesRollupService salesRollupService;
+
+	@Autowired
+	private CatalogIndex catalogIndex;
+
+	@Autowired
+	private BookSearchIndex bookSearchIndex;
+
+	@Autowired
+	private BookSuggestionIndex bookSuggestionIndex;
+
+	@Autowired
+	private BestsellerLeaderboard bestsellerLeaderboard;
+
+	private final HttpClient httpClient = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofSeconds(10))
+			.build();
+
+	// Orders placed during the run are cancelled first, then the seeded pending ones
+	private final Queue<Long> placedOrders = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger nextPendingOrder = new AtomicInteger();
+	private List<Long> pendingOrders;
+
+	// Share of requests per endpoint, out of 100
+	private enum Endpoint {
+		BROWSE("GET /api/books/search?grade&board", 30),
+		BOOK("GET /api/books/{id}", 15),
+		SEARCH("GET /api/books/search?q", 14),
+		SUGGEST("GET /api/books/suggest", 5),
+		BESTSELLERS("GET /api/books/bestsellers", 5),
+		ORDER_HISTORY("GET /api/orders/customer/{id}", 8),
+		CHECKOUT("POST /api/orders", 12),
+		CANCEL("DELETE /api/orders/{id}", 4),
+		MONTHLY_SALES("GET /api/orders/analytics/monthly-sales", 3),
+		SALES_BY_DATE_RANGE("GET /api/orders/analytics/sales-by-date-range", 3),
+		TOTAL_SALES("GET /api/orders/analytics/total-sales", 1);
+
+		private final String label;
+		private final int weight;
+
+		Endpoint(String label, int weight) {
+			this.label = label;
+			this.weight = weight;
+		}
+	}
+
+	@Test
+	void peakSeasonMixedWorkload() throws Exception {
+		seed();
+
+		ExecutorService executor = Executors.newFixedThreadPool(clients);
+		long startedAt = System.nanoTime();
+		long measureFrom = startedAt + warmup.toNanos();
+		long measureUntil = measureFrom + duration.toNanos();
+		List<Future<Map<Endpoint, Samples>>> futures = new ArrayList<>();
+		for (int client = 0; client < clients; client++) {
+			Random random = new Random(seed + client);
+			futures.add(executor.submit(() -> runClient(random, measureFrom, measureUntil)));
+		}
+
+		Map<Endpoint, Samples> results = new EnumMap<>(Endpoint.class);
+		for (Future<Map<Endpoint, Samples>> future : futures) {
+			future.get(warmup.plus(duration).toSeconds() + 300, TimeUnit.SECONDS)
+					.forEach((endpoint, samples) -> results.computeIfAbsent(endpoint, e -> new Samples()).add(samples));
+		}
+		executor.shutdown();
+
+		report(results);
+		List<String> errors = new ArrayList<>();
+		results.forEach((endpoint, samples) -> {
+			if (samples.errors > 0) {
+				errors.add(endpoint.label + ": " + samples.errors + " failed, first " + samples.firstError);
+			}
+		});
+		assertEquals(List.of(), errors);
+	}
+
+	private Map<Endpoint, Samples> runClient(Random random, long measureFrom, long measureUntil) {
+		Map<Endpoint, Samples> samples = new EnumMap<>(Endpoint.class);
+		while (System.nanoTime() < measureUntil) {
+			Endpoint endpoint = pick(random);
+			HttpRequest request = request(endpoint, random);
+			if (request == null) {
+				continue;
+			}
+
+			long sentAt = System.nanoTime();
+			String error = null;
+			try {
+				HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+				if (response.statusCode() >= 400) {
+					error = response.statusCode() + " " + response.body();
+				} else if (endpoint == Endpoint.CHECKOUT) {
+					placedOrders.add(objectMapper.readTree(response.body()).path("data").path("id").asLong());
+				}
+			} catch (IOException e) {
+				error = e.toString();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			long latency = System.nanoTime() - sentAt;
+
+			if (sentAt >= measureFrom) {
+				samples.computeIfAbsent(endpoint, e -> new Samples()).record(latency, error);
+			}
+		}
+		return samples;
+	}
+
+	private static Endpoint pick(Random random) {
+		int roll = random.nextInt(100);
+		for (Endpoint endpoint : Endpoint.values()) {
+			roll -= endpoint.weight;
+			if (roll < 0) {
+				return endpoint;
+			}
+		}
+		return Endpoint.BROWSE;
+	}
+
+	// The request a client sends for this endpoint, or null when there is nothing left to cancel
+	private HttpRequest request(Endpoint endpoint, Random random) {
+		Book.Board[] boards = Book.Board.values();
+		switch (endpoint) {
+			case BROWSE:
+				return get("/api/books/search?grade=" + (1 + random.nextInt(12)) + "&board="
+						+ boards[random.nextInt(boards.length)] + "&sortBy=title&page=" + random.nextInt(5) + "&size=20");
+			case BOOK:
+				return get("/api/books/" + LoadTestSeeder.bookId(random.nextInt(books)));
+			case SEARCH:
+				return get("/api/books/search?q=" + SEARCH_WORDS[random.nextInt(SEARCH_WORDS.length)] + "&size=20&sortBy=relevance");
+			case SUGGEST:
+				String word = LoadTestSeeder.SUBJECTS[random.nextInt(LoadTestSeeder.SUBJECTS.length)];
+				return get("/api/books/suggest?prefix=" + word.substring(0, 2 + random.nextInt(3)).toLowerCase());
+			case BESTSELLERS:
+				return get("/api/books/bestsellers?limit=20&grade=" + (1 + random.nextInt(12)));
+			case ORDER_HISTORY:
+				return get("/api/orders/customer/" + LoadTestSeeder.customerId(random.nextInt(customers)));
+			case CHECKOUT:
+				return checkout(random);
+			case CANCEL:
+				Long orderId = orderToCancel();
+				return orderId == null ? null : HttpRequest.newBuilder(uri("/api/orders/" + orderId)).DELETE().build();
+			case MONTHLY_SALES:
+				return get("/api/orders/analytics/monthly-sales");
+			case SALES_BY_DATE_RANGE:
+				LocalDate end = LocalDate.now().minusDays(random.nextInt(365));
+				return get("/api/orders/analytics/sales-by-date-range?startDate=" + end.minusDays(30) + "&endDate=" + end);
+			default:
+				return get("/api/orders/analytics/total-sales");
+		}
+	}
+
+	private HttpRequest checkout(Random random) {
+		List<CreateOrderRequest.CreateOrderItemRequest> items = new ArrayList<>();
+		int count = 1 + random.nextInt(3);
+		for (int i = 0; i < count; i++) {
+			items.add(CreateOrderRequest.CreateOrderItemRequest.builder()
+					.bookId(LoadTestSeeder.bookId(random.nextInt(books)))
+					.quantity(1 + random.nextInt(2))
+					.build());
+		}
+		CreateOrderRequest order = CreateOrderRequest.builder()
+				.customerId(LoadTestSeeder.customerId(random.nextInt(customers)))
+				.orderItems(items)
+				.deliveryAddress("12 School Road")
+				.deliveryCity("Pune")
+				.deliveryState("Maharashtra")
+				.deliveryPincode("411001")
+				.contactPhone("9876543210")
+				.paymentMethod(Order.PaymentMethod.UPI)
+				.build();
+		try {
+			return HttpRequest.newBuilder(uri("/api/orders"))
+					.header("Content-Type", "application/json")
+					.header(OrderController.IDEMPOTENCY_KEY_HEADER, "load-" + random.nextLong())
+					.POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(order)))
+					.build();
+		} catch (IOException e) {
+			throw new RuntimeException("Failed to write order request", e);
+		}
+	}
+
+	private Long orderToCancel() {
+		Long orderId = placedOrders.poll();
+		if (orderId != null) {
+			return orderId;
+		}
+		int next = nextPendingOrder.getAndIncrement();
+		return next < pendingOrders.size() ? pendingOrders.get(next) : null;
+	}
+
+	private HttpRequest get(String path) {
+		return HttpRequest.newBuilder(uri(path)).GET().build();
+	}
+
+	private URI uri(String path) {
+		return URI.create("http://localhost:" + port + path);
+	}
+
+	// Loads the data set, then builds everything the application would otherwise derive on startup
+	private void seed() throws Exception {
+		long startedAt = System.nanoTime();
+		LoadTestSeeder seeder = new LoadTestSeeder(jdbcTemplate, seed);
+		seeder.seedCategories();
+		seeder.seedBooks(books);
+		seeder.seedCustomers(customers);
+		pendingOrders = seeder.seedOrders(orders, customers);
+
+		customerOrderStatsBackfill.run(null);
+		salesRollupService.reconcile();
+		catalogIndex.rebuild();
+		bookSearchIndex.rebuild();
+		bookSuggestionIndex.rebuild();
+		bestsellerLeaderboard.rebuild();
+		log.info("Seeded {} books, {} customers and {} orders in {} s", books, customers, orders,
+				TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startedAt));
+	}
+
+	private void report(Map<Endpoint, Samples> results) throws IOException {
+		double seconds = duration.toMillis() / 1000.0;
+		Samples all = new Samples();
+		List<Map<String, Object>> endpoints = new ArrayList<>();
+		StringBuilder table = new StringBuilder(String.format("%n%-48s %9s %7s %9s %9s %9s %9s",
+				"endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "max ms"));
+		for (Endpoint endpoint : Endpoint.values()) {
+			Samples samples = results.getOrDefault(endpoint, new Samples());
+			all.add(samples);
+			endpoints.add(summary(endpoint.label, samples, seconds, table));
+		}
+		Map<String, Object> total = summary("all", all, seconds, table);
+		log.info("{} clients for {} s against {} books, {} customers and {} orders:{}",
+				clients, duration.toSeconds(), books, customers, orders, table);
+
+		Map<String, Object> document = new LinkedHashMap<>();
+		document.put("books", books);
+		document.put("customers", customers);
+		document.put("orders", orders);
+		document.put("clients", clients);
+		document.put("durationSeconds", duration.toSeconds());
+		document.put("endpoints", endpoints);
+		document.put("total", total);
+		Files.createDirectories(report.toAbsolutePath().getParent());
+		objectMapper.writerWithDefaultPrettyPrinter().writeValue(report.toFile(), document);
+	}
+
+	private static Map<String, Object> summary(String label, Samples samples, double seconds, StringBuilder table) {
+		long[] latencies = samples.sorted();
+		Map<String, Object> summary = new LinkedHashMap<>();
+		summary.put("endpoint", label);
+		summary.put("requests", latencies.length);
+		summary.put("errors", samples.errors);
+		summary.put("requestsPerSecond", Math.round(latencies.length / seconds * 10) / 10.0);
+		summary.put("p50Millis", millis(percentile(latencies, 0.50)));
+		summary.put("p99Millis", millis(percentile(latencies, 0.99)));
+		summary.put("maxMillis", millis(percentile(latencies, 1.0)));
+		table.append(String.format("%n%-48s %9d %7d %9.1f %9.1f %9.1f %9.1f", label, latencies.length,
+				samples.errors, summary.get("requestsPerSecond"), summary.get("p50Millis"), summary.get("p99Millis"),
+				summary.get("maxMillis")));
+		return summary;
+	}
+
+	private static long percentile(long[] sorted, double fraction) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		return sorted[Math.max(0, (int) Math.ceil(fraction * sorted.length) - 1)];
+	}
+
+	private static double millis(long nanos) {
+		return Math.round(nanos / 100_000.0) / 10.0;
+	}
+
+	// Latencies of one endpoint, in nanoseconds, failures included
+	private static class Samples {
+
+		private long[] latencies = new long[1024];
+		private int size;
+		private int errors;
+		private String firstError;
+
+		void record(long latency, String error) {
+			if (size == latencies.length) {
+				latencies = Arrays.copyOf(latencies, size * 2);
+			}
+			latencies[size++] = latency;
+			if (error != null && errors++ == 0) {
+				firstError = error;
+			}
+		}
+
+		void add(Samples other) {
+			for (int i = 0; i < other.size; i++) {
+				record(other.latencies[i], null);
+			}
+			errors += other.errors;
+			if (firstError == null) {
+				firstError = other.firstError;
+			}
+		}
+
+		long[] sorted() {
+			long[] sorted = Arrays.copyOf(latencies, size);
+			Arrays.sort(sorted);
+			return sorted;
+		}
+	}
+}
@@ -0,0 +1,239 @@
+package com.example.shop;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.shop.models.Book;
+import com.example.shop.models.Customer;
+import com.example.shop.models.Order;
+
+/**
+ * Bulk-loads a peak-season catalog and order history for {@link ApiLoadTest} through JDBC
+ * batches: one category per subject, books, customers, and orders spread over the last two
+ * years with one to three items each, a few titles selling far more than the rest. Everything
+ * comes from one seeded Random, so every run loads the same data.
+ */
+class LoadTestSeeder {
+
+	// Far above anything the id sequences hand out during a run
+	static final long FIRST_ID = 10_000_000L;
+
+	private static final int BATCH_SIZE = 5_000;
+	private static final int HISTORY_DAYS = 730;
+
+	static final String[] SUBJECTS = { "Mathematics", "Science", "English", "Hindi", "Social Science", "Physics",
+			"Chemistry", "Biology", "Computer Science", "Economics", "Accountancy", "History", "Geography",
+			"Sanskrit", "French" };
+	private static final String[] KINDS = { "Textbook", "Workbook", "Practice Papers", "Lab Manual", "Reader",
+			"Guide", "Question Bank", "Activity Book" };
+	private static final String[] PUBLISHERS = { "NCERT", "Oxford University Press", "S. Chand", "Arihant",
+			"Cambridge University Press", "Pearson", "Full Marks", "Ratna Sagar" };
+	private static final String[] FIRST_NAMES = { "Anita", "Rajesh", "Priya", "Suresh", "Kavita", "Amit", "Meera",
+			"Vikram", "Sunita", "Arjun" };
+	private static final String[] LAST_NAMES = { "Sharma", "Iyer", "Gupta", "Reddy", "Banerjee", "Patel", "Nair",
+			"Singh", "Mehta", "Joshi" };
+	private static final String[][] CITIES = { { "Pune", "Maharashtra" }, { "Mumbai", "Maharashtra" },
+			{ "Delhi", "Delhi" }, { "Bengaluru", "Karnataka" }, { "Chennai", "Tamil Nadu" },
+			{ "Kolkata", "West Bengal" }, { "Hyderabad", "Telangana" }, { "Jaipur", "Rajasthan" },
+			{ "Lucknow", "Uttar Pradesh" }, { "Ahmedabad", "Gujarat" } };
+
+	private final JdbcTemplate jdbcTemplate;
+	private final Random random;
+	private final Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+	// What the orders need to know about each book
+	private String[] titles;
+	private String[] authors;
+	private String[] isbns;
+	private int[] grades;
+	private int[] subjects;
+	private BigDecimal[] prices;
+
+	LoadTestSeeder(JdbcTemplate jdbcTemplate, long seed) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.random = new Random(seed);
+	}
+
+	static long bookId(int index) {
+		return FIRST_ID + index;
+	}
+
+	static long customerId(int index) {
+		return FIRST_ID + index;
+	}
+
+	void seedCategories() {
+		List<Object[]> rows = new ArrayList<>();
+		for (int i = 0; i < SUBJECTS.length; i++) {
+			rows.add(new Object[] { FIRST_ID + i, SUBJECTS[i], SUBJECTS[i] + " books for every class", "SUBJECT",
+					true, now, now });
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO categories (id, name, description, category_type, is_active, "
+				+ "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?)", rows);
+	}
+
+	void seedBooks(int books) {
+		titles = new String[books];
+		authors = new String[books];
+		isbns = new String[books];
+		grades = new int[books];
+		subjects = new int[books];
+		prices = new BigDecimal[books];
+
+		Book.Board[] boards = Book.Board.values();
+		List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < books; i++) {
+			subjects[i] = random.nextInt(SUBJECTS.length);
+			grades[i] = 1 + random.nextInt(12);
+			String kind = KINDS[random.nextInt(KINDS.length)];
+			String publisher = PUBLISHERS[random.nextInt(PUBLISHERS.length)];
+			titles[i] = SUBJECTS[subjects[i]] + " " + kind + " for Class " + grades[i] + " Part " + (1 + i % 4);
+			authors[i] = personName();
+			isbns[i] = String.format("978%010d", i);
+			prices[i] = BigDecimal.valueOf(50 + random.nextInt(750));
+			double mrp = prices[i].doubleValue() * 1.1;
+
+			rows.add(new Object[] { bookId(i), titles[i], authors[i],
+					kind + " following the latest " + SUBJECTS[subjects[i]] + " syllabus, with solved examples",
+					"https://images.example/books/" + i + ".jpg", prices[i].doubleValue(), mrp, 10.0, 1_000_000,
+					grades[i], SUBJECTS[subjects[i]], boards[random.nextInt(boards.length)].name(), isbns[i],
+					publisher, String.valueOf(2020 + random.nextInt(5)), "English", true, FIRST_ID + subjects[i],
+					now, now });
+			if (rows.size() == BATCH_SIZE) {
+				insertBooks(rows);
+			}
+		}
+		insertBooks(rows);
+	}
+
+	// Order statistics are left empty for CustomerOrderStatsBackfill to fill in from the orders
+	void seedCustomers(int customers) {
+		List<Object[]> rows = new ArrayList<>(BATCH_SIZE);
+		for (int i = 0; i < customers; i++) {
+			String[] city = CITIES[random.nextInt(CITIES.length)];
+			int type = random.nextInt(100);
+			Customer.CustomerType customerType = type < 80 ? Customer.CustomerType.INDIVIDUAL
+					: type < 92 ? Customer.CustomerType.SCHOOL
+					: type < 97 ? Customer.CustomerType.INSTITUTION
+					: Customer.CustomerType.BULK_BUYER;
+
+			rows.add(new Object[] { customerId(i), personName(), "customer" + i + "@load.example",
+					String.format("9%09d", i), (1 + random.nextInt(200)) + " School Road", city[0], city[1],
+					String.format("4%05d", random.nextInt(100_000)), "India", customerType.name(), true, now, now });
+			if (rows.size() == BATCH_SIZE) {
+				insertCustomers(rows);
+			}
+		}
+		insertCustomers(rows);
+	}
+
+	/**
+	 * Seeds the order history and returns the ids of the orders still pending, which the load
+	 * test may cancel.
+	 */
+	List<Long> seedOrders(int orders, int customers) {
+		List<Long> pending = new ArrayList<>();
+		List<Object[]> orderRows = new ArrayList<>(BATCH_SIZE);
+		List<Object[]> itemRows = new ArrayList<>(BATCH_SIZE * 2);
+		Order.PaymentMethod[] paymentMethods = Order.PaymentMethod.values();
+		LocalDateTime end = now.toLocalDateTime();
+		long itemId = FIRST_ID;
+
+		for (int i = 0; i < orders; i++) {
+			long orderId = FIRST_ID + i;
+			Order.OrderStatus status = orderStatus();
+			if (status == Order.OrderStatus.PENDING) {
+				pending.add(orderId);
+			}
+
+			BigDecimal total = BigDecimal.ZERO;
+			int items = 1 + random.nextInt(3);
+			for (int j = 0; j < items; j++) {
+				int book = popularBook();
+				int quantity = 1 + random.nextInt(3);
+				BigDecimal lineTotal = prices[book].multiply(BigDecimal.valueOf(quantity));
+				total = total.add(lineTotal);
+				itemRows.add(new Object[] { itemId++, orderId, bookId(book), quantity, prices[book], BigDecimal.ZERO,
+						lineTotal, titles[book], authors[book], isbns[book], grades[book], SUBJECTS[subjects[book]],
+						now, now });
+			}
+
+			String[] city = CITIES[random.nextInt(CITIES.length)];
+			Timestamp orderDate = Timestamp.valueOf(end.minusSeconds(random.nextInt(HISTORY_DAYS * 86_400)));
+			orderRows.add(new Object[] { orderId, "LT" + orderId, customerId(random.nextInt(customers)), status.name(),
+					total, BigDecimal.ZERO, total, orderDate, (1 + random.nextInt(200)) + " School Road", city[0],
+					city[1], "411001", "9876543210",
+					paymentMethods[random.nextInt(paymentMethods.length)].name(), paymentStatus(status).name(),
+					now, now });
+			if (orderRows.size() == BATCH_SIZE) {
+				insertOrders(orderRows, itemRows);
+			}
+		}
+		insertOrders(orderRows, itemRows);
+		return pending;
+	}
+
+	private void insertBooks(List<Object[]> rows) {
+		jdbcTemplate.batchUpdate("INSERT INTO books (id, title, author, description, image, price, mrp, discount, "
+				+ "quantity, grade, subject, board, isbn, publisher, edition, language, is_active, category_id, "
+				+ "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+		rows.clear();
+	}
+
+	private void insertCustomers(List<Object[]> rows) {
+		jdbcTemplate.batchUpdate("INSERT INTO customers (id, name, email, phone, address, city, state, pincode, "
+				+ "country, customer_type, is_active, created_at, updated_at) "
+				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+		rows.clear();
+	}
+
+	private void insertOrders(List<Object[]> orderRows, List<Object[]> itemRows) {
+		jdbcTemplate.batchUpdate("INSERT INTO orders (id, order_number, customer_id, status, total_amount, "
+				+ "discount_amount, final_amount, order_date, delivery_address, delivery_city, delivery_state, "
+				+ "delivery_pincode, contact_phone, payment_method, payment_status, created_at, updated_at) "
+				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", orderRows);
+		jdbcTemplate.batchUpdate("INSERT INTO order_items (id, order_id, book_id, quantity, unit_price, "
+				+ "discount_amount, total_price, book_title, book_author, book_isbn, book_grade, book_subject, "
+				+ "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", itemRows);
+		orderRows.clear();
+		itemRows.clear();
+	}
+
+	// Most of the history has been delivered; a few percent is still open or was cancelled
+	private Order.OrderStatus orderStatus() {
+		int roll = random.nextInt(100);
+		return roll < 70 ? Order.OrderStatus.DELIVERED
+				: roll < 78 ? Order.OrderStatus.SHIPPED
+				: roll < 85 ? Order.OrderStatus.CONFIRMED
+				: roll < 90 ? Order.OrderStatus.PENDING
+				: roll < 97 ? Order.OrderStatus.CANCELLED
+				: Order.OrderStatus.RETURNED;
+	}
+
+	private static Order.PaymentStatus paymentStatus(Order.OrderStatus status) {
+		switch (status) {
+			case PENDING:
+				return Order.PaymentStatus.PENDING;
+			case CANCELLED, RETURNED:
+				return Order.PaymentStatus.REFUNDED;
+			default:
+				return Order.PaymentStatus.PAID;
+		}
+	}
+
+	// Skewed towards the first books, so a small part of the catalog makes most of the sales
+	private int popularBook() {
+		double roll = random.nextDouble();
+		return (int) (titles.length * roll * roll * roll);
+	}
+
+	private String personName() {
+		return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+	}
+}
@@ -0,0 +1,59 @@
+package com.example.shop;
+
+import static com.example.shop.ShopFixtures.newBook;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.shop.configs.HibernateQueryMeters;
+import com.example.shop.models.Book;
+import com.example.shop.repositories.BookRepository;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+class PrometheusMetricsTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private HibernateQueryMeters hibernateQueryMeters;
+
+	@Test
+	void scrapeCoversEndpointsServicesQueriesAndThePool() throws Exception {
+		Book book = bookRepository.save(newBook("Metrics Reader").build());
+		mockMvc.perform(get("/api/orders/customer/" + Long.MAX_VALUE)).andExpect(status().isOk());
+		mockMvc.perform(get("/api/books/" + book.getId())).andExpect(status().isOk());
+		hibernateQueryMeters.registerNewQueries();
+
+		String scrape = mockMvc.perform(get("/actuator/prometheus"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		assertTrue(scrape.contains("http_server_requests_seconds_bucket{"), "HTTP endpoint histograms");
+		assertTrue(scrape.contains("uri=\"/api/books/{id}\""), "requests tagged with their endpoint");
+		assertTrue(scrape.matches("(?s).*shop_service_seconds_count\\{[^}]*class=\"com.example.shop.services.BookService\""
+				+ "[^}]*method=\"getBookById\".*"), "service method timers");
+		assertTrue(scrape.contains("spring_data_repository_invocations_seconds_count{"), "repository timers");
+		assertTrue(scrape.contains("hibernate_query_execution_rows_total{"), "per-query row counts");
+		assertTrue(scrape.contains("hibernate_query_executions_total{"), "Hibernate statistics");
+		assertTrue(scrape.matches("(?s).*hibernate_second_level_cache_requests_total\\{[^}]*region=\"books\".*"), "second-level cache regions");
+		assertTrue(scrape.matches("(?s).*cache_gets_total\\{[^}]*cache=\"catalogBooks\".*"), "Spring cache meters");
+		assertTrue(scrape.matches("(?s).*cache_gets_total\\{[^}]*cache=\"catalogPayloads\".*"), "catalog payload cache meters");
+		assertTrue(scrape.contains("hikaricp_connections_active{"), "connection pool");
+		assertTrue(scrape.contains("shop_http_requests_queries_count{"), "SQL statements per request");
+	}
+}
@@ -0,0 +1,24 @@
+package com.example.shop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.function.ThrowingSupplier;
+
+import com.example.shop.configs.QueryCounter;
+
+/**
+ * Locks in how many SQL statements a piece of code runs, so that an association starting to be
+ * loaded once per row fails a test instead of slowing down production.
+ */
+public final class QueryCountAssertions {
+
+	private QueryCountAssertions() {
+	}
+
+	public static <T> T assertQueryCount(long expected, ThrowingSupplier<T> action) throws Throwable {
+		long before = QueryCounter.current();
+		T result = action.get();
+		assertEquals(expected, QueryCounter.current() - before, "SQL statements run");
+		return result;
+	}
+}
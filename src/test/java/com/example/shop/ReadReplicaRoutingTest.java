@@ -0,0 +1,180 @@
+package com.example.shop;
+
+import static com.example.shop.ShopFixtures.newSchoolDTO;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+
+import javax.sql.DataSource;
+
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shop.configs.ReplicaDataSource;
+import com.example.shop.configs.ReplicaLagMonitor;
+import com.example.shop.dtos.CategoryDTO;
+import com.example.shop.dtos.CustomerDTO;
+import com.example.shop.models.Category;
+import com.example.shop.models.Customer;
+import com.example.shop.services.CategoryService;
+import com.example.shop.services.CustomerService;
+import com.zaxxer.hikari.HikariDataSource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Two embedded databases stand in for the primary and its replica. Replication is simulated by
+ * copying the primary into the replica, so anything written since the last copy is exactly what
+ * a lagging replica would be missing.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:routing-primary;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+		"shop.datasource.replica.url=jdbc:h2:mem:routing-replica;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1",
+		// Checks are run by the tests
+		"shop.datasource.replica.heartbeat-interval=PT1H"
+})
+@ActiveProfiles("test")
+class ReadReplicaRoutingTest {
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private CategoryService categoryService;
+
+	@Autowired
+	private ReplicaLagMonitor replicaLagMonitor;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	@Qualifier("primaryDataSource")
+	private DataSource primaryDataSource;
+
+	@Autowired
+	@Qualifier("replicaDataSource")
+	private DataSource replicaDataSource;
+
+	@BeforeEach
+	void setUp() {
+		replicate();
+		replicaLagMonitor.check();
+		assertTrue(replicaLagMonitor.isReplicaUsable());
+	}
+
+	@Test
+	void readOnlyTransactionsReadTheReplica() {
+		CustomerDTO customer = createCustomer();
+		// Inserted customers go straight into the second-level cache, which would answer first
+		entityManagerFactory.getCache().evict(Customer.class);
+
+		assertTrue(customerService.getCustomerById(customer.getId()).isEmpty(), "not replicated yet");
+		assertFalse(customerService.isEmailAvailable(customer.getEmail()), "read-write reads see the primary");
+
+		replicate();
+		assertEquals(customer.getEmail(), customerService.getCustomerById(customer.getId()).orElseThrow().getEmail());
+	}
+
+	@Test
+	void replicaReadsAreNotPutInTheSecondLevelCache() {
+		CustomerDTO customer = createCustomer();
+		replicate();
+		entityManagerFactory.getCache().evict(Customer.class);
+
+		assertTrue(customerService.getCustomerById(customer.getId()).isPresent());
+		assertFalse(entityManagerFactory.getCache().contains(Customer.class, customer.getId()));
+	}
+
+	@Test
+	void queryCachedLookupsReadThePrimary() {
+		CustomerDTO customer = createCustomer();
+		CategoryDTO category = categoryService.createCategory(CategoryDTO.builder()
+				.name("Replica Category " + System.nanoTime())
+				.categoryType(Category.CategoryType.SUBJECT)
+				.build());
+		entityManagerFactory.getCache().evict(Customer.class);
+
+		assertEquals(customer.getId(), customerService.getCustomerByEmail(customer.getEmail()).orElseThrow().getId());
+		assertEquals(customer.getId(), customerService.getCustomerByPhone(customer.getPhone()).orElseThrow().getId());
+		assertEquals(category.getId(), categoryService.getCategoryByName(category.getName()).orElseThrow().getId());
+		assertTrue(categoryService.getAllCategories().stream().anyMatch(c -> c.getId().equals(category.getId())));
+		// Still read-only transactions, which put no entities into the second-level cache
+		assertFalse(entityManagerFactory.getCache().contains(Customer.class, customer.getId()));
+		// Reads that are not pinned go back to the replica
+		assertTrue(customerService.getCustomerById(customer.getId()).isEmpty(), "not replicated yet");
+	}
+
+	@Test
+	void laggingReplicaFallsBackToThePrimary() {
+		new JdbcTemplate(replicaDataSource).update("UPDATE replica_heartbeat SET beat_at = beat_at - 60000");
+		replicaLagMonitor.check();
+		assertFalse(replicaLagMonitor.isReplicaUsable());
+
+		CustomerDTO customer = createCustomer();
+		entityManagerFactory.getCache().evict(Customer.class);
+		assertTrue(customerService.getCustomerById(customer.getId()).isPresent());
+
+		replicate();
+		replicaLagMonitor.check();
+		assertTrue(replicaLagMonitor.isReplicaUsable());
+	}
+
+	@Test
+	void connectionsWithCredentialsAreRoutedLikeTheRest() throws Exception {
+		// Hikari takes no per-connection credentials, so route between plain data sources on the same databases
+		ReplicaDataSource routed = new ReplicaDataSource(
+				new DriverManagerDataSource(((HikariDataSource) primaryDataSource).getJdbcUrl()),
+				new DriverManagerDataSource(((HikariDataSource) replicaDataSource).getJdbcUrl()),
+				replicaLagMonitor, new SimpleMeterRegistry());
+
+		try (Connection connection = routed.getConnection("sa", "")) {
+			assertTrue(connection.getMetaData().getURL().contains("routing-replica"));
+		}
+		new JdbcTemplate(replicaDataSource).update("UPDATE replica_heartbeat SET beat_at = beat_at - 60000");
+		replicaLagMonitor.check();
+		try (Connection connection = routed.getConnection("sa", "")) {
+			assertTrue(connection.getMetaData().getURL().contains("routing-primary"));
+		}
+	}
+
+	@Test
+	void readOnlyTransactionsNeverFlush() {
+		TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+		readOnly.setReadOnly(true);
+		assertEquals(FlushMode.MANUAL, readOnly.execute(status ->
+				entityManager.unwrap(Session.class).getHibernateFlushMode()));
+	}
+
+	private CustomerDTO createCustomer() {
+		return customerService.createCustomer(newSchoolDTO("Replica School").build());
+	}
+
+	private void replicate() {
+		JdbcTemplate replica = new JdbcTemplate(replicaDataSource);
+		replica.execute("DROP ALL OBJECTS");
+		for (String statement : new JdbcTemplate(primaryDataSource).queryForList("SCRIPT", String.class)) {
+			replica.execute(statement);
+		}
+	}
+}
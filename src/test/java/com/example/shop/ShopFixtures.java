@@ -0,0 +1,199 @@
+package com.example.shop;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.example.shop.dtos.BookDTO;
+import com.example.shop.dtos.CreateOrderRequest;
+import com.example.shop.dtos.CustomerDTO;
+import com.example.shop.models.Book;
+import com.example.shop.models.Category;
+import com.example.shop.models.Customer;
+import com.example.shop.models.Order;
+import com.example.shop.models.OrderItem;
+
+/**
+ * Books, schools and orders shared by the test suites and the JMH benchmarks.
+ *
+ * The newX builders are valid but unsaved, so a test sets only the fields it is about and saves
+ * through a repository or a service. Emails and phone numbers are unique per call because every
+ * suite in a run shares one database. The rest are fully populated entities with ids, built
+ * without a database, for the mapping benchmarks.
+ */
+public final class ShopFixtures {
+
+	private static final AtomicLong UNIQUE = new AtomicLong(System.nanoTime() % 1_000_000_000L);
+
+	private ShopFixtures() {
+	}
+
+	public static Book.BookBuilder<?, ?> newBook(String title) {
+		return Book.builder()
+				.title(title)
+				.author("NCERT")
+				.price(50.0)
+				.mrp(60.0)
+				.quantity(100)
+				.grade(5)
+				.subject("English")
+				.board(Book.Board.CBSE);
+	}
+
+	public static BookDTO.BookDTOBuilder newBookDTO(String title) {
+		return BookDTO.builder()
+				.title(title)
+				.author("NCERT")
+				.price(50.0)
+				.mrp(60.0)
+				.quantity(100)
+				.grade(5)
+				.subject("English")
+				.board(Book.Board.CBSE);
+	}
+
+	public static Customer.CustomerBuilder<?, ?> newSchool(String name) {
+		return Customer.builder()
+				.name(name)
+				.email(uniqueEmail(name))
+				.phone(uniquePhone())
+				.customerType(Customer.CustomerType.SCHOOL);
+	}
+
+	public static CustomerDTO.CustomerDTOBuilder newSchoolDTO(String name) {
+		return CustomerDTO.builder()
+				.name(name)
+				.email(uniqueEmail(name))
+				.phone(uniquePhone())
+				.customerType(Customer.CustomerType.SCHOOL);
+	}
+
+	public static CreateOrderRequest orderRequest(Long customerId, Long bookId, int quantity) {
+		return CreateOrderRequest.builder()
+				.customerId(customerId)
+				.orderItems(List.of(CreateOrderRequest.CreateOrderItemRequest.builder()
+						.bookId(bookId)
+						.quantity(quantity)
+						.build()))
+				.paymentMethod(Order.PaymentMethod.ONLINE_PAYMENT)
+				.build();
+	}
+
+	private static String uniqueEmail(String name) {
+		return name.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-") + "-" + UNIQUE.incrementAndGet()
+				+ "@school.example";
+	}
+
+	private static String uniquePhone() {
+		return String.format("9%09d", UNIQUE.incrementAndGet() % 1_000_000_000L);
+	}
+
+	public static Category category() {
+		return Category.builder()
+				.id(1L)
+				.name("Textbooks")
+				.build();
+	}
+
+	public static Book book(Long id, Category category) {
+		return Book.builder()
+				.id(id)
+				.title("Mathematics Textbook for Class " + (1 + id % 12))
+				.author("NCERT")
+				.description("Revised edition following the latest syllabus, with solved examples and exercises")
+				.image("https://images.example/books/" + id + ".jpg")
+				.price(245.0)
+				.mrp(275.0)
+				.discount(10.0)
+				.quantity(120)
+				.grade((int) (1 + id % 12))
+				.subject("Mathematics")
+				.board(Book.Board.CBSE)
+				.isbn("978819" + String.format("%07d", id))
+				.publisher("National Council of Educational Research and Training")
+				.edition("2024")
+				.language("English")
+				.isActive(true)
+				.category(category)
+				.build();
+	}
+
+	public static BookDTO bookDTO(Long id) {
+		Book book = book(id, category());
+		return BookDTO.builder()
+				.id(id)
+				.title(book.getTitle())
+				.author(book.getAuthor())
+				.description(book.getDescription())
+				.image(book.getImage())
+				.price(book.getPrice())
+				.mrp(book.getMrp())
+				.discount(book.getDiscount())
+				.quantity(book.getQuantity())
+				.grade(book.getGrade())
+				.subject(book.getSubject())
+				.board(book.getBoard())
+				.isbn(book.getIsbn())
+				.publisher(book.getPublisher())
+				.edition(book.getEdition())
+				.language(book.getLanguage())
+				.isActive(true)
+				.categoryId(book.getCategory().getId())
+				.categoryName(book.getCategory().getName())
+				.build();
+	}
+
+	public static Customer customer() {
+		return Customer.builder()
+				.id(1L)
+				.name("Green Valley Public School")
+				.email("orders@greenvalley.example")
+				.phone("9876543210")
+				.customerType(Customer.CustomerType.SCHOOL)
+				.build();
+	}
+
+	public static Order order(int items) {
+		return Order.builder()
+				.id(1L)
+				.orderNumber("ORD2024061512000000001")
+				.customer(customer())
+				.status(Order.OrderStatus.CONFIRMED)
+				.totalAmount(BigDecimal.valueOf(245L * items))
+				.finalAmount(BigDecimal.valueOf(245L * items))
+				.orderDate(LocalDateTime.of(2024, 6, 15, 12, 0))
+				.deliveryAddress("12 School Road")
+				.deliveryCity("Pune")
+				.deliveryState("Maharashtra")
+				.deliveryPincode("411001")
+				.contactPhone("9876543210")
+				.paymentMethod(Order.PaymentMethod.ONLINE_PAYMENT)
+				.paymentStatus(Order.PaymentStatus.PAID)
+				.build();
+	}
+
+	public static List<OrderItem> orderItems(Order order, int items) {
+		Category category = category();
+		List<OrderItem> orderItems = new ArrayList<>(items);
+		for (int i = 0; i < items; i++) {
+			Book book = book((long) i + 1, category);
+			orderItems.add(OrderItem.builder()
+					.id((long) i + 1)
+					.order(order)
+					.book(book)
+					.quantity(1 + i % 5)
+					.unitPrice(BigDecimal.valueOf(book.getPrice()))
+					.totalPrice(BigDecimal.valueOf(book.getPrice() * (1 + i % 5)))
+					.bookTitle(book.getTitle())
+					.bookAuthor(book.getAuthor())
+					.bookIsbn(book.getIsbn())
+					.bookGrade(book.getGrade())
+					.bookSubject(book.getSubject())
+					.build());
+		}
+		return orderItems;
+	}
+}
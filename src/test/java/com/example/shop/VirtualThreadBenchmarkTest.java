@@ -0,0 +1,228 @@
+package com.example.shop;
+
+import static com.example.shop.ShopFixtures.newBook;
+import static com.example.shop.ShopFixtures.newSchool;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.shop.repositories.BookRepository;
+import com.example.shop.repositories.CustomerRepository;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * The order and catalog endpoints under many concurrent HTTP clients, served first by Tomcat's
+ * pool of platform threads and then, in a second server, by one virtual thread per request,
+ * while JFR records every time a virtual thread is pinned to its carrier.
+ * Only runs with the benchmark profile: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+class VirtualThreadBenchmarkTest {
+
+	private static final Logger log = LoggerFactory.getLogger(VirtualThreadBenchmarkTest.class);
+
+	// Twice Tomcat's default server.tomcat.threads.max, so the platform-thread server queues
+	private static final int CLIENTS = 400;
+	private static final int REQUESTS = 4_000;
+	private static final int WARMUP_REQUESTS = 800;
+	private static final int BOOKS = 50;
+	private static final int CUSTOMERS = 100;
+
+	private static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+
+	private final HttpClient httpClient = HttpClient.newBuilder()
+			.version(HttpClient.Version.HTTP_1_1)
+			.connectTimeout(Duration.ofSeconds(10))
+			.build();
+
+	@Test
+	void virtualThreadsServeTheMixedWorkloadWithoutPinning() throws Exception {
+		ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+
+		Result platform;
+		try (Server server = start(false)) {
+			run(clients, server, WARMUP_REQUESTS);
+			platform = run(clients, server, REQUESTS);
+		}
+
+		List<String> pinned = new ArrayList<>();
+		Result virtual;
+		try (Server server = start(true)) {
+			run(clients, server, WARMUP_REQUESTS);
+
+			Path events = Files.createTempFile("virtual-threads", ".jfr");
+			try (Recording recording = new Recording()) {
+				recording.enable(PINNED_EVENT).withThreshold(Duration.ZERO).withStackTrace();
+				recording.start();
+				virtual = run(clients, server, REQUESTS);
+				recording.stop();
+				recording.dump(events);
+			}
+			for (RecordedEvent event : RecordingFile.readAllEvents(events)) {
+				if (pinnedByShopCode(event)) {
+					pinned.add(event.getStackTrace().getFrames().toString());
+				}
+			}
+			Files.deleteIfExists(events);
+		}
+		clients.shutdown();
+
+		log.info("{} mixed requests from {} clients on Tomcat's platform threads: {}", REQUESTS, CLIENTS, platform);
+		log.info("{} mixed requests from {} clients on virtual threads: {}", REQUESTS, CLIENTS, virtual);
+
+		assertEquals(0, platform.failures());
+		assertEquals(0, virtual.failures());
+		assertTrue(pinned.isEmpty(), "virtual threads pinned while in shop code: " + pinned);
+	}
+
+	// Six in ten requests browse the catalog, two look up a book, one reads recent orders, one checks out
+	private HttpRequest request(Server server, int i) {
+		Long bookId = server.bookIds().get(i * 7 % server.bookIds().size());
+		switch (i % 10) {
+			case 6, 7:
+				return server.get("/api/books/" + bookId);
+			case 8:
+				return server.get("/api/orders/recent");
+			case 9:
+				return server.post("/api/orders", "{\"customerId\":" + server.customerIds().get(i % server.customerIds().size())
+						+ ",\"paymentMethod\":\"ONLINE_PAYMENT\",\"orderItems\":[{\"bookId\":" + bookId + ",\"quantity\":1}]}");
+			default:
+				return server.get("/api/books");
+		}
+	}
+
+	// Submits every request at once; latency is measured from submission, so it includes queueing
+	private Result run(ExecutorService clients, Server server, int requests) throws Exception {
+		List<Future<Long>> futures = new ArrayList<>(requests);
+		long startedAt = System.nanoTime();
+		for (int i = 0; i < requests; i++) {
+			HttpRequest request = request(server, i);
+			long submittedAt = System.nanoTime();
+			futures.add(clients.submit(() -> {
+				int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+				return status < 400 ? System.nanoTime() - submittedAt : -1L;
+			}));
+		}
+
+		long[] latencies = new long[requests];
+		int failures = 0;
+		for (int i = 0; i < requests; i++) {
+			latencies[i] = futures.get(i).get(120, TimeUnit.SECONDS);
+			if (latencies[i] < 0) {
+				failures++;
+			}
+		}
+		long elapsed = System.nanoTime() - startedAt;
+		Arrays.sort(latencies);
+		return new Result(requests * 1_000_000_000L / elapsed,
+				TimeUnit.NANOSECONDS.toMicros(latencies[requests / 2]),
+				TimeUnit.NANOSECONDS.toMicros(latencies[requests * 99 / 100]),
+				failures);
+	}
+
+	// H2 synchronizes internally, so pinning under its frames is a property of the test database
+	private static boolean pinnedByShopCode(RecordedEvent event) {
+		if (!PINNED_EVENT.equals(event.getEventType().getName()) || event.getStackTrace() == null) {
+			return false;
+		}
+		boolean inShopCode = false;
+		for (RecordedFrame frame : event.getStackTrace().getFrames()) {
+			String type = frame.getMethod().getType().getName();
+			if (type.startsWith("org.h2.")) {
+				return false;
+			}
+			inShopCode |= type.startsWith("com.example.shop.");
+		}
+		return inShopCode;
+	}
+
+	// A server of its own per mode, on a random port with its own seeded database
+	private static Server start(boolean virtualThreads) {
+		String mode = virtualThreads ? "virtual" : "platform";
+		ConfigurableApplicationContext context = new SpringApplicationBuilder(BookshopApplication.class)
+				.profiles("test")
+				.properties(
+						"server.port=0",
+						"spring.threads.virtual.enabled=" + virtualThreads,
+						// Let every client connect at once instead of dropping connections past Tomcat's backlog
+						"server.tomcat.accept-count=" + CLIENTS,
+						// Contended rows wait for their lock instead of failing after H2's default second
+						"spring.datasource.url=jdbc:h2:mem:" + mode + "-threads;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;"
+								+ "DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=60000",
+						// Measure how long requests queue for a connection rather than failing them
+						"spring.datasource.hikari.connection-timeout=120000",
+						"logging.level.org.springframework.web=WARN")
+				.run();
+
+		List<Long> customerIds = new ArrayList<>();
+		CustomerRepository customerRepository = context.getBean(CustomerRepository.class);
+		for (int i = 0; i < CUSTOMERS; i++) {
+			customerIds.add(customerRepository.save(newSchool("Admission Rush School " + i).build()).getId());
+		}
+		List<Long> bookIds = new ArrayList<>();
+		BookRepository bookRepository = context.getBean(BookRepository.class);
+		for (int i = 0; i < BOOKS; i++) {
+			bookIds.add(bookRepository.save(newBook("Rush Reader " + i)
+					.quantity(1_000_000)
+					.grade(1 + i % 12)
+					.build()).getId());
+		}
+		int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+		return new Server(context, "http://localhost:" + port, customerIds, bookIds);
+	}
+
+	private record Server(ConfigurableApplicationContext context, String baseUrl, List<Long> customerIds,
+			List<Long> bookIds) implements AutoCloseable {
+
+		HttpRequest get(String path) {
+			return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+		}
+
+		HttpRequest post(String path, String json) {
+			return HttpRequest.newBuilder(URI.create(baseUrl + path))
+					.header("Content-Type", "application/json")
+					.POST(HttpRequest.BodyPublishers.ofString(json))
+					.build();
+		}
+
+		@Override
+		public void close() {
+			context.close();
+		}
+	}
+
+	private record Result(long requestsPerSecond, long p50Micros, long p99Micros, int failures) {
+
+		@Override
+		public String toString() {
+			return requestsPerSecond + " req/s, p50 " + p50Micros + " us, p99 " + p99Micros + " us, "
+					+ failures + " failed";
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package com.example.shop;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Requests arriving through Tomcat's connector, not MockMvc, are handled on virtual threads.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class VirtualThreadServingTest {
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private RequestThreads requestThreads;
+
+	@Test
+	void tomcatServesRequestsOnVirtualThreads() throws Exception {
+		HttpResponse<String> response = HttpClient.newHttpClient().send(
+				HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/books")).build(),
+				HttpResponse.BodyHandlers.ofString());
+
+		assertEquals(200, response.statusCode());
+		Thread handler = requestThreads.seen.poll();
+		assertTrue(handler != null && handler.isVirtual(), "request handled on " + handler);
+	}
+
+	@TestConfiguration
+	static class Config {
+
+		@Bean
+		RequestThreads requestThreads() {
+			return new RequestThreads();
+		}
+	}
+
+	// Remembers the thread each request was handled on
+	static class RequestThreads extends OncePerRequestFilter {
+
+		private final Queue<Thread> seen = new ConcurrentLinkedQueue<>();
+
+		@Override
+		protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+				throws ServletException, IOException {
+			seen.add(Thread.currentThread());
+			chain.doFilter(request, response);
+		}
+	}
+}
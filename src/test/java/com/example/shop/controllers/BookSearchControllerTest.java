@@ -0,0 +1,94 @@
+package com.example.shop.controllers;
+
+import static com.example.shop.ShopFixtures.newBook;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.shop.models.Book;
+import com.example.shop.repositories.BookRepository;
+import com.example.shop.services.BookSearchIndex;
+import com.example.shop.services.BookService;
+import com.example.shop.services.CatalogIndex;
+import com.jayway.jsonpath.JsonPath;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class BookSearchControllerTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private BookSearchIndex bookSearchIndex;
+
+	@Autowired
+	private CatalogIndex catalogIndex;
+
+	@Autowired
+	private BookService bookService;
+
+	@Test
+	void searchWithoutSortByKeepsIdOrderInTheRequestedDirection() throws Exception {
+		Book exact = bookRepository.save(newBook("Quillwort").build());
+		Book prefix = bookRepository.save(newBook("Quillworts Illustrated").build());
+		Book description = bookRepository.save(newBook("Marsh Plants").description("quillwort").build());
+		// Saved past the service, so the indexes learn about them from a rebuild
+		bookSearchIndex.rebuild();
+		catalogIndex.rebuild();
+
+		mockMvc.perform(get("/api/books/search?q=quillwort&sortDirection=DESC"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data.content[*].id").value(contains(
+						description.getId().intValue(), prefix.getId().intValue(), exact.getId().intValue())));
+		// Relevance is only used when asked for, and ranks the same whatever the direction
+		List<Integer> ranked = ids("/api/books/search?q=quillwort&sortBy=relevance&sortDirection=ASC");
+		assertEquals(3, ranked.size());
+		assertEquals(ranked, ids("/api/books/search?q=quillwort&sortBy=relevance&sortDirection=DESC"));
+	}
+
+	@Test
+	void databaseSortsTakeALimitedNumberOfTextMatches() throws Exception {
+		bookRepository.save(newBook("Sedgewick Primer").grade(3).build());
+		bookRepository.save(newBook("Sedgewick Workbook").grade(4).build());
+		bookSearchIndex.rebuild();
+		catalogIndex.rebuild();
+
+		int maxSortedTextMatches = (Integer) ReflectionTestUtils.getField(bookService, "maxSortedTextMatches");
+		ReflectionTestUtils.setField(bookService, "maxSortedTextMatches", 1);
+		try {
+			mockMvc.perform(get("/api/books/search?q=sedgewick&sortBy=title"))
+					.andExpect(status().isBadRequest());
+			mockMvc.perform(get("/api/books/search?q=sedgewick&sortBy=title&grade=3"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.data.totalElements").value(1));
+			mockMvc.perform(get("/api/books/search?q=sedgewick&sortBy=relevance"))
+					.andExpect(status().isOk())
+					.andExpect(jsonPath("$.data.totalElements").value(2));
+		} finally {
+			ReflectionTestUtils.setField(bookService, "maxSortedTextMatches", maxSortedTextMatches);
+		}
+	}
+
+	private List<Integer> ids(String path) throws Exception {
+		return JsonPath.read(mockMvc.perform(get(path))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(), "$.data.content[*].id");
+	}
+}
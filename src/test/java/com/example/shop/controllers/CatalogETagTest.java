@@ -0,0 +1,187 @@
+package com.example.shop.controllers;
+
+import static com.example.shop.QueryCountAssertions.assertQueryCount;
+import static com.example.shop.ShopFixtures.newBookDTO;
+import static com.example.shop.ShopFixtures.newSchool;
+import static com.example.shop.ShopFixtures.orderRequest;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shop.dtos.BookDTO;
+import com.example.shop.dtos.CategoryDTO;
+import com.example.shop.models.CatalogRevision;
+import com.example.shop.models.Category;
+import com.example.shop.models.Customer;
+import com.example.shop.repositories.CatalogRevisionRepository;
+import com.example.shop.repositories.CustomerRepository;
+import com.example.shop.services.BookService;
+import com.example.shop.services.CatalogIndex;
+import com.example.shop.services.CategoryService;
+import com.example.shop.services.OrderService;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CatalogETagTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private CategoryService categoryService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private CatalogIndex catalogIndex;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private CatalogRevisionRepository catalogRevisionRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private CategoryDTO category;
+	private BookDTO book;
+
+	@BeforeEach
+	void setUp() {
+		category = categoryService.createCategory(CategoryDTO.builder()
+				.name("ETag " + System.nanoTime())
+				.categoryType(Category.CategoryType.SUBJECT)
+				.build());
+		book = bookService.createBook(newBookDTO("ETag Reader")
+				.categoryId(category.getId())
+				.build());
+	}
+
+	@Test
+	void unchangedCatalogIsRevalidatedWithoutTouchingTheDatabase() throws Throwable {
+		String etag = mockMvc.perform(get("/api/books"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, public"))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotNull(etag);
+
+		assertQueryCount(0, () -> mockMvc.perform(get("/api/books").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.ETAG, etag))
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, public"))
+				.andExpect(content().string("")));
+		mockMvc.perform(get("/api/books/grade/4").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+		mockMvc.perform(get("/api/categories").header(HttpHeaders.IF_NONE_MATCH, etagOf("/api/categories")))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=300, public"));
+	}
+
+	@Test
+	void ordersChangeBookListsRightAwayButNeverTheCategoryList() throws Exception {
+		String books = etagOf("/api/books");
+		String categories = etagOf("/api/categories");
+		Customer customer = customerRepository.save(newSchool("ETag School").build());
+
+		orderService.createOrder(orderRequest(customer.getId(), book.getId(), 2));
+
+		assertNotEquals(books, etagOf("/api/books"));
+		mockMvc.perform(get("/api/books").header(HttpHeaders.IF_NONE_MATCH, books))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.data[?(@.id == %s)].quantity", book.getId()).value(hasItem(book.getQuantity() - 2)));
+		assertNotModified("/api/categories", categories);
+	}
+
+	@Test
+	void rebuildWithoutChangesKeepsTheTags() throws Exception {
+		catalogIndex.rebuild();
+		String books = etagOf("/api/books");
+		String categories = etagOf("/api/categories");
+
+		catalogIndex.rebuild();
+
+		assertNotModified("/api/books", books);
+		assertNotModified("/api/categories", categories);
+	}
+
+	@Test
+	void editsFromOtherInstancesShowUpWithTheNextRebuild() throws Exception {
+		catalogIndex.rebuild();
+		String categories = etagOf("/api/categories");
+
+		// What an edit on another instance leaves in the database
+		transactionTemplate.executeWithoutResult(status -> {
+			CatalogRevision revision = catalogRevisionRepository.findByNameForUpdate("catalog").orElseThrow();
+			revision.setRevision(revision.getRevision() + 1);
+		});
+		assertNotModified("/api/categories", categories);
+
+		catalogIndex.rebuild();
+
+		mockMvc.perform(get("/api/categories").header(HttpHeaders.IF_NONE_MATCH, categories))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void stockChangeInvalidatesBookLists() throws Exception {
+		String etag = etagOf("/api/books/grade/4");
+
+		bookService.updateStock(book.getId(), 39);
+
+		String changed = mockMvc.perform(get("/api/books/grade/4").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotEquals(etag, changed);
+		mockMvc.perform(get("/api/books/grade/4").header(HttpHeaders.IF_NONE_MATCH, changed))
+				.andExpect(status().isNotModified());
+	}
+
+	@Test
+	void categoryChangeInvalidatesCategoryList() throws Exception {
+		String etag = etagOf("/api/categories");
+
+		category.setDescription("Renamed shelf");
+		categoryService.updateCategory(category.getId(), category);
+
+		mockMvc.perform(get("/api/categories").header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void etagIsTheSameWhateverTheResponseTimestamp() throws Exception {
+		assertEquals(etagOf("/api/books"), etagOf("/api/books"));
+	}
+
+	private void assertNotModified(String path, String etag) throws Exception {
+		mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag))
+				.andExpect(status().isNotModified());
+	}
+
+	private String etagOf(String path) throws Exception {
+		return mockMvc.perform(get(path))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+	}
+}
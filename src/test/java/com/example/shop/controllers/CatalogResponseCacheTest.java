@@ -0,0 +1,150 @@
+package com.example.shop.controllers;
+
+import static com.example.shop.QueryCountAssertions.assertQueryCount;
+import static com.example.shop.ShopFixtures.newBookDTO;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.example.shop.dtos.ApiResponse;
+import com.example.shop.dtos.BookDTO;
+import com.example.shop.services.BookService;
+import com.example.shop.services.CatalogVersion;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CatalogResponseCacheTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private CatalogResponseCache catalogResponseCache;
+
+	@Test
+	void gzipClientsGetThePreCompressedPayload() throws Throwable {
+		createBook("Compressed Reader");
+		byte[] plain = mockMvc.perform(get("/api/books"))
+				.andExpect(status().isOk())
+				.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+				.andReturn().getResponse().getContentAsByteArray();
+
+		MockHttpServletResponse compressed = assertQueryCount(0, () -> mockMvc.perform(get("/api/books")
+						.header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br"))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+				.andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT_ENCODING)))
+				.andReturn().getResponse());
+
+		assertArrayEquals(plain, gunzip(compressed.getContentAsByteArray()));
+		assertTrue(compressed.getHeader(HttpHeaders.ETAG).endsWith("-gzip\""));
+		mockMvc.perform(get("/api/books")
+						.header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+						.header(HttpHeaders.IF_NONE_MATCH, compressed.getHeader(HttpHeaders.ETAG)))
+				.andExpect(status().isNotModified());
+	}
+
+	@Test
+	void catalogChangeRebuildsThePayload() throws Exception {
+		BookDTO book = createBook("Rebuilt Reader");
+		mockMvc.perform(get("/api/books/grade/5"))
+				.andExpect(jsonPath("$.data[?(@.id == %s)].quantity", book.getId()).value(hasItem(30)));
+
+		bookService.updateStock(book.getId(), 29);
+
+		mockMvc.perform(get("/api/books/grade/5"))
+				.andExpect(jsonPath("$.data[?(@.id == %s)].quantity", book.getId()).value(hasItem(29)));
+	}
+
+	@Test
+	void concurrentMissesShareOneBuildWithoutHoldingUpOtherKeys() throws Exception {
+		CountDownLatch building = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger builds = new AtomicInteger();
+		Supplier<ApiResponse<?>> slowBody = () -> {
+			builds.incrementAndGet();
+			building.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return ApiResponse.success(List.of(), "slow");
+		};
+
+		CompletableFuture<ResponseEntity<byte[]>> first = CompletableFuture.supplyAsync(() -> respond("slow-list", slowBody));
+		assertTrue(building.await(10, TimeUnit.SECONDS));
+		Thread waiting = new Thread(() -> respond("slow-list", slowBody));
+		waiting.start();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (waiting.getState() != Thread.State.WAITING && System.nanoTime() < deadline) {
+			Thread.onSpinWait();
+		}
+		assertEquals(Thread.State.WAITING, waiting.getState(), "second request waits for the first build");
+
+		assertEquals(200, respond("other-list", () -> ApiResponse.success(List.of(), "other")).getStatusCode().value());
+		release.countDown();
+		waiting.join(10_000);
+		assertArrayEquals(first.get(10, TimeUnit.SECONDS).getBody(), respond("slow-list", slowBody).getBody());
+		assertEquals(1, builds.get());
+	}
+
+	@Test
+	void acceptEncodingParsing() {
+		assertTrue(CatalogResponseCache.acceptsGzip("gzip"));
+		assertTrue(CatalogResponseCache.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+		assertTrue(CatalogResponseCache.acceptsGzip("*"));
+		assertFalse(CatalogResponseCache.acceptsGzip(null));
+		assertFalse(CatalogResponseCache.acceptsGzip("identity"));
+		assertFalse(CatalogResponseCache.acceptsGzip("gzip;q=0, *"));
+		assertFalse(CatalogResponseCache.acceptsGzip("*;q=0"));
+	}
+
+	private BookDTO createBook(String title) {
+		return bookService.createBook(newBookDTO(title).quantity(30).build());
+	}
+
+	private ResponseEntity<byte[]> respond(String key, Supplier<ApiResponse<?>> body) {
+		return catalogResponseCache.respond(key, CatalogVersion.Scope.CATEGORIES,
+				new ServletWebRequest(new MockHttpServletRequest()), CacheControl.noCache(), body);
+	}
+
+	private static byte[] gunzip(byte[] bytes) throws IOException {
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+			return in.readAllBytes();
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package com.example.shop.controllers;
+
+import static com.example.shop.QueryCountAssertions.assertQueryCount;
+import static com.example.shop.ShopFixtures.newBook;
+import static com.example.shop.ShopFixtures.newSchool;
+import static com.example.shop.ShopFixtures.orderRequest;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import com.example.shop.dtos.OrderDTO;
+import com.example.shop.models.Book;
+import com.example.shop.models.Category;
+import com.example.shop.models.Customer;
+import com.example.shop.models.User;
+import com.example.shop.repositories.BookRepository;
+import com.example.shop.repositories.CategoryRepository;
+import com.example.shop.repositories.CustomerRepository;
+import com.example.shop.repositories.UserRepository;
+import com.example.shop.services.OrderService;
+
+/**
+ * SQL statements per request for the main endpoints of each controller. Each request is sent
+ * once to warm caches and indexes, so the counts are those of a running instance. A higher
+ * count usually means an association is now loaded once per row.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ControllerQueryCountTest {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	private Category category;
+	private Book book;
+	private Customer customer;
+	private OrderDTO order;
+
+	@BeforeEach
+	void setUp() {
+		String suffix = String.valueOf(System.nanoTime());
+		category = categoryRepository.save(Category.builder()
+				.name("Query Count " + suffix)
+				.categoryType(Category.CategoryType.SUBJECT)
+				.build());
+		book = bookRepository.save(newBook("Query Count Reader " + suffix)
+				.quantity(1_000)
+				.category(category)
+				.build());
+		customer = customerRepository.save(newSchool("Query Count School").build());
+		for (int i = 0; i < 3; i++) {
+			order = orderService.createOrder(orderRequest(customer.getId(), book.getId(), 1));
+		}
+	}
+
+	@Test
+	void bookController() throws Throwable {
+		read(0, get("/api/books/" + book.getId()));
+		read(0, get("/api/books/search?q=reader&size=20&sortBy=relevance"));
+		read(0, get("/api/books/filter?grade=6&board=CBSE"));
+		read(0, get("/api/books/bestsellers?limit=10"));
+		// Updating the book, then locking and counting up the catalog revision
+		read(3, put("/api/books/" + book.getId() + "/stock?quantity=5"));
+	}
+
+	@Test
+	void categoryController() throws Throwable {
+		read(0, get("/api/categories"));
+		read(0, get("/api/categories/" + category.getId()));
+		read(1, get("/api/categories/with-books"));
+	}
+
+	@Test
+	void customerController() throws Throwable {
+		read(0, get("/api/customers/" + customer.getId()));
+		read(1, get("/api/customers/search?name=Query&size=20"));
+		read(1, get("/api/customers/top-customers"));
+	}
+
+	@Test
+	void orderController() throws Throwable {
+		read(2, get("/api/orders/" + order.getId()));
+		read(2, get("/api/orders/customer/" + customer.getId()));
+		read(2, get("/api/orders/search?customerId=" + customer.getId() + "&size=20"));
+		read(1, get("/api/orders/analytics/monthly-sales"));
+		read(1, get("/api/orders/analytics/total-sales"));
+		write(7, post("/api/orders")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"customerId\":" + customer.getId() + ",\"paymentMethod\":\"UPI\","
+						+ "\"orderItems\":[{\"bookId\":" + book.getId() + ",\"quantity\":1}]}"));
+		write(12, put("/api/orders/" + order.getId() + "/status?status=CONFIRMED"));
+		write(12, delete("/api/orders/" + orderService.createOrder(orderRequest(customer.getId(), book.getId(), 1)).getId()));
+	}
+
+	@Test
+	void userController() throws Throwable {
+		User user = userRepository.save(User.builder()
+				.name("Query Count Staff")
+				.email("query-count-" + System.nanoTime() + "@shop.example")
+				.password("query-count-password")
+				.build());
+		read(1, get("/api/users/" + user.getId()));
+		read(1, get("/api/users/admins"));
+	}
+
+	// Sent once first, so caches and indexes are as warm as on a running instance
+	private void read(long statements, RequestBuilder request) throws Throwable {
+		mockMvc.perform(request).andExpect(status().isOk());
+		write(statements, request);
+	}
+
+	private void write(long statements, RequestBuilder request) throws Throwable {
+		assertQueryCount(statements, () -> mockMvc.perform(request).andExpect(status().is2xxSuccessful()));
+	}
+}
@@ -0,0 +1,198 @@
+package com.example.shop.services;
+
+import static com.example.shop.ShopFixtures.newBookDTO;
+import static com.example.shop.ShopFixtures.newSchool;
+import static com.example.shop.ShopFixtures.orderRequest;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.shop.dtos.BookDTO;
+import com.example.shop.dtos.OrderDTO;
+import com.example.shop.models.Book;
+import com.example.shop.models.Customer;
+import com.example.shop.models.Order;
+import com.example.shop.models.OrderItem;
+import com.example.shop.repositories.BookRepository;
+import com.example.shop.repositories.CustomerRepository;
+import com.example.shop.repositories.OrderItemRepository;
+import com.example.shop.repositories.OrderRepository;
+import com.example.shop.services.BestsellerLeaderboard.Period;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BestsellerLeaderboardTest {
+
+	// A slice no other test sells in, one for the rebuild race and one for the clock's zone
+	private static final int GRADE = 11;
+	private static final int RACE_GRADE = 12;
+	private static final int ZONE_GRADE = 10;
+	private static final Book.Board BOARD = Book.Board.IB;
+
+	@Autowired
+	private BestsellerLeaderboard leaderboard;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	@Test
+	void ranksAllTimeAndSlidingWindowsAndFollowsCancellations() {
+		Customer customer = customerRepository.save(newSchool("Leaderboard School").build());
+		Long physics = createBook("IB Physics").getId();
+		Long chemistry = createBook("IB Chemistry").getId();
+		Long biology = createBook("IB Biology").getId();
+
+		// Older sales are written around OrderService, so only a rebuild from order_items sees them
+		saveOrderDirectly(customer, biology, 8, LocalDateTime.now().minusDays(10));
+		saveOrderDirectly(customer, biology, 20, LocalDateTime.now().minusDays(40));
+		leaderboard.rebuild();
+
+		OrderDTO physicsOrder = placeOrder(customer, physics, 5);
+		placeOrder(customer, chemistry, 3);
+
+		assertEquals(List.of(biology, physics, chemistry), top(Period.ALL_TIME));
+		assertEquals(List.of(biology, physics, chemistry), top(Period.LAST_30_DAYS));
+		assertEquals(List.of(physics, chemistry), top(Period.LAST_7_DAYS));
+		assertEquals(List.of(physics), leaderboard.top(1, Period.LAST_7_DAYS, GRADE, BOARD));
+
+		orderService.cancelOrder(physicsOrder.getId());
+		assertEquals(List.of(biology, chemistry), top(Period.ALL_TIME));
+		assertEquals(List.of(chemistry), top(Period.LAST_7_DAYS));
+
+		// Live updates and a rebuild from the database agree
+		leaderboard.rebuild();
+		assertEquals(List.of(biology, chemistry), top(Period.ALL_TIME));
+		assertEquals(List.of(biology, chemistry), top(Period.LAST_30_DAYS));
+		assertEquals(List.of(chemistry), top(Period.LAST_7_DAYS));
+
+		assertEquals(List.of(biology, chemistry), bookService.getBestSellingBooks(10, Period.ALL_TIME, GRADE, BOARD)
+				.stream().map(BookDTO::getId).toList());
+	}
+
+	@Test
+	void rebuildRacingLiveUpdatesCountsEachOrderOnce() {
+		Customer customer = customerRepository.save(newSchool("Fenced School").build());
+		Long economics = createBook("IB Economics", RACE_GRADE).getId();
+		Long history = createBook("IB History", RACE_GRADE).getId();
+		Long geography = createBook("IB Geography", RACE_GRADE).getId();
+		saveOrderDirectly(customer, geography, 9, LocalDateTime.now());
+
+		// Committed before the rebuild reads, but its listener only runs after the rebuild
+		Order committed = saveOrderDirectly(customer, economics, 6, LocalDateTime.now());
+		BooksSoldEvent committedSale = new BooksSoldEvent(committed.getId(), committed.getStatus(),
+				committed.getOrderDate(), Map.of(economics, 6));
+		leaderboard.onBooksSoldCommitting(committedSale);
+
+		// Still committing while the rebuild reads
+		BooksSoldEvent inFlightSale = new BooksSoldEvent(Long.MAX_VALUE, Order.OrderStatus.PENDING,
+				LocalDateTime.now(), Map.of(history, 4));
+		leaderboard.onBooksSoldCommitting(inFlightSale);
+
+		leaderboard.rebuild();
+		leaderboard.onBooksSold(committedSale);
+		leaderboard.onBooksSold(inFlightSale);
+
+		// Counted twice, economics would have 12 and outrank geography's 9
+		assertEquals(List.of(geography, economics, history), leaderboard.top(10, Period.ALL_TIME, RACE_GRADE, BOARD));
+	}
+
+	@Test
+	void bucketsHostLocalOrderDatesIntoClockDays() {
+		Customer customer = customerRepository.save(newSchool("Zoned School").build());
+		Long drama = createBook("IB Drama", ZONE_GRADE).getId();
+		Long music = createBook("IB Music", ZONE_GRADE).getId();
+
+		// A day of UTC+14 starts at 10:00 UTC the day before, so an hour into the oldest day of the
+		// window is still on the previous date in any host zone west of it
+		Clock hostClock = (Clock) ReflectionTestUtils.getField(leaderboard, "clock");
+		Clock eastern = Clock.fixed(Instant.now(), ZoneId.of("Pacific/Kiritimati"));
+		Instant oldestDay = LocalDate.now(eastern).minusDays(6).atStartOfDay(eastern.getZone()).toInstant();
+		LocalDateTime inWindow = LocalDateTime.ofInstant(oldestDay.plus(Duration.ofHours(1)), ZoneId.systemDefault());
+		LocalDateTime beforeWindow = LocalDateTime.ofInstant(oldestDay.minus(Duration.ofHours(1)), ZoneId.systemDefault());
+		saveOrderDirectly(customer, drama, 2, inWindow);
+		saveOrderDirectly(customer, music, 5, beforeWindow);
+
+		ReflectionTestUtils.setField(leaderboard, "clock", eastern);
+		try {
+			leaderboard.rebuild();
+			assertEquals(List.of(drama), leaderboard.top(10, Period.LAST_7_DAYS, ZONE_GRADE, BOARD));
+
+			// Live updates pick the same day as the rebuild
+			leaderboard.onBooksSold(new BooksSoldEvent(-1L, Order.OrderStatus.DELIVERED, inWindow, Map.of(music, 4)));
+			leaderboard.onBooksSold(new BooksSoldEvent(-2L, Order.OrderStatus.DELIVERED, beforeWindow, Map.of(drama, 9)));
+			assertEquals(List.of(music, drama), leaderboard.top(10, Period.LAST_7_DAYS, ZONE_GRADE, BOARD));
+		} finally {
+			ReflectionTestUtils.setField(leaderboard, "clock", hostClock);
+			leaderboard.rebuild();
+		}
+	}
+
+	private List<Long> top(Period period) {
+		return leaderboard.top(10, period, GRADE, BOARD);
+	}
+
+	private BookDTO createBook(String title) {
+		return createBook(title, GRADE);
+	}
+
+	private BookDTO createBook(String title, int grade) {
+		return bookService.createBook(newBookDTO(title + " " + System.nanoTime())
+				.author("IBO")
+				.grade(grade)
+				.board(BOARD)
+				.build());
+	}
+
+	private OrderDTO placeOrder(Customer customer, Long bookId, int quantity) {
+		return orderService.createOrder(orderRequest(customer.getId(), bookId, quantity));
+	}
+
+	private Order saveOrderDirectly(Customer customer, Long bookId, int quantity, LocalDateTime orderDate) {
+		BigDecimal total = BigDecimal.valueOf(500L * quantity);
+		Order order = orderRepository.save(Order.builder()
+				.orderNumber("IMPORT" + System.nanoTime())
+				.customer(customer)
+				.status(Order.OrderStatus.DELIVERED)
+				.orderDate(orderDate)
+				.totalAmount(total)
+				.finalAmount(total)
+				.build());
+		orderItemRepository.save(OrderItem.builder()
+				.order(order)
+				.book(bookRepository.findById(bookId).orElseThrow())
+				.quantity(quantity)
+				.unitPrice(BigDecimal.valueOf(500))
+				.totalPrice(total)
+				.build());
+		return order;
+	}
+}
@@ -0,0 +1,136 @@
+package com.example.shop.services;
+
+import static com.example.shop.ShopFixtures.newBookDTO;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.shop.dtos.BookDTO;
+import com.example.shop.models.Book;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class BookCatalogCacheTest {
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookCatalogCache bookCatalogCache;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@Test
+	void repeatedReadsAreServedWithoutQueries() {
+		BookDTO book = bookService.createBook(scienceBook(3, Book.Board.ICSE));
+
+		bookService.getBooksByGrade(3);
+		bookService.getBookById(book.getId());
+
+		statistics.clear();
+		List<BookDTO> byGrade = bookService.getBooksByGrade(3);
+		BookDTO byId = bookService.getBookById(book.getId()).orElseThrow();
+
+		assertEquals(0, statistics.getPrepareStatementCount());
+		assertTrue(byGrade.stream().anyMatch(b -> b.getId().equals(book.getId())));
+		assertEquals(book.getTitle(), byId.getTitle());
+	}
+
+	@Test
+	void stockChangesAreVisibleOnTheNextRead() {
+		BookDTO book = bookService.createBook(scienceBook(4, Book.Board.CBSE));
+		bookService.getBooksByGrade(4);
+		bookService.getBookById(book.getId());
+
+		assertTrue(bookService.tryReduceStock(book.getId(), 3));
+		assertEquals(7, bookService.getBookById(book.getId()).orElseThrow().getQuantity());
+
+		bookService.updateStock(book.getId(), 25);
+		assertEquals(25, quantityIn(bookService.getBooksByGrade(4), book.getId()));
+
+		bookService.restoreStock(book.getId(), 5);
+		assertEquals(30, quantityIn(bookService.getBooksByGrade(4), book.getId()));
+	}
+
+	@Test
+	void stockChangesOnlyDiscardLoadsOfTheirOwnBook() {
+		BookDTO loaded = bookService.createBook(scienceBook(8, Book.Board.CBSE));
+		BookDTO sold = bookService.createBook(scienceBook(8, Book.Board.CBSE));
+
+		long generation = bookCatalogCache.generation();
+		assertTrue(bookService.tryReduceStock(sold.getId(), 1));
+		bookCatalogCache.putBook(loaded, generation);
+		bookCatalogCache.putBook(sold, generation);
+
+		assertTrue(bookCatalogCache.getBook(loaded.getId()).isPresent(), "another book's stock change keeps the load");
+		assertTrue(bookCatalogCache.getBook(sold.getId()).isEmpty(), "a load that raced the change is not cached");
+	}
+
+	@Test
+	void movingOrDeletingABookUpdatesTheAffectedLists() {
+		BookDTO book = bookService.createBook(scienceBook(5, Book.Board.STATE_BOARD));
+		assertTrue(containsBook(bookService.getBooksByGrade(5), book.getId()));
+		assertFalse(containsBook(bookService.getBooksByGrade(6), book.getId()));
+
+		book.setGrade(6);
+		bookService.updateBook(book.getId(), book);
+		assertFalse(containsBook(bookService.getBooksByGrade(5), book.getId()));
+		assertTrue(containsBook(bookService.getBooksByGrade(6), book.getId()));
+
+		bookService.deleteBook(book.getId());
+		assertFalse(containsBook(bookService.getBooksByGrade(6), book.getId()));
+		assertFalse(containsBook(bookService.getAllBooks(), book.getId()));
+		assertTrue(bookService.getBookById(book.getId()).isEmpty());
+	}
+
+	@Test
+	void returnedBooksCannotChangeTheCachedCopy() {
+		BookDTO book = bookService.createBook(scienceBook(7, Book.Board.CBSE));
+		bookService.getBookById(book.getId()).orElseThrow().setTitle("Changed by caller");
+
+		assertEquals(book.getTitle(), bookService.getBookById(book.getId()).orElseThrow().getTitle());
+	}
+
+	private static BookDTO scienceBook(int grade, Book.Board board) {
+		return newBookDTO("Science Class " + grade + " " + System.nanoTime())
+				.price(200.0)
+				.mrp(250.0)
+				.quantity(10)
+				.grade(grade)
+				.subject("Science")
+				.board(board)
+				.build();
+	}
+
+	private static boolean containsBook(List<BookDTO> books, Long id) {
+		return books.stream().anyMatch(book -> book.getId().equals(id));
+	}
+
+	private static int quantityIn(List<BookDTO> books, Long id) {
+		return books.stream()
+				.filter(book -> book.getId().equals(id))
+				.findFirst()
+				.orElseThrow()
+				.getQuantity();
+	}
+}
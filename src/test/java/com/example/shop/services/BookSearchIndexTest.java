@@ -0,0 +1,103 @@
+package com.example.shop.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.shop.services.BookSearchIndex.Field;
+import com.example.shop.services.BookSearchIndex.SearchDocument;
+import com.example.shop.services.BookSearchIndex.Snapshot;
+
+class BookSearchIndexTest {
+
+	private final Snapshot snapshot = Snapshot.of(List.of(
+			document(1L, "Mathematics Class 7", "R.D. Sharma", "Mathematics", "Dhanpat Rai", "Practice problems for class 7"),
+			document(2L, "Science Class 7", "Lakhmir Singh", "Science", "S. Chand", "Includes a chapter on mathematics in physics"),
+			document(3L, "Mathematics Class 8", "R.S. Aggarwal", "Mathematics", "Bharti Bhawan", null),
+			document(4L, "वसंत भाग 1", "NCERT", "हिंदी", "NCERT", "कक्षा 6 के लिए हिंदी पाठ्यपुस्तक")));
+
+	@Test
+	void everyWordMustMatchAsAPrefix() {
+		assertEquals(List.of(1L, 2L), snapshot.search("math class 7", Map.of()));
+		assertEquals(List.of(1L, 3L), snapshot.search(null, Map.of(Field.TITLE, "mathem")).stream().sorted().toList());
+		assertEquals(List.of(), snapshot.search("mathematics class 9", Map.of()));
+	}
+
+	@Test
+	void titleMatchesOutrankDescriptionMatches() {
+		List<Long> ranked = snapshot.search("mathematics", Map.of());
+
+		assertEquals(3, ranked.size());
+		assertEquals(2L, ranked.get(2));
+	}
+
+	@Test
+	void exactWordsOutrankPrefixes() {
+		Snapshot books = Snapshot.of(List.of(
+				document(1L, "Sciences of the Earth", "A", null, null, null),
+				document(2L, "Science Reader", "A", null, null, null)));
+
+		assertEquals(List.of(2L, 1L), books.search("science", Map.of()));
+	}
+
+	@Test
+	void fieldQueriesOnlySearchTheirField() {
+		assertEquals(List.of(2L), snapshot.search(null, Map.of(Field.TITLE, "science")));
+		assertEquals(List.of(1L), snapshot.search(null, Map.of(Field.AUTHOR, "sharma")));
+		assertEquals(List.of(1L), snapshot.search("class 7", Map.of(Field.SUBJECT, "math")));
+	}
+
+	@Test
+	void indexesDevanagariWordsWhole() {
+		assertEquals(List.of(4L), snapshot.search("वसंत", Map.of()));
+		assertEquals(List.of(4L), snapshot.search("हिंदी", Map.of(Field.SUBJECT, "हिं")));
+		assertEquals(List.of("वसंत", "भाग", "1"), BookSearchIndex.tokenize("वसंत भाग-1"));
+	}
+
+	@Test
+	void changesRankLikeAFullRebuild() {
+		SearchDocument renamed = document(2L, "Science and Mathematics Class 7", "Lakhmir Singh", "Science", "S. Chand", null);
+		SearchDocument added = document(5L, "Mathematics Lab Manual", "NCERT", "Mathematics", "NCERT", "Class 8 activities");
+
+		Snapshot patched = snapshot.with(2L, renamed).with(5L, added).with(3L, null);
+		Snapshot rebuilt = Snapshot.of(List.of(
+				document(1L, "Mathematics Class 7", "R.D. Sharma", "Mathematics", "Dhanpat Rai", "Practice problems for class 7"),
+				renamed,
+				document(4L, "वसंत भाग 1", "NCERT", "हिंदी", "NCERT", "कक्षा 6 के लिए हिंदी पाठ्यपुस्तक"),
+				added));
+
+		for (String query : List.of("mathematics", "math class", "physics", "ncert", "science", "class 8")) {
+			assertEquals(rebuilt.search(query, Map.of()), patched.search(query, Map.of()), query);
+		}
+		assertEquals(List.of(1L, 3L), snapshot.search(null, Map.of(Field.TITLE, "mathematics")).stream().sorted().toList());
+	}
+
+	@Test
+	void punctuationAloneIsNotSearchText() {
+		assertFalse(BookSearchIndex.hasText(null, " ", "--"));
+		assertTrue(BookSearchIndex.hasText(null, "r.d."));
+	}
+
+	private static SearchDocument document(Long id, String title, String author, String subject, String publisher,
+			String description) {
+		Map<Field, String> text = new EnumMap<>(Field.class);
+		put(text, Field.TITLE, title);
+		put(text, Field.AUTHOR, author);
+		put(text, Field.SUBJECT, subject);
+		put(text, Field.PUBLISHER, publisher);
+		put(text, Field.DESCRIPTION, description);
+		return new SearchDocument(id, text);
+	}
+
+	private static void put(Map<Field, String> text, Field field, String value) {
+		if (value != null) {
+			text.put(field, value);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+package com.example.shop.services;
+
+import static com.example.shop.ShopFixtures.newBook;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shop.models.Book;
+import com.example.shop.repositories.BookRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class BookServiceStockConcurrencyTest {
+
+	private static final int INITIAL_STOCK = 200;
+	private static final int THREADS = 16;
+	private static final int ATTEMPTS_PER_THREAD = 50;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Test
+	void concurrentCheckoutsNeverOversellAHotBook() throws Exception {
+		Book book = bookRepository.save(newBook("Mathematics Class 7")
+				.author("R.D. Sharma")
+				.price(450.0)
+				.mrp(500.0)
+				.quantity(INITIAL_STOCK)
+				.grade(7)
+				.subject("Mathematics")
+				.build());
+
+		AtomicInteger sold = new AtomicInteger();
+		AtomicInteger rejected = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> futures = new ArrayList<>();
+
+		for (int t = 0; t < THREADS; t++) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+					if (bookService.tryReduceStock(book.getId(), 1)) {
+						sold.incrementAndGet();
+					} else {
+						rejected.incrementAndGet();
+					}
+				}
+				return null;
+			}));
+		}
+
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get(60, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+
+		int attempts = THREADS * ATTEMPTS_PER_THREAD;
+		assertEquals(INITIAL_STOCK, sold.get());
+		assertEquals(attempts - INITIAL_STOCK, rejected.get());
+		assertEquals(0, bookRepository.findById(book.getId()).orElseThrow().getQuantity());
+	}
+
+	@Test
+	void insufficientStockReportsWhatIsLeftNotWhatWasLoaded() {
+		Book book = bookRepository.save(newBook("Science Class 7")
+				.quantity(5)
+				.grade(7)
+				.subject("Science")
+				.build());
+
+		RuntimeException error = transactionTemplate.execute(status -> {
+			assertEquals(5, bookRepository.findById(book.getId()).orElseThrow().getQuantity());
+			// Another checkout takes most of the stock after the book was loaded here
+			assertTrue(CompletableFuture.supplyAsync(() -> bookService.tryReduceStock(book.getId(), 4)).join());
+			status.setRollbackOnly();
+			return assertThrows(RuntimeException.class, () -> bookService.reduceStock(book.getId(), 3));
+		});
+
+		assertEquals("Insufficient stock. Available: 1, Requested: 3", error.getMessage());
+	}
+}
@@ -0,0 +1,67 @@
+package com.example.shop.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.shop.dtos.SuggestionDTO;
+import com.example.shop.dtos.SuggestionDTO.SuggestionType;
+import com.example.shop.services.BookSuggestionIndex.Snapshot;
+import com.example.shop.services.BookSuggestionIndex.SuggestionSource;
+
+class BookSuggestionIndexTest {
+
+	private final Snapshot snapshot = Snapshot.of(List.of(
+			new SuggestionSource(1L, "Mathematics Class 7", "R.D. Sharma", "Mathematics"),
+			new SuggestionSource(2L, "Mathematics Class 7", "R.S. Aggarwal", "Mathematics"),
+			new SuggestionSource(3L, "Mathematics Class 8", "R.D. Sharma", "Mathematics"),
+			new SuggestionSource(4L, "Science Class 7", "Lakhmir Singh", "Science")));
+
+	@Test
+	void toleratesMisspelledWords() {
+		List<SuggestionDTO> suggestions = snapshot.suggest("mathmatics class 7", 5);
+
+		assertEquals("Mathematics Class 7", suggestions.get(0).getText());
+		assertEquals(SuggestionType.TITLE, suggestions.get(0).getType());
+		assertEquals(2, suggestions.get(0).getBookCount());
+		assertEquals(1, suggestions.size());
+	}
+
+	@Test
+	void completesTheWordBeingTyped() {
+		List<String> texts = snapshot.suggest("shar", 5).stream().map(SuggestionDTO::getText).toList();
+		assertEquals(List.of("R.D. Sharma"), texts);
+
+		texts = snapshot.suggest("mathe", 10).stream().map(SuggestionDTO::getText).toList();
+		assertEquals(List.of("Mathematics", "Mathematics Class 7", "Mathematics Class 8"), texts);
+
+		// Still typing a misspelled word
+		texts = snapshot.suggest("lakmir si", 5).stream().map(SuggestionDTO::getText).toList();
+		assertEquals(List.of("Lakhmir Singh"), texts);
+	}
+
+	@Test
+	void shortWordsMustBeExact() {
+		assertEquals(List.of(), snapshot.suggest("class 9", 5));
+		assertEquals(List.of(), snapshot.suggest("", 5));
+	}
+
+	@Test
+	void changesSuggestLikeAFullRebuild() {
+		SuggestionSource retitled = new SuggestionSource(2L, "Mathematics Class 8", "R.S. Aggarwal", "Mathematics");
+		SuggestionSource added = new SuggestionSource(5L, "Science Lab Manual", "Lakhmir Singh", "Science");
+
+		Snapshot patched = snapshot.with(2L, retitled).with(5L, added).with(1L, null);
+		Snapshot rebuilt = Snapshot.of(List.of(retitled,
+				new SuggestionSource(3L, "Mathematics Class 8", "R.D. Sharma", "Mathematics"),
+				new SuggestionSource(4L, "Science Class 7", "Lakhmir Singh", "Science"),
+				added));
+
+		for (String query : List.of("mathe", "mathmatics class 7", "scien", "lakhmir", "shar", "manual", "class")) {
+			assertEquals(rebuilt.suggest(query, 10), patched.suggest(query, 10), query);
+		}
+		assertEquals(List.of("R.D. Sharma"), snapshot.suggest("shar", 5).stream().map(SuggestionDTO::getText).toList());
+	}
+}
@@ -0,0 +1,89 @@
+package com.example.shop.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.shop.models.Book;
+import com.example.shop.services.CatalogIndex.IndexedBook;
+import com.example.shop.services.CatalogIndex.Snapshot;
+
+class CatalogIndexTest {
+
+	private static final Logger log = LoggerFactory.getLogger(CatalogIndexTest.class);
+
+	private static final String[] SUBJECTS = { "Mathematics", "Science", "English", "Hindi", "Social Studies" };
+
+	@Test
+	void intersectsGradeBoardSubjectAndCategory() {
+		Snapshot snapshot = Snapshot.of(List.of(
+				new IndexedBook(1L, 7, Book.Board.CBSE, "mathematics", 10L),
+				new IndexedBook(2L, 7, Book.Board.CBSE, "science", 10L),
+				new IndexedBook(3L, 7, Book.Board.ICSE, "mathematics", 11L),
+				new IndexedBook(4L, 8, Book.Board.CBSE, "mathematics", 10L)));
+
+		assertEquals(List.of(1L), snapshot.findIds(7, Book.Board.CBSE, "Mathematics", null));
+		assertEquals(List.of(1L, 2L, 4L), snapshot.findIds(null, null, null, 10L));
+		assertEquals(List.of(1L, 3L, 4L), snapshot.findIds(null, null, " MATHEMATICS ", null));
+		assertEquals(List.of(1L, 2L, 3L, 4L), snapshot.findIds(null, null, null, null));
+		assertEquals(List.of(), snapshot.findIds(12, null, null, null));
+	}
+
+	@Test
+	void appliesChangesWithoutTouchingTheOldSnapshot() {
+		Snapshot original = Snapshot.of(List.of(
+				new IndexedBook(1L, 7, Book.Board.CBSE, "mathematics", null),
+				new IndexedBook(2L, 7, Book.Board.CBSE, "science", null)));
+
+		Snapshot added = original.with(changed(3L, true, 7, Book.Board.CBSE, "Mathematics"));
+		Snapshot moved = added.with(changed(1L, true, 8, Book.Board.CBSE, "Mathematics"));
+		Snapshot removed = moved.with(changed(2L, false, 7, Book.Board.CBSE, "Science"));
+		Snapshot restored = removed.with(changed(2L, true, 7, Book.Board.CBSE, "Science"));
+
+		assertEquals(List.of(1L, 2L), original.findIds(7, null, null, null));
+		assertEquals(List.of(1L, 2L, 3L), added.findIds(7, null, null, null));
+		assertEquals(List.of(2L, 3L), moved.findIds(7, null, null, null));
+		assertEquals(List.of(1L), moved.findIds(8, null, "mathematics", null));
+		assertEquals(List.of(3L), removed.findIds(7, null, null, null));
+		assertEquals(List.of(), removed.findIds(null, null, "science", null));
+		assertEquals(List.of(2L, 3L), restored.findIds(7, null, null, null));
+		assertSame(restored, restored.with(changed(2L, true, 7, Book.Board.CBSE, "science")));
+	}
+
+	@Test
+	void answersCombinedFiltersInMicroseconds() {
+		List<IndexedBook> books = new ArrayList<>();
+		for (long id = 1; id <= 20_000; id++) {
+			books.add(new IndexedBook(id, 1 + (int) (id % 12), Book.Board.values()[(int) (id % Book.Board.values().length)],
+					SUBJECTS[(int) (id % SUBJECTS.length)].toLowerCase(), id % 40));
+		}
+		Snapshot snapshot = Snapshot.of(books);
+
+		int iterations = 10_000;
+		int matches = 0;
+		for (int i = 0; i < iterations; i++) {
+			matches += snapshot.findIds(7, Book.Board.CBSE, "Mathematics", null).size();
+		}
+		long startedAt = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			matches += snapshot.findIds(7, Book.Board.CBSE, "Mathematics", null).size();
+		}
+		long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startedAt) / iterations;
+		log.info("grade + board + subject filter over {} books: {} us per lookup", books.size(), micros);
+
+		assertTrue(matches > 0);
+		assertTrue(micros < 1_000, "expected a combined filter to take well under a millisecond");
+	}
+
+	private static BookChangedEvent changed(Long id, boolean active, int grade, Book.Board board, String subject) {
+		return new BookChangedEvent(id, active, grade, board, subject, null, "Title " + id, "Author", null, null);
+	}
+}
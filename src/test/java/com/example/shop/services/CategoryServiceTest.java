@@ -0,0 +1,90 @@
+package com.example.shop.services;
+
+import static com.example.shop.ShopFixtures.newBookDTO;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.shop.dtos.BookDTO;
+import com.example.shop.dtos.CategoryDTO;
+import com.example.shop.models.Book;
+import com.example.shop.models.Category;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class CategoryServiceTest {
+
+	@Autowired
+	private CategoryService categoryService;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void bookCountsFollowCreateMoveAndDeleteWithoutLoadingBooks() {
+		CategoryDTO workbooks = createCategory("Workbooks");
+		CategoryDTO guides = createCategory("Guides");
+
+		BookDTO first = createBook("Counting Workbook", workbooks.getId());
+		createBook("Another Workbook", workbooks.getId());
+		createBook("Exam Guide", guides.getId());
+
+		assertEquals(2, bookCount(workbooks.getId()));
+		assertEquals(1, bookCount(guides.getId()));
+
+		bookService.updateBook(first.getId(), first.toBuilder().categoryId(guides.getId()).build());
+		assertEquals(1, bookCount(workbooks.getId()));
+		assertEquals(2, bookCount(guides.getId()));
+
+		bookService.deleteBook(first.getId());
+		assertEquals(1, bookCount(guides.getId()));
+
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+		assertTrue(categoryService.getAllCategories().size() >= 2);
+		assertEquals(0, statistics.getEntityStatistics(Book.class.getName()).getLoadCount());
+		assertEquals(0, statistics.getCollectionFetchCount());
+	}
+
+	@Test
+	void refusesToDeleteACategoryWithActiveBooks() {
+		CategoryDTO category = createCategory("Atlases");
+		BookDTO atlas = createBook("School Atlas", category.getId());
+
+		RuntimeException error = assertThrows(RuntimeException.class, () -> categoryService.deleteCategory(category.getId()));
+		assertTrue(error.getMessage().contains("active books"));
+
+		bookService.deleteBook(atlas.getId());
+		categoryService.deleteCategory(category.getId());
+		assertTrue(categoryService.getCategoryById(category.getId()).isEmpty());
+	}
+
+	private int bookCount(Long categoryId) {
+		return categoryService.getCategoryById(categoryId).orElseThrow().getBookCount();
+	}
+
+	private CategoryDTO createCategory(String name) {
+		return categoryService.createCategory(CategoryDTO.builder()
+				.name(name + " " + System.nanoTime())
+				.categoryType(Category.CategoryType.SUBJECT)
+				.build());
+	}
+
+	private BookDTO createBook(String title, Long categoryId) {
+		return bookService.createBook(newBookDTO(title)
+				.categoryId(categoryId)
+				.build());
+	}
+}
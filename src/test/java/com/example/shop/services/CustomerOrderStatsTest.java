@@ -0,0 +1,110 @@
+package com.example.shop.services;
+
+import static com.example.shop.ShopFixtures.newBook;
+import static com.example.shop.ShopFixtures.newSchool;
+import static com.example.shop.ShopFixtures.orderRequest;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.shop.configs.CustomerOrderStatsBackfill;
+import com.example.shop.dtos.CustomerDTO;
+import com.example.shop.models.Book;
+import com.example.shop.models.Customer;
+import com.example.shop.models.Order;
+import com.example.shop.repositories.BookRepository;
+import com.example.shop.repositories.CustomerRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class CustomerOrderStatsTest {
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private CustomerOrderStatsBackfill backfill;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Customer customer;
+	private Book book;
+
+	@BeforeEach
+	void setUp() {
+		customer = customerRepository.save(newSchool("Stats School").build());
+		book = bookRepository.save(newBook("Stats Workbook")
+				.price(120.0)
+				.mrp(150.0)
+				.build());
+	}
+
+	@Test
+	void placingOrdersUpdatesTheCustomerStatistics() {
+		placeOrder(2);
+		placeOrder(3);
+
+		CustomerDTO dto = customerService.getCustomerById(customer.getId()).orElseThrow();
+		assertEquals(2, dto.getTotalOrders());
+		assertEquals(600.0, dto.getTotalOrderValue());
+		assertNotNull(dto.getLastOrderDate());
+	}
+
+	@Test
+	void listingCustomersDoesNotLoadTheirOrders() {
+		placeOrder(1);
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		statistics.clear();
+		List<CustomerDTO> customers = customerService.getAllCustomers();
+
+		assertTrue(customers.stream().anyMatch(c -> c.getId().equals(customer.getId()) && c.getTotalOrders() == 1));
+		assertEquals(0, statistics.getEntityStatistics(Order.class.getName()).getLoadCount());
+		assertEquals(0, statistics.getCollectionFetchCount());
+	}
+
+	@Test
+	void backfillFillsInCustomersWithoutStatistics() throws Exception {
+		placeOrder(1);
+		placeOrder(4);
+		jdbcTemplate.update("UPDATE customers SET order_count = NULL, lifetime_value = NULL, last_order_date = NULL "
+				+ "WHERE id = ?", customer.getId());
+
+		backfill.run(null);
+
+		CustomerDTO dto = customerService.getCustomerById(customer.getId()).orElseThrow();
+		assertEquals(2, dto.getTotalOrders());
+		assertEquals(600.0, dto.getTotalOrderValue());
+		assertNotNull(dto.getLastOrderDate());
+	}
+
+	private void placeOrder(int quantity) {
+		orderService.createOrder(orderRequest(customer.getId(), book.getId(), quantity));
+	}
+}
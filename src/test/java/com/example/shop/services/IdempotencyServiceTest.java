@@ -0,0 +1,225 @@
+package com.example.shop.services;
+
+import static com.example.shop.ShopFixtures.newBook;
+import static com.example.shop.ShopFixtures.newSchool;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shop.ShopFixtures;
+import com.example.shop.dtos.CreateOrderRequest;
+import com.example.shop.dtos.OrderDTO;
+import com.example.shop.models.Book;
+import com.example.shop.models.Customer;
+import com.example.shop.models.IdempotencyRecord;
+import com.example.shop.repositories.BookRepository;
+import com.example.shop.repositories.CustomerRepository;
+import com.example.shop.repositories.IdempotencyRecordRepository;
+import com.example.shop.repositories.OrderRepository;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class IdempotencyServiceTest {
+
+	private static final int INITIAL_STOCK = 100;
+	private static final int THREADS = 8;
+
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private IdempotencyRecordRepository idempotencyRecordRepository;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private Customer customer;
+	private Book book;
+
+	@BeforeEach
+	void setUp() {
+		customer = customerRepository.save(newSchool("Retry School").build());
+		book = bookRepository.save(newBook("Retry Reader " + System.nanoTime())
+				.quantity(INITIAL_STOCK)
+				.build());
+	}
+
+	@Test
+	void retriesReplayTheOriginalOrderWithoutTouchingStock() {
+		String key = "retry-" + System.nanoTime();
+		CreateOrderRequest request = orderRequest(3);
+
+		OrderDTO first = submit(key, request);
+		OrderDTO retried = submit(key, request);
+
+		// Another instance only has the table
+		cacheManager.getCache(IdempotencyService.IDEMPOTENCY_CACHE).clear();
+		OrderDTO retriedElsewhere = submit(key, request);
+
+		assertEquals(first.getId(), retried.getId());
+		assertEquals(first.getOrderNumber(), retriedElsewhere.getOrderNumber());
+		assertEquals(1, orderRepository.findByCustomerIdOrderByOrderDateDesc(customer.getId()).size());
+		assertEquals(INITIAL_STOCK - 3, stock());
+		assertEquals(IdempotencyRecord.Status.COMPLETED,
+				idempotencyRecordRepository.findByIdempotencyKey(key).orElseThrow().getStatus());
+	}
+
+	@Test
+	void concurrentDuplicatesShareOneExecution() throws Exception {
+		String key = "burst-" + System.nanoTime();
+		CreateOrderRequest request = orderRequest(2);
+		AtomicInteger executions = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<OrderDTO>> futures = new ArrayList<>();
+
+		for (int t = 0; t < THREADS; t++) {
+			futures.add(executor.submit(() -> {
+				start.await();
+				return idempotencyService.execute(key, request, OrderDTO.class, () -> {
+					executions.incrementAndGet();
+					sleep(200);
+					return orderService.createOrder(request);
+				});
+			}));
+		}
+		start.countDown();
+
+		List<Long> orderIds = new ArrayList<>();
+		for (Future<OrderDTO> future : futures) {
+			orderIds.add(future.get(60, TimeUnit.SECONDS).getId());
+		}
+		executor.shutdown();
+
+		assertEquals(1, executions.get());
+		assertEquals(1, orderIds.stream().distinct().count());
+		assertEquals(INITIAL_STOCK - 2, stock());
+	}
+
+	@Test
+	void reusingAKeyForAnotherRequestIsRejected() {
+		String key = "reuse-" + System.nanoTime();
+		submit(key, orderRequest(1));
+
+		assertThrows(IdempotencyService.KeyReusedException.class, () -> submit(key, orderRequest(5)));
+		assertEquals(INITIAL_STOCK - 1, stock());
+	}
+
+	@Test
+	void failedRequestsReleaseTheirKey() {
+		String key = "failed-" + System.nanoTime();
+		CreateOrderRequest request = orderRequest(INITIAL_STOCK + 1);
+
+		assertThrows(RuntimeException.class, () -> submit(key, request));
+		assertTrue(idempotencyRecordRepository.findByIdempotencyKey(key).isEmpty());
+
+		// Restocked, the client's retry with the same key goes through
+		book.setQuantity(INITIAL_STOCK * 2);
+		bookRepository.save(book);
+		OrderDTO order = submit(key, request);
+
+		assertEquals(INITIAL_STOCK - 1, stock());
+		assertEquals(order.getId(), submit(key, request).getId());
+	}
+
+	@Test
+	void longRunningRequestsKeepTheirClaim() {
+		String key = "slow-" + System.nanoTime();
+		CreateOrderRequest request = orderRequest(4);
+		Duration claimTimeout = (Duration) ReflectionTestUtils.getField(idempotencyService, "claimTimeout");
+		ReflectionTestUtils.setField(idempotencyService, "claimTimeout", Duration.ofMillis(300));
+		try {
+			OrderDTO order = idempotencyService.execute(key, request, OrderDTO.class, () -> {
+				sleep(1000);
+				// A retry on another instance would take over a stale claim now
+				assertEquals(0, takeOverIfStale(key, Duration.ofMillis(300)));
+				return orderService.createOrder(request);
+			});
+
+			assertEquals(order.getId(), submit(key, request).getId());
+			assertEquals(INITIAL_STOCK - 4, stock());
+		} finally {
+			ReflectionTestUtils.setField(idempotencyService, "claimTimeout", claimTimeout);
+		}
+	}
+
+	@Test
+	void requestWhoseClaimWasTakenOverRollsBack() {
+		String key = "lost-" + System.nanoTime();
+		CreateOrderRequest request = orderRequest(6);
+
+		assertThrows(IdempotencyService.KeyInUseException.class, () -> idempotencyService.execute(key, request,
+				OrderDTO.class, () -> {
+					OrderDTO order = orderService.createOrder(request);
+					// Paused for longer than the claim timeout, as far as the other instances can tell
+					assertEquals(1, takeOverIfStale(key, Duration.ofMinutes(-1)));
+					return order;
+				}));
+
+		assertEquals(INITIAL_STOCK, stock());
+		assertTrue(orderRepository.findByCustomerIdOrderByOrderDateDesc(customer.getId()).isEmpty());
+	}
+
+	private OrderDTO submit(String key, CreateOrderRequest request) {
+		return idempotencyService.execute(key, request, OrderDTO.class, () -> orderService.createOrder(request));
+	}
+
+	// What claiming the key does on another instance, in its own transaction
+	private int takeOverIfStale(String key, Duration claimTimeout) {
+		LocalDateTime now = LocalDateTime.now();
+		return CompletableFuture.supplyAsync(() -> transactionTemplate.execute(status ->
+				idempotencyRecordRepository.deleteIfExpiredOrStale(key, now, now.minus(claimTimeout)))).join();
+	}
+
+	private CreateOrderRequest orderRequest(int quantity) {
+		return ShopFixtures.orderRequest(customer.getId(), book.getId(), quantity);
+	}
+
+	private int stock() {
+		return bookRepository.findById(book.getId()).orElseThrow().getQuantity();
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,233 @@
+package com.example.shop.services;
+
+import static com.example.shop.ShopFixtures.newBookDTO;
+import static com.example.shop.ShopFixtures.newSchool;
+import static com.example.shop.ShopFixtures.newSchoolDTO;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.shop.dtos.BookDTO;
+import com.example.shop.dtos.CursorSlice;
+import com.example.shop.dtos.CustomerDTO;
+import com.example.shop.dtos.OrderDTO;
+import com.example.shop.dtos.SearchRequest;
+import com.example.shop.models.Customer;
+import com.example.shop.models.Order;
+import com.example.shop.repositories.CustomerRepository;
+import com.example.shop.repositories.OrderRepository;
+
+/**
+ * Walks every search with cursors and checks it visits the same rows, in the same order, as
+ * offset paging does.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class KeysetPaginationTest {
+
+	private static final int ROWS = 23;
+	private static final int WINDOW = 5;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Test
+	void orderCursorsMatchOffsetPagesIncludingTies() {
+		Customer customer = customerRepository.save(newSchool("Keyset School").build());
+
+		// Groups of three orders share a timestamp, so only the id tie-breaker orders them
+		LocalDateTime start = LocalDateTime.of(2024, 4, 1, 10, 0);
+		List<Order> orders = new ArrayList<>();
+		for (int i = 0; i < ROWS; i++) {
+			orders.add(Order.builder()
+					.orderNumber("KEYSET" + System.nanoTime() + "-" + i)
+					.customer(customer)
+					.orderDate(start.plusMinutes(i / 3))
+					.totalAmount(BigDecimal.TEN)
+					.finalAmount(BigDecimal.TEN)
+					.build());
+		}
+		orderRepository.saveAll(orders);
+
+		SearchRequest request = SearchRequest.builder()
+				.customerId(customer.getId())
+				.size(WINDOW)
+				.sortBy("orderDate")
+				.sortDirection("DESC")
+				.build();
+
+		List<Long> offsetIds = walkPages(request, orderService::searchOrders, OrderDTO::getId);
+		List<Long> cursorIds = walkCursors(request, orderService::searchOrdersAfter, OrderDTO::getId);
+
+		assertEquals(ROWS, offsetIds.size());
+		assertEquals(offsetIds, cursorIds);
+	}
+
+	@Test
+	void customerCursorsMatchOffsetPages() {
+		String marker = "Cursorwalk" + System.nanoTime();
+		// Offset paging has no tie-breaker, so names are unique here; created in reverse name order
+		for (int i = 0; i < ROWS; i++) {
+			customerService.createCustomer(newSchoolDTO(marker + " Parent " + (char) ('Z' - i))
+					.customerType(Customer.CustomerType.INDIVIDUAL)
+					.build());
+		}
+
+		SearchRequest request = SearchRequest.builder()
+				.name(marker)
+				.size(WINDOW)
+				.sortBy("name")
+				.sortDirection("ASC")
+				.build();
+
+		List<Long> offsetIds = walkPages(request, customerService::searchCustomers, CustomerDTO::getId);
+		List<Long> cursorIds = walkCursors(request, customerService::searchCustomersAfter, CustomerDTO::getId);
+
+		assertEquals(ROWS, offsetIds.size());
+		assertEquals(offsetIds, cursorIds);
+	}
+
+	@Test
+	void bookCursorsMatchOffsetPagesForRelevanceAndPropertySorts() {
+		String marker = "Seekbook" + System.nanoTime();
+		for (int i = 0; i < ROWS; i++) {
+			bookService.createBook(newBookDTO(marker + (i % 2 == 0 ? " " + marker : "") + " Workbook " + i)
+					.price(100.0 + i % 4)
+					.mrp(150.0)
+					.quantity(10)
+					.subject("Mathematics")
+					.build());
+		}
+
+		for (String sortBy : List.of(BookService.SORT_BY_RELEVANCE, "price", "title")) {
+			SearchRequest request = SearchRequest.builder()
+					.keyword(marker)
+					.size(WINDOW)
+					.sortBy(sortBy)
+					.sortDirection("DESC")
+					.build();
+
+			List<Long> offsetIds = walkPages(request, bookService::searchBooks, BookDTO::getId);
+			List<Long> cursorIds = walkCursors(request, bookService::searchBooksAfter, BookDTO::getId);
+
+			assertEquals(ROWS, offsetIds.size(), sortBy);
+			assertEquals(offsetIds, cursorIds, sortBy);
+		}
+	}
+
+	@Test
+	void pagesPastNullsOnlyByNonNullColumns() {
+		String marker = "Nullcity" + System.nanoTime();
+		// Every other customer has no city, so a seek on city would lose rows after the first NULL
+		for (int i = 0; i < ROWS; i++) {
+			customerService.createCustomer(newSchoolDTO(marker + " School " + (char) ('A' + i))
+					.city(i % 2 == 0 ? null : "Pune")
+					.build());
+		}
+
+		SearchRequest byCity = SearchRequest.builder()
+				.name(marker)
+				.size(WINDOW)
+				.sortBy("city")
+				.sortDirection("ASC")
+				.cursor("")
+				.build();
+		assertThrows(IllegalArgumentException.class, () -> customerService.searchCustomersAfter(byCity));
+		// Offset paging still sorts by it
+		assertEquals(ROWS, customerService.searchCustomers(byCity).getTotalElements());
+
+		SearchRequest byCreatedAt = copy(byCity);
+		byCreatedAt.setSortBy("createdAt");
+		List<Long> cursorIds = walkCursors(byCreatedAt, customerService::searchCustomersAfter, CustomerDTO::getId);
+
+		assertEquals(ROWS, cursorIds.size());
+		assertEquals(ROWS, cursorIds.stream().distinct().count());
+	}
+
+	@Test
+	void rejectsCursorsIssuedForAnotherSort() {
+		SearchRequest byName = SearchRequest.builder().size(1).sortBy("name").sortDirection("ASC").cursor("").build();
+		customerService.createCustomer(CustomerDTO.builder()
+				.name("Cursor Mismatch")
+				.email("mismatch-" + System.nanoTime() + "@parents.example")
+				.phone("9876501234")
+				.customerType(Customer.CustomerType.INDIVIDUAL)
+				.build());
+		customerService.createCustomer(CustomerDTO.builder()
+				.name("Cursor Mismatch Two")
+				.email("mismatch2-" + System.nanoTime() + "@parents.example")
+				.phone("9876501235")
+				.customerType(Customer.CustomerType.INDIVIDUAL)
+				.build());
+		String cursor = customerService.searchCustomersAfter(byName).getNextCursor();
+
+		SearchRequest byEmail = SearchRequest.builder().size(1).sortBy("email").sortDirection("ASC").cursor(cursor).build();
+		assertThrows(IllegalArgumentException.class, () -> customerService.searchCustomersAfter(byEmail));
+
+		SearchRequest garbage = SearchRequest.builder().size(1).sortBy("name").sortDirection("ASC").cursor("not-a-cursor").build();
+		assertThrows(IllegalArgumentException.class, () -> customerService.searchCustomersAfter(garbage));
+	}
+
+	private static <T> List<Long> walkPages(SearchRequest request, Function<SearchRequest, Page<T>> search,
+			Function<T, Long> id) {
+		List<Long> ids = new ArrayList<>();
+		SearchRequest pageRequest = copy(request);
+		for (int page = 0;; page++) {
+			pageRequest.setPage(page);
+			Page<T> result = search.apply(pageRequest);
+			result.getContent().forEach(row -> ids.add(id.apply(row)));
+			if (!result.hasNext()) {
+				return ids;
+			}
+		}
+	}
+
+	private static <T> List<Long> walkCursors(SearchRequest request, Function<SearchRequest, CursorSlice<T>> search,
+			Function<T, Long> id) {
+		List<Long> ids = new ArrayList<>();
+		SearchRequest cursorRequest = copy(request);
+		cursorRequest.setCursor("");
+		while (true) {
+			CursorSlice<T> slice = search.apply(cursorRequest);
+			slice.getContent().forEach(row -> ids.add(id.apply(row)));
+			if (!slice.isHasNext()) {
+				assertNull(slice.getNextCursor());
+				return ids;
+			}
+			assertFalse(slice.getContent().isEmpty());
+			cursorRequest.setCursor(slice.getNextCursor());
+		}
+	}
+
+	private static SearchRequest copy(SearchRequest request) {
+		SearchRequest copy = new SearchRequest();
+		BeanUtils.copyProperties(request, copy);
+		return copy;
+	}
+}
@@ -0,0 +1,134 @@
+package com.example.shop.services;
+
+import static com.example.shop.ShopFixtures.newSchool;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.shop.dtos.SearchRequest;
+import com.example.shop.models.Customer;
+import com.example.shop.repositories.CustomerRepository;
+
+/**
+ * Latency of the first and the 5000th page of order search, OFFSET paging against cursors.
+ * Seeds 100k+ orders, so it only runs with the benchmark profile: mvn test -Pbenchmark
+ */
+@Tag("benchmark")
+@SpringBootTest
+@ActiveProfiles("test")
+class OrderSearchPaginationBenchmarkTest {
+
+	private static final Logger log = LoggerFactory.getLogger(OrderSearchPaginationBenchmarkTest.class);
+
+	private static final int PAGE_SIZE = 20;
+	private static final int DEEP_PAGE = 5000;
+	private static final int ORDERS = (DEEP_PAGE + 1) * PAGE_SIZE;
+	private static final long FIRST_ID = 10_000_000L;
+	private static final int RUNS = 7;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void deepCursorWindowCostsAboutTheSameAsTheFirstPage() {
+		seedOrders();
+
+		SearchRequest firstPage = newestFirst();
+		SearchRequest deepPage = newestFirst();
+		deepPage.setPage(DEEP_PAGE);
+
+		SearchRequest firstWindow = newestFirst();
+		firstWindow.setCursor("");
+		SearchRequest deepWindow = newestFirst();
+		deepWindow.setCursor(cursorAfterRow(DEEP_PAGE * PAGE_SIZE - 1));
+
+		assertEquals(orderService.searchOrders(deepPage).getContent().get(0).getId(),
+				orderService.searchOrdersAfter(deepWindow).getContent().get(0).getId());
+
+		long offsetFirst = medianMicros(() -> orderService.searchOrders(firstPage));
+		long offsetDeep = medianMicros(() -> orderService.searchOrders(deepPage));
+		long cursorFirst = medianMicros(() -> orderService.searchOrdersAfter(firstWindow));
+		long cursorDeep = medianMicros(() -> orderService.searchOrdersAfter(deepWindow));
+
+		log.info("Order search over {} orders, {} per page (median of {} runs): "
+				+ "offset page 1 {} us, page {} {} us; cursor page 1 {} us, page {} {} us",
+				ORDERS, PAGE_SIZE, RUNS, offsetFirst, DEEP_PAGE, offsetDeep, cursorFirst, DEEP_PAGE, cursorDeep);
+
+		assertTrue(cursorDeep < offsetDeep, "expected a deep cursor window to be cheaper than a deep offset page");
+	}
+
+	private void seedOrders() {
+		Customer customer = customerRepository.save(newSchool("Benchmark School").build());
+
+		Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+		LocalDateTime start = LocalDateTime.of(2020, 1, 1, 9, 0);
+		List<Object[]> rows = new ArrayList<>(ORDERS);
+		for (int i = 0; i < ORDERS; i++) {
+			rows.add(new Object[] { FIRST_ID + i, "BENCH" + (FIRST_ID + i), customer.getId(), "DELIVERED",
+					BigDecimal.TEN, BigDecimal.ZERO, BigDecimal.TEN, Timestamp.valueOf(start.plusMinutes(i)),
+					"PAID", now, now });
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO orders (id, order_number, customer_id, status, total_amount, "
+				+ "discount_amount, final_amount, order_date, payment_status, created_at, updated_at) "
+				+ "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows);
+	}
+
+	private static SearchRequest newestFirst() {
+		SearchRequest request = new SearchRequest();
+		request.setSize(PAGE_SIZE);
+		request.setSortBy("orderDate");
+		request.setSortDirection("DESC");
+		return request;
+	}
+
+	// The cursor a client would hold after reading rows 0..row, without walking 5000 windows
+	private String cursorAfterRow(int row) {
+		Map<String, Object> keys = jdbcTemplate.queryForObject(
+				"SELECT order_date, id FROM orders ORDER BY order_date DESC, id DESC OFFSET ? ROWS FETCH NEXT 1 ROWS ONLY",
+				(rs, rowNum) -> {
+					Map<String, Object> values = new LinkedHashMap<>();
+					values.put("orderDate", rs.getTimestamp("order_date").toLocalDateTime());
+					values.put("id", rs.getLong("id"));
+					return values;
+				}, row);
+		return SearchCursor.encode("orderDate", Sort.Direction.DESC, keys);
+	}
+
+	private static long medianMicros(Supplier<?> search) {
+		// Warm-up run so the timings are not dominated by class loading and JIT
+		search.get();
+		long[] micros = new long[RUNS];
+		for (int i = 0; i < RUNS; i++) {
+			long startedAt = System.nanoTime();
+			search.get();
+			micros[i] = (System.nanoTime() - startedAt) / 1_000;
+		}
+		Arrays.sort(micros);
+		return micros[RUNS / 2];
+	}
+}
@@ -0,0 +1,165 @@
+package com.example.shop.services;
+
+import static com.example.shop.ShopFixtures.newBook;
+import static com.example.shop.ShopFixtures.newSchool;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shop.dtos.CreateOrderRequest;
+import com.example.shop.dtos.OrderDTO;
+import com.example.shop.models.Book;
+import com.example.shop.models.Customer;
+import com.example.shop.models.Order;
+import com.example.shop.models.OrderItem;
+import com.example.shop.repositories.BookRepository;
+import com.example.shop.repositories.CustomerRepository;
+import com.example.shop.repositories.OrderItemRepository;
+import com.example.shop.repositories.OrderRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Compares JDBC round-trips and latency of a 200-line school bulk order between
+ * {@link OrderService#createOrder} and the previous one-row-at-a-time write path.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("test")
+class OrderServiceBatchWriteTest {
+
+	private static final Logger log = LoggerFactory.getLogger(OrderServiceBatchWriteTest.class);
+
+	private static final int LINES = 200;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	private Statistics statistics;
+	private Customer customer;
+	private List<Book> books;
+
+	@BeforeEach
+	void setUp() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+		customer = customerRepository.save(newSchool("Delhi Public School").build());
+
+		List<Book> newBooks = new ArrayList<>();
+		for (int i = 0; i < LINES; i++) {
+			newBooks.add(newBook("Workbook " + i)
+					.price(120.0)
+					.mrp(150.0)
+					.quantity(1000)
+					.grade(1 + i % 12)
+					.subject("Subject " + i % 8)
+					.build());
+		}
+		books = bookRepository.saveAll(newBooks);
+	}
+
+	@Test
+	void bulkOrderIsWrittenWithBatchedStatements() {
+		CreateOrderRequest request = CreateOrderRequest.builder()
+				.customerId(customer.getId())
+				.orderItems(books.stream()
+						.map(book -> CreateOrderRequest.CreateOrderItemRequest.builder()
+								.bookId(book.getId())
+								.quantity(2)
+								.build())
+						.toList())
+				.paymentMethod(Order.PaymentMethod.BANK_TRANSFER)
+				.build();
+
+		// Warm up both paths so the timed runs are not dominated by class loading and JIT
+		orderService.createOrder(request);
+		createOrderOneRowAtATime();
+
+		statistics.clear();
+		long startedAt = System.nanoTime();
+		OrderDTO order = orderService.createOrder(request);
+		long batchedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+		long batchedStatements = statistics.getPrepareStatementCount();
+		long batchedInserts = statistics.getEntityInsertCount();
+
+		statistics.clear();
+		startedAt = System.nanoTime();
+		createOrderOneRowAtATime();
+		long legacyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+		long legacyStatements = statistics.getPrepareStatementCount();
+
+		log.info("{}-line order: batched path {} statements in {} ms, row-at-a-time path {} statements in {} ms",
+				LINES, batchedStatements, batchedMillis, legacyStatements, legacyMillis);
+
+		assertEquals(LINES, order.getTotalItems());
+		assertEquals(LINES + 1, batchedInserts);
+		assertTrue(batchedStatements * 2 < legacyStatements,
+				"expected batched path to need less than half the statements of the row-at-a-time path");
+	}
+
+	// Mirrors the write pattern createOrder had before batching: order saved first, then a lookup,
+	// an item insert and a stock update per line, then a second save of the order with its totals
+	private void createOrderOneRowAtATime() {
+		transactionTemplate.executeWithoutResult(status -> {
+			Order order = orderRepository.saveAndFlush(Order.builder()
+					.orderNumber("LEGACY" + System.nanoTime())
+					.customer(customerRepository.findById(customer.getId()).orElseThrow())
+					.orderDate(LocalDateTime.now())
+					.totalAmount(BigDecimal.ONE)
+					.finalAmount(BigDecimal.ONE)
+					.build());
+
+			BigDecimal total = BigDecimal.ZERO;
+			for (Book line : books) {
+				Book book = bookRepository.findById(line.getId()).orElseThrow();
+				book.setQuantity(book.getQuantity() - 2);
+				BigDecimal itemTotal = BigDecimal.valueOf(book.getPrice()).multiply(BigDecimal.valueOf(2));
+				orderItemRepository.saveAndFlush(OrderItem.builder()
+						.order(order)
+						.book(book)
+						.quantity(2)
+						.unitPrice(BigDecimal.valueOf(book.getPrice()))
+						.totalPrice(itemTotal)
+						.build());
+				total = total.add(itemTotal);
+			}
+
+			order.setTotalAmount(total);
+			order.setFinalAmount(total);
+			orderRepository.saveAndFlush(order);
+		});
+	}
+}
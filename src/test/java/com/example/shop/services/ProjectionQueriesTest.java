@@ -0,0 +1,169 @@
+package com.example.shop.services;
+
+import static com.example.shop.ShopFixtures.newBook;
+import static com.example.shop.ShopFixtures.newSchool;
+import static com.example.shop.ShopFixtures.orderRequest;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shop.dtos.BookDTO;
+import com.example.shop.dtos.CustomerDTO;
+import com.example.shop.dtos.OrderDTO;
+import com.example.shop.dtos.SearchRequest;
+import com.example.shop.models.Book;
+import com.example.shop.models.Category;
+import com.example.shop.models.Customer;
+import com.example.shop.models.Order;
+import com.example.shop.repositories.BookRepository;
+import com.example.shop.repositories.CategoryRepository;
+import com.example.shop.repositories.CustomerRepository;
+import com.example.shop.repositories.OrderItemRepository;
+import com.example.shop.repositories.OrderRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * The list reads build their DTOs from constructor expressions; they must come out exactly as
+ * the entity mapping would have built them, without a single entity being loaded.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ProjectionQueriesTest {
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private Book book;
+	private Customer customer;
+
+	@BeforeEach
+	void setUp() {
+		Category category = categoryRepository.save(Category.builder()
+				.name("Projection " + System.nanoTime())
+				.categoryType(Category.CategoryType.SUBJECT)
+				.build());
+		book = bookRepository.save(newBook("Projection Atlas")
+				.author("Oxford")
+				.description("Maps of India and the world")
+				.isbn("PRJ" + System.nanoTime())
+				.price(310.0)
+				.mrp(350.0)
+				.discount(5.0)
+				.quantity(4)
+				.grade(8)
+				.subject("Geography")
+				.board(Book.Board.ICSE)
+				.category(category)
+				.build());
+		customer = customerRepository.save(newSchool("Projection School")
+				.city("Nagpur-" + System.nanoTime())
+				.institutionName("Projection Public School")
+				.build());
+		for (int i = 0; i < 2; i++) {
+			orderService.createOrder(orderRequest(customer.getId(), book.getId(), 1 + i));
+		}
+	}
+
+	@Test
+	void booksMatchTheEntityMapping() {
+		BookDTO expected = transactionTemplate.execute(status ->
+				bookService.convertToDTO(bookRepository.findById(book.getId()).orElseThrow()));
+
+		assertEquals(List.of(expected), withoutEntityLoads(() -> bookService.getLowStockBooks(5).stream()
+				.filter(dto -> dto.getId().equals(book.getId()))
+				.toList()));
+		assertEquals(expected, withoutEntityLoads(() -> bookService.getBookByIsbn(book.getIsbn()).orElseThrow()));
+	}
+
+	@Test
+	void customersMatchTheEntityMapping() {
+		assertEquals(List.of(expectedCustomer()),
+				withoutEntityLoads(() -> customerService.getCustomersByCity(customer.getCity())));
+	}
+
+	@Test
+	void statisticsNotYetBackfilledReadAsZero() {
+		jdbcTemplate.update("UPDATE customers SET order_count = NULL, lifetime_value = NULL WHERE id = ?",
+				customer.getId());
+
+		CustomerDTO dto = customerService.getCustomersByCity(customer.getCity()).get(0);
+
+		assertEquals(0, dto.getTotalOrders());
+		assertEquals(0.0, dto.getTotalOrderValue());
+		assertEquals(expectedCustomer(), dto);
+	}
+
+	@Test
+	void orderSummariesMatchTheEntityMapping() {
+		List<OrderDTO> expected = transactionTemplate.execute(status -> {
+			List<Order> orders = orderRepository.findByCustomerIdOrderByOrderDateDesc(customer.getId());
+			return orders.stream()
+					.map(order -> orderService.convertToDTO(order,
+							orderItemRepository.findByOrderIdInWithBook(List.of(order.getId()))))
+					.toList();
+		});
+
+		assertEquals(expected, withoutEntityLoads(() -> orderService.getOrdersByCustomer(customer.getId())));
+
+		SearchRequest search = new SearchRequest();
+		search.setCustomerId(customer.getId());
+		search.setSortBy("orderDate");
+		search.setSortDirection("desc");
+		assertEquals(expected, withoutEntityLoads(() -> orderService.searchOrders(search).getContent()));
+	}
+
+	private CustomerDTO expectedCustomer() {
+		return transactionTemplate.execute(status ->
+				customerService.convertToDTO(customerRepository.findById(customer.getId()).orElseThrow()));
+	}
+
+	private <T> T withoutEntityLoads(Supplier<T> read) {
+		Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		long loaded = statistics.getEntityLoadCount();
+		T result = read.get();
+		assertEquals(loaded, statistics.getEntityLoadCount(), "entities loaded");
+		return result;
+	}
+}
@@ -0,0 +1,166 @@
+package com.example.shop.services;
+
+import static com.example.shop.ShopFixtures.newBook;
+import static com.example.shop.ShopFixtures.newSchool;
+import static com.example.shop.ShopFixtures.orderRequest;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoSpyBean;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shop.dtos.MonthlySalesDTO;
+import com.example.shop.dtos.OrderDTO;
+import com.example.shop.models.Book;
+import com.example.shop.models.Customer;
+import com.example.shop.models.Order;
+import com.example.shop.repositories.BookRepository;
+import com.example.shop.repositories.CustomerRepository;
+import com.example.shop.repositories.OrderRepository;
+
+/**
+ * Checks the sales rollup against the original aggregate queries over the orders table.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class SalesRollupServiceTest {
+
+	@Autowired
+	private SalesRollupService salesRollupService;
+
+	@Autowired
+	private OrderService orderService;
+
+	// Spied so a test can commit an order between the lock on the buckets and the sum of the orders
+	@MockitoSpyBean
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	private Customer customer;
+	private Book book;
+
+	@BeforeEach
+	void setUp() {
+		customer = customerRepository.save(newSchool("Rollup School").build());
+		book = bookRepository.save(newBook("Rollup Reader")
+				.quantity(500)
+				.build());
+
+		// Other tests write orders around OrderService; start from buckets that match the table
+		salesRollupService.reconcile();
+	}
+
+	@Test
+	void orderLifecycleKeepsTheRollupExact() {
+		OrderDTO confirmed = placeOrder(2);
+		OrderDTO delivered = placeOrder(4);
+		OrderDTO cancelled = placeOrder(1);
+		placeOrder(3);
+
+		orderService.updateOrderStatus(confirmed.getId(), Order.OrderStatus.CONFIRMED);
+		orderService.updateOrderStatus(delivered.getId(), Order.OrderStatus.CONFIRMED);
+		orderService.updateOrderStatus(delivered.getId(), Order.OrderStatus.DELIVERED);
+		orderService.cancelOrder(cancelled.getId());
+
+		assertEquals(0, salesRollupService.reconcile());
+		assertMatchesOrdersTable();
+	}
+
+	@Test
+	void reconciliationRepairsOrdersWrittenAroundTheService() {
+		saveOrderDirectly(LocalDateTime.of(2023, 1, 20, 11, 0), Order.OrderStatus.DELIVERED, "450.00");
+		saveOrderDirectly(LocalDateTime.of(2023, 3, 5, 16, 30), Order.OrderStatus.CONFIRMED, "120.50");
+
+		// Day and month bucket of each order
+		assertEquals(4, salesRollupService.reconcile());
+		assertEquals(0, salesRollupService.reconcile());
+		assertMatchesOrdersTable();
+
+		assertSales(LocalDate.of(2023, 1, 15), LocalDate.of(2023, 3, 10));
+		assertSales(LocalDate.of(2023, 1, 21), LocalDate.of(2023, 3, 4));
+		assertSales(LocalDate.of(2023, 2, 1), LocalDate.of(2023, 3, 31));
+		assertSales(LocalDate.of(2023, 3, 5), LocalDate.of(2023, 3, 5));
+	}
+
+	@Test
+	void reconciliationAdoptsBucketsCreatedAfterItLockedTheOthers() {
+		// The spy forwards to the repository by default; the stub does the same once the order is in
+		Answer<?> repository = mockingDetails(orderRepository).getMockCreationSettings().getDefaultAnswer();
+		AtomicBoolean placed = new AtomicBoolean();
+		doAnswer(invocation -> {
+			if (placed.compareAndSet(false, true)) {
+				// Another request places an order on a day that had no bucket yet
+				CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status -> {
+					Order order = saveOrderDirectly(LocalDateTime.of(2022, 6, 10, 9, 0), Order.OrderStatus.CONFIRMED,
+							"80.00");
+					salesRollupService.recordOrderPlaced(order);
+				})).join();
+			}
+			return repository.answer(invocation);
+		}).when(orderRepository).sumOrdersByDayAndStatus();
+
+		assertEquals(0, salesRollupService.reconcile());
+		assertMatchesOrdersTable();
+		assertSales(LocalDate.of(2022, 6, 1), LocalDate.of(2022, 6, 30));
+	}
+
+	private void assertMatchesOrdersTable() {
+		assertEquals(0, orderRepository.calculateTotalSales().compareTo(orderService.calculateTotalSales()));
+		assertSales(LocalDate.now().minusMonths(3).withDayOfMonth(15), LocalDate.now());
+
+		List<MonthlySalesDTO> report = orderService.getMonthlySalesReport();
+		List<Object[]> expected = orderRepository.getMonthlySalesReport();
+		assertEquals(expected.size(), report.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(((Number) expected.get(i)[0]).intValue(), report.get(i).getYear());
+			assertEquals(((Number) expected.get(i)[1]).intValue(), report.get(i).getMonth());
+			assertEquals(0, ((BigDecimal) expected.get(i)[2]).compareTo(report.get(i).getTotalSales()));
+			assertEquals(((Number) expected.get(i)[3]).longValue(), report.get(i).getOrderCount());
+		}
+	}
+
+	private void assertSales(LocalDate first, LocalDate last) {
+		LocalDateTime start = first.atStartOfDay();
+		LocalDateTime end = last.atTime(23, 59, 59);
+		BigDecimal expected = orderRepository.calculateSalesByDateRange(start, end);
+		BigDecimal actual = orderService.calculateSalesByDateRange(start, end);
+		assertEquals(0, (expected != null ? expected : BigDecimal.ZERO).compareTo(actual), first + " to " + last);
+	}
+
+	private OrderDTO placeOrder(int quantity) {
+		return orderService.createOrder(orderRequest(customer.getId(), book.getId(), quantity));
+	}
+
+	private Order saveOrderDirectly(LocalDateTime orderDate, Order.OrderStatus status, String amount) {
+		return orderRepository.save(Order.builder()
+				.orderNumber("IMPORT" + System.nanoTime())
+				.customer(customer)
+				.status(status)
+				.orderDate(orderDate)
+				.totalAmount(new BigDecimal(amount))
+				.finalAmount(new BigDecimal(amount))
+				.build());
+	}
+}
@@ -0,0 +1,110 @@
+package com.example.shop.services;
+
+import static com.example.shop.QueryCountAssertions.assertQueryCount;
+import static com.example.shop.ShopFixtures.newBookDTO;
+import static com.example.shop.ShopFixtures.newSchoolDTO;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.shop.dtos.BookDTO;
+import com.example.shop.dtos.CategoryDTO;
+import com.example.shop.dtos.CustomerDTO;
+import com.example.shop.models.Book;
+import com.example.shop.models.Category;
+import com.example.shop.repositories.BookRepository;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class SecondLevelCacheTest {
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private CategoryService categoryService;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	void booksAreLoadedFromTheCache() throws Throwable {
+		BookDTO book = createBook("Cached Reader");
+		findBook(book.getId());
+
+		Book cached = assertQueryCount(0, () -> findBook(book.getId()));
+		assertEquals("Cached Reader", cached.getTitle());
+	}
+
+	@Test
+	void stockChangesEvictOnlyTheirBook() {
+		BookDTO sold = createBook("Sold Reader");
+		BookDTO other = createBook("Other Reader");
+		findBook(sold.getId());
+		findBook(other.getId());
+
+		assertTrue(bookService.tryReduceStock(sold.getId(), 3));
+
+		assertFalse(entityManagerFactory.getCache().contains(Book.class, sold.getId()));
+		assertTrue(entityManagerFactory.getCache().contains(Book.class, other.getId()));
+		assertEquals(27, findBook(sold.getId()).getQuantity());
+
+		bookService.restoreStock(sold.getId(), 3);
+		assertEquals(30, findBook(sold.getId()).getQuantity());
+	}
+
+	@Test
+	void activeCategoriesComeFromTheQueryCacheUntilOneIsDeleted() throws Throwable {
+		CategoryDTO category = categoryService.createCategory(CategoryDTO.builder()
+				.name("Cached Category " + System.nanoTime())
+				.categoryType(Category.CategoryType.SUBJECT)
+				.build());
+		categoryService.getAllCategories();
+
+		assertTrue(assertQueryCount(0, () -> categoryService.getAllCategories()).stream()
+				.anyMatch(cached -> cached.getId().equals(category.getId())));
+
+		categoryService.deleteCategory(category.getId());
+		assertTrue(categoryService.getAllCategories().stream()
+				.noneMatch(active -> active.getId().equals(category.getId())));
+	}
+
+	@Test
+	void deletedCustomersAreNotFoundByCachedLookups() throws Throwable {
+		CustomerDTO customer = customerService.createCustomer(newSchoolDTO("Cached School").build());
+		customerService.getCustomerByEmail(customer.getEmail());
+		assertTrue(assertQueryCount(0, () -> customerService.getCustomerByEmail(customer.getEmail())).isPresent());
+
+		customerService.deleteCustomer(customer.getId());
+
+		assertTrue(customerService.getCustomerByEmail(customer.getEmail()).isEmpty());
+		assertTrue(customerService.getCustomerById(customer.getId()).isEmpty());
+	}
+
+	private Book findBook(Long id) {
+		return transactionTemplate.execute(status -> bookRepository.findById(id).orElseThrow());
+	}
+
+	private BookDTO createBook(String title) {
+		return bookService.createBook(newBookDTO(title)
+				.quantity(30)
+				.build());
+	}
+}
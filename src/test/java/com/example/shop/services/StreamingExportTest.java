@@ -0,0 +1,124 @@
+package com.example.shop.services;
+
+import static com.example.shop.ShopFixtures.newBook;
+import static com.example.shop.ShopFixtures.newSchool;
+import static com.example.shop.ShopFixtures.orderRequest;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.example.shop.dtos.OrderDTO;
+import com.example.shop.models.Book;
+import com.example.shop.models.Customer;
+import com.example.shop.repositories.BookRepository;
+import com.example.shop.repositories.CustomerRepository;
+import com.example.shop.repositories.OrderRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class StreamingExportTest {
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private BookService bookService;
+
+	@Autowired
+	private CustomerService customerService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private BookRepository bookRepository;
+
+	@Autowired
+	private CustomerRepository customerRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Test
+	void exportsEveryOrderAcrossBatches() throws Exception {
+		Customer customer = customerRepository.save(newSchool("Export School, Pune").build());
+		Book book = bookRepository.save(newBook("Export \"Primer\"")
+				.quantity(10_000)
+				.build());
+		List<Long> placed = new ArrayList<>();
+		for (int i = 0; i < ExportWriter.BATCH_SIZE + 20; i++) {
+			placed.add(placeOrder(customer, book, 1 + i % 3).getId());
+		}
+
+		List<String> ndjson = export(out -> orderService.exportOrders(out, ExportFormat.NDJSON));
+		assertEquals(orderRepository.count(), ndjson.size());
+		List<Long> exportedIds = new ArrayList<>();
+		for (String line : ndjson) {
+			JsonNode order = objectMapper.readTree(line);
+			exportedIds.add(order.get("id").asLong());
+			if (order.get("id").asLong() == placed.get(placed.size() - 1)) {
+				assertEquals(book.getId(), order.get("orderItems").get(0).get("bookId").asLong());
+				assertEquals(customer.getName(), order.get("customerName").asText());
+			}
+		}
+		assertTrue(exportedIds.containsAll(placed));
+		assertEquals(exportedIds.stream().sorted().toList(), exportedIds, "orders are exported in id order");
+
+		List<String> csv = export(out -> orderService.exportOrders(out, ExportFormat.CSV));
+		assertEquals(orderRepository.count() + 1, csv.size());
+		assertTrue(csv.get(0).startsWith("id,orderNumber,orderDate,customerId,customerName,"));
+		assertTrue(csv.stream().anyMatch(line -> line.contains(",\"Export School, Pune\",")));
+	}
+
+	@Test
+	void exportsActiveBooksAndCustomers() throws Exception {
+		customerRepository.save(newSchool("Export Inactive").isActive(false).build());
+		customerRepository.save(newSchool("Export Active").build());
+
+		List<String> customers = export(out -> customerService.exportCustomers(out, ExportFormat.NDJSON));
+		assertEquals(customerService.getAllCustomers().size(), customers.size());
+		assertTrue(customers.stream().anyMatch(line -> line.contains("export-active")));
+		assertTrue(customers.stream().noneMatch(line -> line.contains("export-inactive")));
+
+		List<String> books = export(out -> bookService.exportBooks(out, ExportFormat.CSV));
+		assertEquals(bookRepository.findByIsActiveTrue().size() + 1, books.size());
+		assertEquals("id,title,author,isbn", books.get(0).substring(0, "id,title,author,isbn".length()));
+	}
+
+	@Test
+	void quotesCsvValuesOnlyWhenNeeded() {
+		assertEquals("", ExportWriter.csvValue(null));
+		assertEquals("plain", ExportWriter.csvValue("plain"));
+		assertEquals("CBSE", ExportWriter.csvValue(Book.Board.CBSE));
+		assertEquals("\"a, b\"", ExportWriter.csvValue("a, b"));
+		assertEquals("\"say \"\"hi\"\"\"", ExportWriter.csvValue("say \"hi\""));
+		assertEquals("\"two\nlines\"", ExportWriter.csvValue("two\nlines"));
+	}
+
+	private List<String> export(Export export) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		export.writeTo(out);
+		String body = out.toString(StandardCharsets.UTF_8);
+		return body.isEmpty() ? List.of() : List.of(body.split("\n"));
+	}
+
+	private OrderDTO placeOrder(Customer customer, Book book, int quantity) {
+		return orderService.createOrder(orderRequest(customer.getId(), book.getId(), quantity));
+	}
+
+	@FunctionalInterface
+	private interface Export {
+		void writeTo(ByteArrayOutputStream out) throws Exception;
+	}
+}
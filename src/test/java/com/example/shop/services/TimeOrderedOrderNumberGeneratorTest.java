@@ -0,0 +1,141 @@
+package com.example.shop.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class TimeOrderedOrderNumberGeneratorTest {
+
+	private static final int THREADS = 8;
+	private static final int ORDERS_PER_THREAD = 5_000;
+
+	@Test
+	void concurrentInstancesNeverHandOutTheSameNumber() throws Exception {
+		// Two app instances sharing a clock, each with several request threads
+		List<OrderNumberGenerator> instances = List.of(
+				new TimeOrderedOrderNumberGenerator(1),
+				new TimeOrderedOrderNumberGenerator(2));
+
+		Set<String> issued = ConcurrentHashMap.newKeySet();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Future<?>> futures = new ArrayList<>();
+
+		for (int t = 0; t < THREADS; t++) {
+			OrderNumberGenerator generator = instances.get(t % instances.size());
+			futures.add(executor.submit(() -> {
+				start.await();
+				String previous = "";
+				for (int i = 0; i < ORDERS_PER_THREAD; i++) {
+					String orderNumber = generator.nextOrderNumber();
+					assertTrue(orderNumber.compareTo(previous) > 0, "numbers from one node must increase");
+					issued.add(orderNumber);
+					previous = orderNumber;
+				}
+				return null;
+			}));
+		}
+
+		start.countDown();
+		for (Future<?> future : futures) {
+			future.get(30, TimeUnit.SECONDS);
+		}
+		executor.shutdown();
+
+		assertEquals(THREADS * ORDERS_PER_THREAD, issued.size());
+		assertTrue(issued.stream().allMatch(number -> number.matches("ORD\\d{14}\\d{2}\\d{5}")));
+	}
+
+	@Test
+	void keepsIncreasingWhenTheClockGoesBackwards() {
+		MutableClock clock = new MutableClock(Instant.parse("2026-10-17T10:15:30Z"));
+		TimeOrderedOrderNumberGenerator generator = new TimeOrderedOrderNumberGenerator(7, clock);
+
+		String first = generator.nextOrderNumber();
+		clock.instant = clock.instant.minusSeconds(5);
+		String second = generator.nextOrderNumber();
+
+		assertEquals("ORD202610171015300700000", first);
+		assertEquals("ORD202610171015300700001", second);
+	}
+
+	@Test
+	void keepsIncreasingWhenDaylightSavingTimeEnds() {
+		// 02:59:59 CEST, and one second later 02:00:00 CET
+		MutableClock clock = new MutableClock(Instant.parse("2026-10-25T00:59:59Z"), ZoneId.of("Europe/Berlin"));
+		TimeOrderedOrderNumberGenerator generator = new TimeOrderedOrderNumberGenerator(7, clock);
+
+		String beforeFallBack = generator.nextOrderNumber();
+		clock.instant = clock.instant.plusSeconds(1);
+		String afterFallBack = generator.nextOrderNumber();
+
+		assertEquals("ORD202610250059590700000", beforeFallBack);
+		assertEquals("ORD202610250100000700000", afterFallBack);
+	}
+
+	@Test
+	void rollsOverToTheNextSecondWhenTheSequenceIsExhausted() {
+		MutableClock clock = new MutableClock(Instant.parse("2026-10-17T10:15:30Z"));
+		TimeOrderedOrderNumberGenerator generator = new TimeOrderedOrderNumberGenerator(7, clock);
+
+		String last = null;
+		for (int i = 0; i <= TimeOrderedOrderNumberGenerator.MAX_SEQUENCE; i++) {
+			last = generator.nextOrderNumber();
+		}
+
+		assertEquals("ORD202610171015300799999", last);
+		assertEquals("ORD202610171015310700000", generator.nextOrderNumber());
+	}
+
+	@Test
+	void rejectsNodeIdsThatDoNotFitTheFormat() {
+		assertThrows(IllegalArgumentException.class, () -> new TimeOrderedOrderNumberGenerator(100));
+		assertThrows(IllegalArgumentException.class, () -> new TimeOrderedOrderNumberGenerator(-1));
+	}
+
+	private static class MutableClock extends Clock {
+
+		private Instant instant;
+		private final ZoneId zone;
+
+		MutableClock(Instant instant) {
+			this(instant, ZoneOffset.UTC);
+		}
+
+		MutableClock(Instant instant, ZoneId zone) {
+			this.instant = instant;
+			this.zone = zone;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return zone;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Instant instant() {
+			return instant;
+		}
+	}
+}